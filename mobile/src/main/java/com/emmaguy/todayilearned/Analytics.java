@@ -2,6 +2,10 @@ package com.emmaguy.todayilearned;
 
 import android.os.Bundle;
 
+import com.emmaguy.todayilearned.refresh.HttpCacheStats;
+import com.emmaguy.todayilearned.refresh.ImageCache;
+import com.emmaguy.todayilearned.refresh.LaneExecutor;
+import com.emmaguy.todayilearned.refresh.WearPayloadCompressor;
 import com.emmaguy.todayilearned.storage.TokenStorage;
 import com.emmaguy.todayilearned.storage.UserStorage;
 import com.google.firebase.analytics.FirebaseAnalytics;
@@ -54,4 +58,58 @@ public class Analytics {
 
         mFirebaseAnalytics.logEvent("refresh", bundle);
     }
+
+    public void sendHttpCacheStats(HttpCacheStats.Snapshot stats) {
+        Timber.d("Sending http cache stats: %s", stats);
+
+        Bundle bundle = new Bundle();
+        bundle.putInt("requests", stats.getRequests());
+        bundle.putInt("hits", stats.getHits());
+        bundle.putInt("conditional_hits", stats.getConditionalHits());
+        bundle.putInt("misses", stats.getMisses());
+        bundle.putLong("bytes_from_cache", stats.getBytesFromCache());
+
+        mFirebaseAnalytics.logEvent("http_cache", bundle);
+    }
+
+    public void sendImageCacheStats(ImageCache.Stats stats) {
+        Timber.d("Sending image cache stats: %s", stats);
+
+        Bundle bundle = new Bundle();
+        bundle.putInt("hits", stats.getHits());
+        bundle.putInt("misses", stats.getMisses());
+        bundle.putDouble("hit_ratio", stats.getHitRatio());
+        bundle.putInt("evictions", stats.getEvictions());
+        bundle.putLong("size_bytes", stats.getSizeBytes());
+
+        mFirebaseAnalytics.logEvent("image_cache", bundle);
+    }
+
+    public void sendWearPayloadStats(WearPayloadCompressor.Stats stats) {
+        Timber.d("Sending wear payload stats: %s", stats);
+
+        Bundle bundle = new Bundle();
+        bundle.putInt("payloads", stats.getPayloads());
+        bundle.putInt("compressed_payloads", stats.getCompressedPayloads());
+        bundle.putLong("raw_bytes", stats.getRawBytes());
+        bundle.putLong("sent_bytes", stats.getSentBytes());
+        bundle.putLong("compression_millis", stats.getCompressionMillis());
+
+        mFirebaseAnalytics.logEvent("wear_payload", bundle);
+    }
+
+    public void sendLaneStats(LaneExecutor.Stats stats) {
+        Timber.d("Sending lane stats: %s", stats);
+
+        Bundle bundle = new Bundle();
+        bundle.putString("lane", stats.getName());
+        bundle.putInt("tasks", stats.getTasks());
+        bundle.putLong("average_wait_millis", stats.getAverageWaitMillis());
+        bundle.putLong("max_wait_millis", stats.getMaxWaitMillis());
+        bundle.putInt("queued", stats.getQueued());
+        bundle.putInt("threads_created", stats.getThreadsCreated());
+        bundle.putInt("rejected", stats.getRejected());
+
+        mFirebaseAnalytics.logEvent("executor_lane", bundle);
+    }
 }
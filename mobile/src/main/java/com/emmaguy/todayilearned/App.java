@@ -3,11 +3,17 @@ package com.emmaguy.todayilearned;
 import android.app.Application;
 import android.content.Context;
 
+import com.emmaguy.todayilearned.refresh.TokenRenewalScheduler;
+
+import javax.inject.Inject;
+
 import timber.log.Timber;
 
 public class App extends Application {
     private final boolean mIsDebug = BuildConfig.DEBUG;
 
+    @Inject TokenRenewalScheduler mTokenRenewalScheduler;
+
     private AppComponent mAppComponent;
 
     public static App with(Context context) {
@@ -25,6 +31,8 @@ public class App extends Application {
         } else {
             Timber.plant(new FirebaseTree());
         }
+
+        mTokenRenewalScheduler.schedule();
     }
 
     public AppComponent getAppComponent() {
@@ -1,6 +1,8 @@
 package com.emmaguy.todayilearned;
 
+import com.emmaguy.todayilearned.refresh.ActionOutboxJobService;
 import com.emmaguy.todayilearned.refresh.BackgroundAlarmListener;
+import com.emmaguy.todayilearned.refresh.RefreshJobService;
 import com.emmaguy.todayilearned.refresh.RetrieveService;
 import com.emmaguy.todayilearned.refresh.WearListenerService;
 import com.emmaguy.todayilearned.settings.DragReorderActionsPreference;
@@ -22,5 +24,7 @@ public interface AppComponent {
     void inject(SettingsActivity.SettingsFragment fragment);
     void inject(WearListenerService wearListenerService);
     void inject(RetrieveService retrieveService);
+    void inject(RefreshJobService refreshJobService);
+    void inject(ActionOutboxJobService actionOutboxJobService);
     void inject(App app);
 }
@@ -3,32 +3,61 @@ package com.emmaguy.todayilearned;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.content.res.Resources;
+import android.os.Process;
 import android.preference.PreferenceManager;
 
+import com.emmaguy.todayilearned.refresh.ActionOutbox;
+import com.emmaguy.todayilearned.refresh.ActionOutboxJobScheduler;
+import com.emmaguy.todayilearned.refresh.AdaptiveRefreshScheduler;
 import com.emmaguy.todayilearned.refresh.BackgroundAlarmListener;
 import com.emmaguy.todayilearned.refresh.BasicAuthorisationRequestInterceptorBuilder;
+import com.emmaguy.todayilearned.refresh.CacheHeadersInterceptor;
+import com.emmaguy.todayilearned.refresh.CachePolicyInterceptor;
 import com.emmaguy.todayilearned.refresh.CommentsConverter;
 import com.emmaguy.todayilearned.refresh.DelegatingConverter;
+import com.emmaguy.todayilearned.refresh.DroppedActionNotifier;
 import com.emmaguy.todayilearned.refresh.HtmlDecoder;
+import com.emmaguy.todayilearned.refresh.HttpCacheStats;
+import com.emmaguy.todayilearned.refresh.ImageCache;
 import com.emmaguy.todayilearned.refresh.ImageDownloader;
+import com.emmaguy.todayilearned.refresh.ImageEncoder;
+import com.emmaguy.todayilearned.refresh.LaneExecutor;
 import com.emmaguy.todayilearned.refresh.LatestPostsRetriever;
-import com.emmaguy.todayilearned.refresh.MarkAsReadConverter;
+import com.emmaguy.todayilearned.refresh.MoreCommentsConverter;
+import com.emmaguy.todayilearned.refresh.MoreCommentsRetriever;
 import com.emmaguy.todayilearned.refresh.PostConverter;
+import com.emmaguy.todayilearned.refresh.RateLimitInterceptor;
+import com.emmaguy.todayilearned.refresh.RateLimiter;
 import com.emmaguy.todayilearned.refresh.RedditAuthenticationService;
 import com.emmaguy.todayilearned.refresh.RedditService;
+import com.emmaguy.todayilearned.refresh.RefreshJobScheduler;
+import com.emmaguy.todayilearned.refresh.Refresher;
 import com.emmaguy.todayilearned.refresh.SubscriptionConverter;
 import com.emmaguy.todayilearned.refresh.TokenConverter;
 import com.emmaguy.todayilearned.refresh.TokenRefreshInterceptor;
+import com.emmaguy.todayilearned.refresh.TokenRenewalScheduler;
 import com.emmaguy.todayilearned.refresh.UnreadDirectMessageRetriever;
+import com.emmaguy.todayilearned.refresh.WearPayloadCompressor;
+import com.emmaguy.todayilearned.refresh.WearableConnection;
+import com.emmaguy.todayilearned.settings.ActionStorage;
 import com.emmaguy.todayilearned.settings.Base64Encoder;
 import com.emmaguy.todayilearned.settings.BrowserIntentBuilder;
 import com.emmaguy.todayilearned.sharedlib.Constants;
+import com.emmaguy.todayilearned.storage.ListingCursorStorage;
+import com.emmaguy.todayilearned.storage.PendingActionStorage;
+import com.emmaguy.todayilearned.storage.RefreshStatsStorage;
+import com.emmaguy.todayilearned.storage.SeenPostStorage;
 import com.emmaguy.todayilearned.storage.TokenStorage;
 import com.emmaguy.todayilearned.storage.UserStorage;
 import com.google.firebase.analytics.FirebaseAnalytics;
 import com.google.gson.Gson;
+import com.squareup.okhttp.Cache;
 import com.squareup.okhttp.OkHttpClient;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
 import javax.inject.Named;
 import javax.inject.Singleton;
 
@@ -40,8 +69,32 @@ import retrofit.converter.GsonConverter;
 import rx.Scheduler;
 import rx.android.schedulers.AndroidSchedulers;
 import rx.schedulers.Schedulers;
+import timber.log.Timber;
 
 @Module public class AppModule {
+    private static final String HTTP_CACHE_DIRECTORY = "http";
+    private static final long HTTP_CACHE_MAX_SIZE_BYTES = 10 * 1024 * 1024;
+    private static final int COMMENTS_MAX_STALE_SECONDS = 5 * 60;
+    private static final long TOKEN_RENEWAL_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final int MAX_CONCURRENT_LISTINGS = 4;
+    private static final int MAX_CONCURRENT_IMAGE_DOWNLOADS = 4;
+    private static final long IMAGE_DOWNLOAD_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(15);
+    private static final int IMAGE_TARGET_QUALITY = 80;
+    private static final int IMAGE_MIN_QUALITY = 40;
+    private static final int IMAGE_MAX_BYTES = 64 * 1024;
+    private static final long IMAGE_CACHE_MAX_BYTES = 5 * 1024 * 1024;
+    private static final long IMAGE_CACHE_MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(2);
+    private static final int WEAR_PAYLOAD_COMPRESSION_THRESHOLD_BYTES = 1024;
+    private static final long WEARABLE_IDLE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final int RATE_LIMIT_INTERACTIVE_RESERVE = 10;
+    private static final long RATE_LIMIT_MAX_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final int INTERACTIVE_LANE_THREADS = 2;
+    private static final int INTERACTIVE_LANE_QUEUE_CAPACITY = 16;
+    private static final int BULK_LANE_THREADS = MAX_CONCURRENT_IMAGE_DOWNLOADS;
+    private static final int OUTBOX_BATCH_SIZE = 10;
+    private static final int OUTBOX_MAX_PENDING = 50;
+    private static final int OUTBOX_MAX_ATTEMPTS = 10;
+
     private final Context mContext;
 
     public AppModule(Context context) {
@@ -60,22 +113,41 @@ import rx.schedulers.Schedulers;
         return PreferenceManager.getDefaultSharedPreferences(mContext);
     }
 
-    @Provides @Singleton public ImageDownloader provideImageDownloader() {
-        return new ImageDownloader();
+    @Provides @Singleton public ImageCache provideImageCache(Context context) {
+        return new ImageCache(new File(context.getCacheDir(), "images"),
+                IMAGE_CACHE_MAX_BYTES,
+                IMAGE_CACHE_MAX_AGE_MILLIS);
+    }
+
+    @Provides @Singleton public ImageDownloader provideImageDownloader(ImageCache imageCache) {
+        return new ImageDownloader(new ImageEncoder(IMAGE_TARGET_QUALITY,
+                IMAGE_MIN_QUALITY,
+                IMAGE_MAX_BYTES), imageCache);
     }
 
     @Provides @Singleton
     public LatestPostsRetriever provideLatestPostsFromRedditRetriever(ImageDownloader downloader,
+                                                                      ListingCursorStorage listingCursorStorage,
+                                                                      SeenPostStorage seenPostStorage,
                                                                       UserStorage storage,
-                                                                      RedditService redditService) {
-        return new LatestPostsRetriever(downloader, storage, redditService);
+                                                                      @Named("bulk") RedditService redditService,
+                                                                      @Named("bulk") Scheduler scheduler) {
+        return new LatestPostsRetriever(downloader, listingCursorStorage, seenPostStorage, storage,
+                redditService, scheduler, MAX_CONCURRENT_LISTINGS, MAX_CONCURRENT_IMAGE_DOWNLOADS,
+                IMAGE_DOWNLOAD_TIMEOUT_MILLIS);
     }
 
     @Provides @Singleton public UnreadDirectMessageRetriever provideUnreadDirectMessageRetriever(
-            TokenStorage tokenStorage, UserStorage storage, RedditService redditService) {
+            TokenStorage tokenStorage, UserStorage storage, @Named("bulk") RedditService redditService) {
         return new UnreadDirectMessageRetriever(tokenStorage, storage, redditService);
     }
 
+    @Provides @Singleton
+    public MoreCommentsRetriever provideMoreCommentsRetriever(
+            @Named("interactive") RedditService redditService) {
+        return new MoreCommentsRetriever(redditService);
+    }
+
     @Provides @Singleton public BrowserIntentBuilder provideBrowserIntentBuilder(Context context) {
         return new BrowserIntentBuilder(context.getPackageManager());
     }
@@ -97,29 +169,99 @@ import rx.schedulers.Schedulers;
                 .create(RedditAuthenticationService.class);
     }
 
-    @Provides @Singleton public RedditService provideRedditService(Gson gson, Resources resources,
-                                                                   UserStorage userStorage,
-                                                                   TokenStorage tokenStorage,
-                                                                   RedditAuthenticationService authService) {
-        final GsonConverter gsonConverter = new GsonConverter(gson);
+    @Provides @Singleton
+    public TokenRefreshInterceptor provideTokenRefreshInterceptor(TokenStorage tokenStorage,
+                                                                  RedditAuthenticationService authService) {
+        return new TokenRefreshInterceptor(tokenStorage, authService);
+    }
+
+    @Provides @Singleton
+    public TokenRenewalScheduler provideTokenRenewalScheduler(TokenRefreshInterceptor interceptor,
+                                                              TokenStorage tokenStorage,
+                                                              @Named("io") Scheduler scheduler) {
+        return new TokenRenewalScheduler(interceptor, tokenStorage, scheduler,
+                TOKEN_RENEWAL_WINDOW_MILLIS);
+    }
 
+    @Provides @Singleton
+    public WearableConnection provideWearableConnection(Context context, @Named("io") Scheduler scheduler) {
+        return new WearableConnection(context, scheduler, WEARABLE_IDLE_TIMEOUT_MILLIS);
+    }
+
+    @Provides @Singleton public WearPayloadCompressor provideWearPayloadCompressor() {
+        return new WearPayloadCompressor(WEAR_PAYLOAD_COMPRESSION_THRESHOLD_BYTES);
+    }
+
+    @Provides @Singleton public HttpCacheStats provideHttpCacheStats() {
+        return new HttpCacheStats();
+    }
+
+    @Provides @Singleton public OkHttpClient provideOkHttpClient(Context context,
+                                                                 TokenRefreshInterceptor tokenRefreshInterceptor,
+                                                                 HttpCacheStats httpCacheStats) {
         final OkHttpClient okHttpClient = new OkHttpClient();
+        try {
+            okHttpClient.setCache(createHttpCache(new File(context.getCacheDir(),
+                    HTTP_CACHE_DIRECTORY)));
+        } catch (IOException e) {
+            // Not fatal, we just won't get any caching
+            Timber.e(e, "Failed to create http cache");
+        }
+
+        okHttpClient.interceptors()
+                .add(new CachePolicyInterceptor(httpCacheStats, COMMENTS_MAX_STALE_SECONDS));
+        okHttpClient.networkInterceptors().add(new RateLimitInterceptor(new RateLimiter(
+                RATE_LIMIT_INTERACTIVE_RESERVE,
+                RATE_LIMIT_MAX_WAIT_MILLIS)));
+        okHttpClient.networkInterceptors().add(tokenRefreshInterceptor);
+        okHttpClient.networkInterceptors().add(new CacheHeadersInterceptor());
+        okHttpClient.setRetryOnConnectionFailure(true);
+        return okHttpClient;
+    }
+
+    /**
+     * Actions from the watch and the settings screen - its requests are made on the interactive lane
+     */
+    @Provides @Singleton @Named("interactive")
+    public RedditService provideInteractiveRedditService(OkHttpClient okHttpClient, Gson gson,
+                                                         Resources resources,
+                                                         UserStorage userStorage,
+                                                         @Named("interactive") LaneExecutor lane) {
+        return createRedditService(okHttpClient, gson, resources, userStorage, lane);
+    }
+
+    /**
+     * Refreshes and retries from the outbox - its requests are made on the bulk lane
+     */
+    @Provides @Singleton @Named("bulk")
+    public RedditService provideBulkRedditService(OkHttpClient okHttpClient, Gson gson,
+                                                  Resources resources, UserStorage userStorage,
+                                                  @Named("bulk") LaneExecutor lane) {
+        return createRedditService(okHttpClient, gson, resources, userStorage, lane);
+    }
+
+    private RedditService createRedditService(OkHttpClient okHttpClient, Gson gson,
+                                              Resources resources, UserStorage userStorage,
+                                              LaneExecutor lane) {
+        final GsonConverter gsonConverter = new GsonConverter(gson);
 
-        RedditService authenticatedRedditService = new RestAdapter.Builder().setEndpoint(Constants.ENDPOINT_URL_OAUTH_REDDIT)
+        // Retrofit makes the request for an observable on its http executor, whichever scheduler it's
+        // subscribed on. We only use observables, so there are no callbacks to run
+        return new RestAdapter.Builder().setEndpoint(Constants.ENDPOINT_URL_OAUTH_REDDIT)
                 .setClient(new OkClient(okHttpClient))
+                .setExecutors(lane, null)
                 .setConverter(new DelegatingConverter(gsonConverter,
                         new TokenConverter(gsonConverter),
                         new PostConverter(gsonConverter, resources, userStorage, new HtmlDecoder()),
-                        new MarkAsReadConverter(),
                         new SubscriptionConverter(),
-                        new CommentsConverter(gson, gsonConverter, resources, userStorage)))
+                        new CommentsConverter(gsonConverter, resources, userStorage),
+                        new MoreCommentsConverter()))
                 .build()
                 .create(RedditService.class);
+    }
 
-        okHttpClient.networkInterceptors()
-                .add(new TokenRefreshInterceptor(tokenStorage, authService));
-        okHttpClient.setRetryOnConnectionFailure(true);
-        return authenticatedRedditService;
+    private Cache createHttpCache(File directory) throws IOException {
+        return new Cache(directory, HTTP_CACHE_MAX_SIZE_BYTES);
     }
 
     @Provides @Singleton @Named("io") public Scheduler provideIo() {
@@ -130,10 +272,74 @@ import rx.schedulers.Schedulers;
         return AndroidSchedulers.mainThread();
     }
 
+    @Provides @Singleton @Named("interactive") public LaneExecutor provideInteractiveLane() {
+        return new LaneExecutor("interactive", INTERACTIVE_LANE_THREADS,
+                INTERACTIVE_LANE_QUEUE_CAPACITY, Process.THREAD_PRIORITY_DEFAULT);
+    }
+
+    @Provides @Singleton @Named("bulk") public LaneExecutor provideBulkLane() {
+        // A refresh's work is already capped by how many listings and images it fetches at once
+        return new LaneExecutor("bulk", BULK_LANE_THREADS, Integer.MAX_VALUE,
+                Process.THREAD_PRIORITY_BACKGROUND);
+    }
+
+    @Provides @Singleton @Named("bulk") public Scheduler provideBulk(@Named("bulk") LaneExecutor lane) {
+        return Schedulers.from(lane);
+    }
+
     @Provides @Singleton public Analytics provideAnalytics() {
         return new Analytics(FirebaseAnalytics.getInstance(mContext));
     }
 
+    @Provides @Singleton public AdaptiveRefreshScheduler provideAdaptiveRefreshScheduler(
+            RefreshStatsStorage refreshStatsStorage, UserStorage userStorage) {
+        return new AdaptiveRefreshScheduler(refreshStatsStorage, userStorage);
+    }
+
+    @Provides @Singleton public RefreshJobScheduler provideRefreshJobScheduler(Context context,
+                                                                               UserStorage userStorage) {
+        return new RefreshJobScheduler(context, userStorage);
+    }
+
+    @Provides @Singleton
+    public DroppedActionNotifier provideDroppedActionNotifier(WearableConnection wearableConnection,
+                                                              Analytics analytics) {
+        return new DroppedActionNotifier(wearableConnection, analytics);
+    }
+
+    @Provides @Singleton
+    public ActionOutbox provideActionOutbox(PendingActionStorage pendingActionStorage,
+                                            @Named("bulk") RedditService redditService,
+                                            DroppedActionNotifier droppedActionNotifier) {
+        return new ActionOutbox(pendingActionStorage, redditService, droppedActionNotifier,
+                OUTBOX_BATCH_SIZE, OUTBOX_MAX_PENDING, OUTBOX_MAX_ATTEMPTS);
+    }
+
+    @Provides @Singleton public ActionOutboxJobScheduler provideActionOutboxJobScheduler(Context context) {
+        return new ActionOutboxJobScheduler(context);
+    }
+
+    @Provides @Singleton
+    public Refresher provideRefresher(AdaptiveRefreshScheduler adaptiveRefreshScheduler,
+                                      UnreadDirectMessageRetriever unreadDirectMessageRetriever,
+                                      LatestPostsRetriever latestPostsRetriever,
+                                      ActionOutbox actionOutbox,
+                                      HttpCacheStats httpCacheStats,
+                                      ImageCache imageCache,
+                                      WearPayloadCompressor wearPayloadCompressor,
+                                      WearableConnection wearableConnection,
+                                      ActionStorage actionStorage,
+                                      TokenStorage tokenStorage,
+                                      UserStorage userStorage,
+                                      Analytics analytics,
+                                      @Named("bulk") LaneExecutor bulkLane,
+                                      @Named("bulk") Scheduler scheduler) {
+        return new Refresher(adaptiveRefreshScheduler, unreadDirectMessageRetriever,
+                latestPostsRetriever, actionOutbox, httpCacheStats, imageCache, wearPayloadCompressor,
+                wearableConnection, actionStorage, tokenStorage, userStorage, analytics, bulkLane,
+                scheduler);
+    }
+
     @Provides @Singleton public BackgroundAlarmListener provideAlarmListener() {
         return new BackgroundAlarmListener();
     }
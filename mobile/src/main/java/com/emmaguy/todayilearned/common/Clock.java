@@ -0,0 +1,25 @@
+package com.emmaguy.todayilearned.common;
+
+import android.os.SystemClock;
+
+/**
+ * Wall clock and monotonic time, so classes which care about the difference can be tested
+ */
+public interface Clock {
+    Clock SYSTEM = new Clock() {
+        @Override public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override public long elapsedRealtime() {
+            return SystemClock.elapsedRealtime();
+        }
+    };
+
+    long currentTimeMillis();
+
+    /**
+     * @return milliseconds since boot, unaffected by the user or network changing the wall clock
+     */
+    long elapsedRealtime();
+}
@@ -17,4 +17,5 @@ public class Logger {
 
     public static final String LOG_EVENT_SUCCESS = "Success";
     public static final String LOG_EVENT_FAILURE = "Failure";
+    public static final String LOG_EVENT_QUEUED = "Queued";
 }
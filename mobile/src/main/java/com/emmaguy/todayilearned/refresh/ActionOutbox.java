@@ -0,0 +1,284 @@
+package com.emmaguy.todayilearned.refresh;
+
+import android.support.annotation.NonNull;
+
+import com.emmaguy.todayilearned.common.Clock;
+import com.emmaguy.todayilearned.storage.PendingAction;
+import com.emmaguy.todayilearned.storage.PendingActionStorage;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import retrofit.RetrofitError;
+import timber.log.Timber;
+
+/**
+ * Keeps votes and replies from the watch that failed because of the network, so they aren't lost, and
+ * retries them with exponential backoff.
+ * <p>
+ * Only the latest vote on a post is kept, as that's the one the user meant. A reply is only kept if it
+ * can't have reached reddit, so it's never posted twice. Actions are drained a batch
+ * at a time - whenever we refresh, as the radio is awake anyway, and from Lollipop by a job that waits
+ * for a network. An action reddit rejects, or that keeps failing, is dropped and the
+ * {@link DroppedActionNotifier} lets the user know.
+ */
+public class ActionOutbox {
+    static final long INITIAL_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    static final long MAX_BACKOFF_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_SERVER_ERROR = 500;
+
+    private final PendingActionStorage mPendingActionStorage;
+    private final RedditService mRedditService;
+    private final DroppedActionNotifier mDroppedActionNotifier;
+    private final int mBatchSize;
+    private final int mMaxPending;
+    private final int mMaxAttempts;
+    private final Clock mClock;
+
+    // Only one drain sends at a time, so an action is never sent twice
+    private final Object mDrainLock = new Object();
+
+    /**
+     * @param maxAttempts how many times to try an action, counting the attempt from the watch that failed
+     */
+    public ActionOutbox(@NonNull PendingActionStorage pendingActionStorage,
+                        @NonNull RedditService redditService,
+                        @NonNull DroppedActionNotifier droppedActionNotifier, int batchSize,
+                        int maxPending, int maxAttempts) {
+        this(pendingActionStorage, redditService, droppedActionNotifier, batchSize, maxPending,
+                maxAttempts, Clock.SYSTEM);
+    }
+
+    ActionOutbox(@NonNull PendingActionStorage pendingActionStorage,
+                 @NonNull RedditService redditService,
+                 @NonNull DroppedActionNotifier droppedActionNotifier, int batchSize, int maxPending,
+                 int maxAttempts, @NonNull Clock clock) {
+        mPendingActionStorage = pendingActionStorage;
+        mRedditService = redditService;
+        mDroppedActionNotifier = droppedActionNotifier;
+        mBatchSize = batchSize;
+        mMaxPending = maxPending;
+        mMaxAttempts = maxAttempts;
+        mClock = clock;
+    }
+
+    /**
+     * @return true if the action failed in a way that's worth trying again later. Sending a vote twice does
+     * no harm, so it's retried if there's no network, reddit is down or busy, or the interactive lane was
+     * full. A reply sent twice would be posted twice, so it's only retried if it can't have reached reddit
+     */
+    public static boolean isRetryable(@NonNull PendingAction action, Throwable throwable) {
+        if (throwable instanceof RejectedExecutionException) {
+            return true;
+        }
+
+        if (throwable instanceof RetrofitError) {
+            final RetrofitError error = (RetrofitError) throwable;
+            final boolean isVote = PendingAction.TYPE_VOTE.equals(action.getType());
+            if (error.getKind() == RetrofitError.Kind.NETWORK) {
+                return isVote || isNeverSent(error.getCause());
+            }
+
+            if (error.getKind() == RetrofitError.Kind.HTTP && error.getResponse() != null) {
+                final int status = error.getResponse().getStatus();
+                return status == HTTP_TOO_MANY_REQUESTS || (isVote && status >= HTTP_SERVER_ERROR);
+            }
+        }
+        return false;
+    }
+
+    // We never connected, unlike a read timeout where reddit may have got the request but not answered
+    private static boolean isNeverSent(Throwable cause) {
+        return cause instanceof UnknownHostException || cause instanceof ConnectException ||
+                cause instanceof NoRouteToHostException;
+    }
+
+    /**
+     * Queues an action that's just failed, to be retried after the initial backoff. A vote replaces any
+     * earlier vote on the same post that's still waiting
+     */
+    public synchronized void add(@NonNull PendingAction action) {
+        final List<PendingAction> actions = mPendingActionStorage.getPendingActions();
+        if (PendingAction.TYPE_VOTE.equals(action.getType())) {
+            removeVotes(actions, action.getFullname());
+        }
+
+        action.setNextAttempt(1, mClock.currentTimeMillis() + INITIAL_BACKOFF_MILLIS);
+        actions.add(action);
+        final List<PendingAction> dropped = new ArrayList<>();
+        while (actions.size() > mMaxPending) {
+            dropped.add(actions.remove(0));
+        }
+        mPendingActionStorage.setPendingActions(actions);
+
+        for (PendingAction oldest : dropped) {
+            Timber.w("Outbox full, dropping " + oldest);
+            mDroppedActionNotifier.onDropped(oldest);
+        }
+    }
+
+    /**
+     * Called when a new vote on a post has been sent, so an older one waiting in the outbox doesn't
+     * overwrite it
+     */
+    public synchronized void removeVotes(@NonNull String fullname) {
+        final List<PendingAction> actions = mPendingActionStorage.getPendingActions();
+        if (removeVotes(actions, fullname)) {
+            mPendingActionStorage.setPendingActions(actions);
+        }
+    }
+
+    public synchronized boolean hasPending() {
+        return !mPendingActionStorage.getPendingActions().isEmpty();
+    }
+
+    /**
+     * @return how long until the next action is due, 0 if one is due now or -1 if there's nothing waiting
+     */
+    public synchronized long getNextAttemptDelayMillis() {
+        final List<PendingAction> actions = mPendingActionStorage.getPendingActions();
+        if (actions.isEmpty()) {
+            return -1;
+        }
+
+        long next = Long.MAX_VALUE;
+        for (PendingAction action : actions) {
+            next = Math.min(next, action.getNextAttemptMillis());
+        }
+        return Math.max(0, next - mClock.currentTimeMillis());
+    }
+
+    /**
+     * Sends up to a batch of the actions that are due, one after another. Blocks until they're done, so
+     * must not be called on the main thread. If the thread is interrupted, stops and leaves the rest as
+     * they were
+     *
+     * @return true if there are still actions waiting, now or for a later retry
+     */
+    public boolean drain() {
+        synchronized (mDrainLock) {
+            for (PendingAction action : getDueActions()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+
+                try {
+                    send(action);
+                    Timber.d("Sent pending " + action);
+                    remove(action);
+                } catch (RuntimeException e) {
+                    if (isInterrupted(e)) {
+                        // We're being stopped, not failing. Leave the action as it was for the next drain
+                        Timber.d(e, "Interrupted sending pending " + action);
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+
+                    final int attempts = action.getAttempts() + 1;
+                    if (isRetryable(action, e) && attempts < mMaxAttempts) {
+                        Timber.d(e, "Failed to send pending " + action + ", will retry");
+                        retryLater(action, attempts);
+                    } else {
+                        Timber.e(e, "Failed to send pending " + action + ", dropping it");
+                        remove(action);
+                        mDroppedActionNotifier.onDropped(action);
+                    }
+                }
+            }
+            return hasPending();
+        }
+    }
+
+    private synchronized List<PendingAction> getDueActions() {
+        final long now = mClock.currentTimeMillis();
+        final List<PendingAction> due = new ArrayList<>(mBatchSize);
+        for (PendingAction action : mPendingActionStorage.getPendingActions()) {
+            if (due.size() >= mBatchSize) {
+                break;
+            }
+            if (action.getNextAttemptMillis() <= now) {
+                due.add(action);
+            }
+        }
+        return due;
+    }
+
+    private void send(PendingAction action) {
+        switch (action.getType()) {
+            case PendingAction.TYPE_VOTE:
+                mRedditService.vote(action.getFullname(), action.getVoteDirection())
+                        .toBlocking()
+                        .lastOrDefault(null);
+                break;
+            case PendingAction.TYPE_REPLY_TO_POST:
+                checkResponse(mRedditService.commentOnPost(action.getMessage(), action.getFullname())
+                        .toBlocking()
+                        .single());
+                break;
+            case PendingAction.TYPE_REPLY_TO_DIRECT_MESSAGE:
+                checkResponse(mRedditService.replyToDirectMessage(action.getSubject(),
+                        action.getMessage(),
+                        action.getToUser()).toBlocking().single());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown pending action: " + action.getType());
+        }
+    }
+
+    // Blocking on an observable wraps the interrupt in a RuntimeException
+    private static boolean isInterrupted(RuntimeException e) {
+        return Thread.currentThread().isInterrupted() || e.getCause() instanceof InterruptedException;
+    }
+
+    private void checkResponse(RedditResponse response) {
+        if (response.hasErrors()) {
+            throw new RuntimeException("Reddit rejected pending action: " + response);
+        }
+    }
+
+    // The action may have been replaced by a newer vote while it was being sent, so look it up by id
+    private synchronized void remove(PendingAction action) {
+        final List<PendingAction> actions = mPendingActionStorage.getPendingActions();
+        final Iterator<PendingAction> iterator = actions.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getId().equals(action.getId())) {
+                iterator.remove();
+                mPendingActionStorage.setPendingActions(actions);
+                return;
+            }
+        }
+    }
+
+    private synchronized void retryLater(PendingAction action, int attempts) {
+        final int doublings = Math.min(attempts - 1, 20);
+        final long backoff = Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << doublings);
+        final List<PendingAction> actions = mPendingActionStorage.getPendingActions();
+        for (PendingAction pending : actions) {
+            if (pending.getId().equals(action.getId())) {
+                pending.setNextAttempt(attempts, mClock.currentTimeMillis() + backoff);
+                mPendingActionStorage.setPendingActions(actions);
+                return;
+            }
+        }
+    }
+
+    private static boolean removeVotes(List<PendingAction> actions, String fullname) {
+        boolean isRemoved = false;
+        final Iterator<PendingAction> iterator = actions.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isVoteOn(fullname)) {
+                iterator.remove();
+                isRemoved = true;
+            }
+        }
+        return isRemoved;
+    }
+}
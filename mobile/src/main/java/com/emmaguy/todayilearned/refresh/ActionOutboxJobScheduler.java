@@ -0,0 +1,51 @@
+package com.emmaguy.todayilearned.refresh;
+
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+import android.support.annotation.NonNull;
+
+import timber.log.Timber;
+
+/**
+ * Schedules the {@link ActionOutbox} to be drained once the next action is due and there's a network to
+ * send it over.
+ * <p>
+ * The job scheduler only exists from Lollipop, so callers must check the API level first. Before that,
+ * the outbox is only drained when we refresh
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class ActionOutboxJobScheduler {
+    private static final int JOB_ID = 2;
+
+    private final Context mContext;
+
+    public ActionOutboxJobScheduler(@NonNull Context context) {
+        mContext = context;
+    }
+
+    /**
+     * Replaces any drain that's already scheduled
+     */
+    public void schedule(long delayMillis) {
+        final JobInfo job = new JobInfo.Builder(JOB_ID,
+                new ComponentName(mContext, ActionOutboxJobService.class))
+                .setMinimumLatency(delayMillis)
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setPersisted(true)
+                .build();
+
+        if (getJobScheduler().schedule(job) == JobScheduler.RESULT_SUCCESS) {
+            Timber.d("Scheduled outbox job in %d ms", delayMillis);
+        } else {
+            Timber.e("Failed to schedule outbox job");
+        }
+    }
+
+    private JobScheduler getJobScheduler() {
+        return (JobScheduler) mContext.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+    }
+}
@@ -0,0 +1,72 @@
+package com.emmaguy.todayilearned.refresh;
+
+import android.annotation.TargetApi;
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.os.Build;
+
+import com.emmaguy.todayilearned.App;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscription;
+import timber.log.Timber;
+
+/**
+ * Drains the {@link ActionOutbox} when scheduled by the {@link ActionOutboxJobScheduler}, then schedules
+ * itself again for whatever is still waiting
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class ActionOutboxJobService extends JobService {
+    @Inject ActionOutbox mActionOutbox;
+    @Inject ActionOutboxJobScheduler mActionOutboxJobScheduler;
+
+    @Inject @Named("io") Scheduler mIoScheduler;
+
+    private volatile Subscription mDrain;
+
+    @Override public void onCreate() {
+        super.onCreate();
+
+        App.with(this).getAppComponent().inject(this);
+    }
+
+    @Override public boolean onStartJob(JobParameters params) {
+        Timber.d("onStartJob");
+
+        mDrain = Observable.defer(() -> Observable.just(mActionOutbox.drain()))
+                .subscribeOn(mIoScheduler)
+                .subscribe(hasPending -> {
+                    mDrain = null;
+
+                    // The outbox does its own backoff, so schedule the next drain rather than retrying
+                    jobFinished(params, false);
+                    if (hasPending) {
+                        mActionOutboxJobScheduler.schedule(mActionOutbox.getNextAttemptDelayMillis());
+                    }
+                }, throwable -> {
+                    Timber.e(throwable, "ActionOutboxJobService: Failed to drain outbox");
+                    mDrain = null;
+                    jobFinished(params, true);
+                });
+        return true;
+    }
+
+    /**
+     * Called if we lose the network part way through. Unsubscribing interrupts the drain, which leaves
+     * anything not sent yet in the outbox, and the job is retried
+     */
+    @Override public boolean onStopJob(JobParameters params) {
+        Timber.d("onStopJob");
+
+        final Subscription drain = mDrain;
+        if (drain != null) {
+            drain.unsubscribe();
+            mDrain = null;
+        }
+        return true;
+    }
+}
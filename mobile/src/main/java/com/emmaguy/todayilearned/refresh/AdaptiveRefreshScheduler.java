@@ -0,0 +1,171 @@
+package com.emmaguy.todayilearned.refresh;
+
+import android.support.annotation.NonNull;
+
+import com.emmaguy.todayilearned.common.Clock;
+import com.emmaguy.todayilearned.sharedlib.Constants;
+import com.emmaguy.todayilearned.sharedlib.Post;
+import com.emmaguy.todayilearned.storage.RefreshStatsStorage;
+import com.emmaguy.todayilearned.storage.UserStorage;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
+
+/**
+ * Works out when to refresh next, starting from the interval the user picked.
+ * <p>
+ * Each refresh records how many new posts each subreddit had, kept as a smoothed posts per hour rate.
+ * When the subreddits are busy enough to fill a whole page before the next refresh, the interval shrinks
+ * so we don't skip posts - but never below half the user's interval, or 15 minutes. When refreshes keep
+ * coming back empty, the interval doubles each time, up to 4x the user's interval, but no further than
+ * we'd expect to wait for a new post at the usual rate.
+ */
+public class AdaptiveRefreshScheduler {
+    // Weight of the latest refresh in each subreddit's average rate
+    static final double RATE_SMOOTHING = 0.3;
+    static final long MIN_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    static final int MAX_STRETCH_DOUBLINGS = 2;
+
+    // Refreshes further apart than this, e.g. when the phone was off, say little about the current rate
+    private static final long MAX_SAMPLE_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final long MIN_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    private static final double MILLIS_PER_HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private final RefreshStatsStorage mRefreshStatsStorage;
+    private final UserStorage mUserStorage;
+    private final Clock mClock;
+
+    public AdaptiveRefreshScheduler(@NonNull RefreshStatsStorage refreshStatsStorage,
+                                    @NonNull UserStorage userStorage) {
+        this(refreshStatsStorage, userStorage, Clock.SYSTEM);
+    }
+
+    AdaptiveRefreshScheduler(@NonNull RefreshStatsStorage refreshStatsStorage,
+                             @NonNull UserStorage userStorage, @NonNull Clock clock) {
+        mRefreshStatsStorage = refreshStatsStorage;
+        mUserStorage = userStorage;
+        mClock = clock;
+    }
+
+    /**
+     * Records the posts a refresh found that we hadn't seen before. Only call it for a refresh that
+     * retrieved the posts - one that failed, e.g. because the network dropped, isn't an empty refresh and
+     * mustn't stretch the interval
+     */
+    public synchronized void onRefreshed(@NonNull List<Post> newPosts) {
+        final long now = mClock.currentTimeMillis();
+        final long sampleMillis = now - mRefreshStatsStorage.getLastRefreshMillis();
+        final boolean isValidSample = mRefreshStatsStorage.getLastRefreshMillis() > 0
+                && sampleMillis > 0
+                && sampleMillis <= MAX_SAMPLE_MILLIS;
+
+        final Map<String, Integer> counts = new HashMap<>();
+        for (Post post : newPosts) {
+            if (post.getSubreddit() != null) {
+                final String subreddit = post.getSubreddit().toLowerCase(Locale.US);
+                final Integer count = counts.get(subreddit);
+                counts.put(subreddit, count == null ? 1 : count + 1);
+            }
+        }
+
+        // Only keep the subreddits that are still selected
+        final Map<String, Double> previousRates = mRefreshStatsStorage.getPostRates();
+        final Map<String, Double> rates = new HashMap<>();
+        for (String subreddit : getSubreddits()) {
+            final Double previousRate = previousRates.get(subreddit);
+            if (isValidSample) {
+                final Integer count = counts.get(subreddit);
+                final double rate = (count == null ? 0 : count) / (sampleMillis / MILLIS_PER_HOUR);
+                rates.put(subreddit, previousRate == null
+                        ? rate
+                        : previousRate + RATE_SMOOTHING * (rate - previousRate));
+            } else if (previousRate != null) {
+                rates.put(subreddit, previousRate);
+            }
+        }
+
+        final int consecutiveEmptyRefreshes = newPosts.isEmpty()
+                ? mRefreshStatsStorage.getConsecutiveEmptyRefreshes() + 1
+                : 0;
+        mRefreshStatsStorage.save(rates, now, consecutiveEmptyRefreshes);
+    }
+
+    /**
+     * @return how long from now until the next refresh, given the interval the user picked
+     */
+    public synchronized long getNextRefreshDelayMillis(long baseIntervalMillis) {
+        final long intervalMillis = getIntervalMillis(baseIntervalMillis);
+        Timber.d("Refresh interval: %d ms, user's interval: %d ms", intervalMillis, baseIntervalMillis);
+
+        final long lastRefreshMillis = mRefreshStatsStorage.getLastRefreshMillis();
+        if (lastRefreshMillis <= 0) {
+            return MIN_DELAY_MILLIS;
+        }
+
+        final long sinceLastRefreshMillis = mClock.currentTimeMillis() - lastRefreshMillis;
+        if (sinceLastRefreshMillis < 0) {
+            // The clock has gone backwards, start again from now
+            return intervalMillis;
+        }
+        return Math.max(MIN_DELAY_MILLIS, intervalMillis - sinceLastRefreshMillis);
+    }
+
+    synchronized long getIntervalMillis(long baseIntervalMillis) {
+        final long minIntervalMillis = Math.min(baseIntervalMillis,
+                Math.max(baseIntervalMillis / 2, MIN_INTERVAL_MILLIS));
+        final long maxIntervalMillis = baseIntervalMillis << MAX_STRETCH_DOUBLINGS;
+
+        final Map<String, Double> rates = mRefreshStatsStorage.getPostRates();
+        boolean hasRate = false;
+        double postsPerHour = 0;
+        for (String subreddit : getSubreddits()) {
+            final Double rate = rates.get(subreddit);
+            if (rate != null) {
+                hasRate = true;
+                postsPerHour += rate;
+            }
+        }
+
+        final int doublings = Math.min(mRefreshStatsStorage.getConsecutiveEmptyRefreshes(),
+                MAX_STRETCH_DOUBLINGS);
+        long intervalMillis = baseIntervalMillis << doublings;
+
+        if (hasRate && postsPerHour > 0) {
+            final double millisPerPost = MILLIS_PER_HOUR / postsPerHour;
+            final double pageMillis = millisPerPost * mUserStorage.getNumberToRequest();
+            if (pageMillis < baseIntervalMillis) {
+                intervalMillis = (long) pageMillis;
+            } else {
+                intervalMillis = Math.min(intervalMillis,
+                        Math.max(baseIntervalMillis, (long) millisPerPost));
+            }
+        }
+
+        return Math.max(minIntervalMillis, Math.min(maxIntervalMillis, intervalMillis));
+    }
+
+    public synchronized void reset() {
+        mRefreshStatsStorage.clear();
+    }
+
+    private Set<String> getSubreddits() {
+        Collection<String> subreddits = mUserStorage.getSubredditCollection();
+        if (subreddits == null || subreddits.isEmpty()) {
+            subreddits = Constants.sDefaultSelectedSubreddits;
+        }
+
+        final Set<String> result = new HashSet<>(subreddits.size());
+        for (String subreddit : subreddits) {
+            result.add(subreddit.toLowerCase(Locale.US));
+        }
+        return result;
+    }
+}
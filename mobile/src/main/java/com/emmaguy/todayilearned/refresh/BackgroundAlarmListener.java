@@ -3,6 +3,7 @@ package com.emmaguy.todayilearned.refresh;
 import android.app.AlarmManager;
 import android.app.PendingIntent;
 import android.content.Context;
+import android.os.Build;
 import android.os.SystemClock;
 import android.text.TextUtils;
 
@@ -14,7 +15,16 @@ import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
+/**
+ * Schedules the next refresh at an interval picked by the {@link AdaptiveRefreshScheduler}. Every refresh
+ * schedules the one after it when it finishes.
+ * <p>
+ * From Lollipop it's a job that waits for a network, so we don't wake up just to find we're offline.
+ * Before that it's a one off alarm
+ */
 public class BackgroundAlarmListener implements WakefulIntentService.AlarmListener {
+    @Inject AdaptiveRefreshScheduler mRefreshScheduler;
+    @Inject RefreshJobScheduler mRefreshJobScheduler;
     @Inject UserStorage mUserStorage;
 
     public void scheduleAlarms(AlarmManager mgr, PendingIntent pi, Context context) {
@@ -24,14 +34,23 @@ public class BackgroundAlarmListener implements WakefulIntentService.AlarmListen
         if (!TextUtils.isEmpty(refreshInterval)) {
             int refreshIntervalMinutes = Integer.parseInt(refreshInterval);
             if (refreshIntervalMinutes > 0) {
-                final long triggerAtMillis = SystemClock.elapsedRealtime() + 1000;
-                final long interval = TimeUnit.MINUTES.toMillis(refreshIntervalMinutes);
-                mgr.setInexactRepeating(AlarmManager.ELAPSED_REALTIME_WAKEUP,
-                        triggerAtMillis,
-                        interval,
-                        pi);
+                final long delayMillis = mRefreshScheduler.getNextRefreshDelayMillis(
+                        TimeUnit.MINUTES.toMillis(refreshIntervalMinutes));
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                    // Replaces the alarm an older version of the app may have set
+                    mgr.cancel(pi);
+                    mRefreshJobScheduler.schedule(delayMillis);
+                } else {
+                    // Inexact from KitKat, so the system can batch it with other alarms
+                    mgr.set(AlarmManager.ELAPSED_REALTIME_WAKEUP,
+                            SystemClock.elapsedRealtime() + delayMillis,
+                            pi);
+                }
             } else if (refreshIntervalMinutes == -1) {
                 WakefulIntentService.cancelAlarms(context);
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                    mRefreshJobScheduler.cancel();
+                }
             }
         }
     }
@@ -0,0 +1,46 @@
+package com.emmaguy.todayilearned.refresh;
+
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+/**
+ * Reddit marks its listings as uncacheable, so the http cache would never store them. For the read only
+ * endpoints, rewrite the response so it gets stored but is always revalidated with the ETag/Last-Modified
+ * it came with - an unchanged listing then costs us a 304 rather than the whole body.
+ * <p>
+ * Needs to be a network interceptor, so that it's the rewritten response which is written to the cache
+ */
+public class CacheHeadersInterceptor implements Interceptor {
+    private static final String CACHE_CONTROL = "Cache-Control";
+    private static final String PRAGMA = "Pragma";
+    private static final String REVALIDATE = "private, max-age=0";
+
+    @Override public Response intercept(Chain chain) throws IOException {
+        final Request request = chain.request();
+        final Response response = chain.proceed(request);
+
+        if (!isCacheable(request) || response.code() != HttpURLConnection.HTTP_OK) {
+            return response;
+        }
+
+        return response.newBuilder()
+                .removeHeader(PRAGMA)
+                .header(CACHE_CONTROL, REVALIDATE)
+                .build();
+    }
+
+    static boolean isCacheable(Request request) {
+        if (!request.method().equals("GET")) {
+            return false;
+        }
+
+        // Subreddit listings and comment threads live under /r/, unread messages and subscriptions
+        // change as soon as we act on them so are never stored
+        final String path = request.url().getPath();
+        return path.startsWith("/r/") || path.startsWith("/api/morechildren");
+    }
+}
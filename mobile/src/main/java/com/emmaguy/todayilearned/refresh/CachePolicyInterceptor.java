@@ -0,0 +1,46 @@
+package com.emmaguy.todayilearned.refresh;
+
+import com.squareup.okhttp.CacheControl;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets comment threads be served from the cache for a while after they've gone stale, as opening the
+ * same thread again shortly after doesn't need to be up to date. Also records whether each response came
+ * from the cache.
+ * <p>
+ * Needs to be an application interceptor, so it sees requests before they reach the cache
+ */
+public class CachePolicyInterceptor implements Interceptor {
+    private final HttpCacheStats mHttpCacheStats;
+    private final int mCommentsMaxStaleSeconds;
+
+    public CachePolicyInterceptor(HttpCacheStats httpCacheStats, int commentsMaxStaleSeconds) {
+        mHttpCacheStats = httpCacheStats;
+        mCommentsMaxStaleSeconds = commentsMaxStaleSeconds;
+    }
+
+    @Override public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (mCommentsMaxStaleSeconds > 0 && isComments(request)) {
+            request = request.newBuilder()
+                    .cacheControl(new CacheControl.Builder().maxStale(mCommentsMaxStaleSeconds,
+                            TimeUnit.SECONDS).build())
+                    .build();
+        }
+
+        final Response response = chain.proceed(request);
+        if (CacheHeadersInterceptor.isCacheable(request)) {
+            return mHttpCacheStats.record(response);
+        }
+        return response;
+    }
+
+    private boolean isComments(Request request) {
+        return request.method().equals("GET") && request.url().getPath().contains("/comments/");
+    }
+}
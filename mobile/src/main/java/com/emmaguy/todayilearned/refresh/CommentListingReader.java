@@ -0,0 +1,333 @@
+package com.emmaguy.todayilearned.refresh;
+
+import android.support.annotation.NonNull;
+
+import com.emmaguy.todayilearned.common.StringUtils;
+import com.emmaguy.todayilearned.sharedlib.Comment;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a comment thread listing straight from the response stream, building the {@link Comment}
+ * tree as it goes. The tree is capped at a number of root comments, a max depth and a max total
+ * number of comments - anything beyond those is only read for its id, and is replaced by a 'more'
+ * placeholder at the end of its listing so the watch can request it later. Any 'more' nodes the
+ * server sent are kept as placeholders in the same way
+ */
+class CommentListingReader {
+    private static final String KIND_MORE = "more";
+
+    private final int mMaxRootComments;
+    private final int mMaxDepth;
+    private final int mMaxComments;
+
+    private String mLinkFullname;
+    private int mCommentCount;
+
+    CommentListingReader(int maxRootComments, int maxDepth, int maxComments) {
+        mMaxRootComments = maxRootComments;
+        mMaxDepth = maxDepth;
+        mMaxComments = maxComments;
+    }
+
+    @NonNull public List<Comment> read(JsonReader reader, String linkFullname) throws IOException {
+        mLinkFullname = linkFullname;
+        mCommentCount = 0;
+
+        final List<Comment> comments = readListing(reader, 1);
+        return comments == null ? new ArrayList<>() : comments;
+    }
+
+    private List<Comment> readListing(JsonReader reader, int level) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            // Comments without replies have an empty string instead of a listing
+            reader.skipValue();
+            return null;
+        }
+
+        final List<Comment> comments = new ArrayList<>();
+        final List<String> moreChildIds = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("data") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                readListingData(reader, level, comments, moreChildIds);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        addMorePlaceholder(comments, moreChildIds, level);
+        return comments;
+    }
+
+    private void readListingData(JsonReader reader, int level, List<Comment> comments,
+                                 List<String> moreChildIds) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("children") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (isOverBudget(level, comments)) {
+                        readChild(reader, level, moreChildIds, true);
+                    } else {
+                        final Comment comment = readChild(reader, level, moreChildIds, false);
+                        if (comment != null) {
+                            comments.add(comment);
+                        }
+                    }
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private boolean isOverBudget(int level, List<Comment> comments) {
+        return mCommentCount >= mMaxComments || (level == 1 && comments.size() >= mMaxRootComments);
+    }
+
+    /**
+     * Reads a child of a listing - either a comment, or a 'more' node whose ids get added to
+     * moreChildIds. If idOnly is set, a comment isn't built and only its id is kept.
+     * <p>
+     * Reddit sends the kind before the data, so we can usually read the data straight off the stream. If
+     * the data comes first, it's held as a tree until we know what it is
+     */
+    private Comment readChild(JsonReader reader, int level, List<String> moreChildIds,
+                              boolean idOnly) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        String kind = null;
+        JsonElement data = null;
+        Comment comment = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (name.equals("kind")) {
+                kind = nextString(reader);
+            } else if (name.equals("data") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                if (kind == null) {
+                    data = new JsonParser().parse(reader);
+                } else {
+                    comment = readChildData(reader, kind, level, moreChildIds, idOnly);
+                }
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (data != null) {
+            comment = readChildData(new JsonReader(new StringReader(data.toString())), kind, level,
+                    moreChildIds, idOnly);
+        }
+        return comment;
+    }
+
+    private Comment readChildData(JsonReader reader, String kind, int level, List<String> moreChildIds,
+                                  boolean idOnly) throws IOException {
+        if (KIND_MORE.equals(kind)) {
+            readMoreChildIds(reader, moreChildIds);
+            return null;
+        } else if (idOnly) {
+            readId(reader, moreChildIds);
+            return null;
+        }
+        return readComment(reader, level);
+    }
+
+    private Comment readComment(JsonReader reader, int level) throws IOException {
+        String title = null;
+        String body = "";
+        String author = null;
+        boolean scoreHidden = false;
+        int score = 0;
+        int gilded = 0;
+        List<Comment> replies = null;
+
+        // Count this comment up front, so the budget also covers its replies
+        mCommentCount++;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "title":
+                    title = nextString(reader);
+                    break;
+                case "body":
+                    body = nextString(reader);
+                    break;
+                case "author":
+                    author = nextString(reader);
+                    break;
+                case "score_hidden":
+                    scoreHidden = nextBoolean(reader);
+                    break;
+                case "score":
+                    score = nextInt(reader);
+                    break;
+                case "gilded":
+                    gilded = nextInt(reader);
+                    break;
+                case "replies":
+                    if (level < mMaxDepth) {
+                        replies = readListing(reader, level + 1);
+                    } else {
+                        replies = readDeepReplies(reader, level + 1);
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        title = StringUtils.isEmpty(title) ? "" : title.trim();
+        final String description = StringUtils.isEmpty(body) ? "" : body.trim();
+        if (StringUtils.isEmpty(title) && StringUtils.isEmpty(description)) {
+            mCommentCount--;
+            return null;
+        }
+
+        return new Comment.Builder().setComments(replies)
+                .setAuthor(author)
+                .setPostContents(getPostContents(title, description))
+                .setIsScoreHidden(scoreHidden)
+                .setScore(score)
+                .setGilded(gilded)
+                .setReplyLevel(level)
+                .build();
+    }
+
+    // Past the max depth we only keep the ids of the direct replies, as a single placeholder
+    private List<Comment> readDeepReplies(JsonReader reader, int level) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        final List<String> moreChildIds = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("data") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (reader.nextName().equals("children") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            readChild(reader, level, moreChildIds, true);
+                        }
+                        reader.endArray();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        final List<Comment> replies = new ArrayList<>();
+        addMorePlaceholder(replies, moreChildIds, level);
+        return replies.isEmpty() ? null : replies;
+    }
+
+    private void readId(JsonReader reader, List<String> ids) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("id")) {
+                final String id = nextString(reader);
+                if (!StringUtils.isEmpty(id)) {
+                    ids.add(id);
+                }
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void readMoreChildIds(JsonReader reader, List<String> ids) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("children") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    final String id = nextString(reader);
+                    if (!StringUtils.isEmpty(id)) {
+                        ids.add(id);
+                    }
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void addMorePlaceholder(List<Comment> comments, List<String> moreChildIds, int level) {
+        if (moreChildIds.isEmpty() || StringUtils.isEmpty(mLinkFullname)) {
+            return;
+        }
+
+        comments.add(new Comment.Builder().setMoreChildIds(moreChildIds)
+                .setLinkFullname(mLinkFullname)
+                .setReplyLevel(level)
+                .build());
+    }
+
+    private String nextString(JsonReader reader) throws IOException {
+        final JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    private boolean nextBoolean(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.BOOLEAN) {
+            return reader.nextBoolean();
+        }
+        reader.skipValue();
+        return false;
+    }
+
+    private int nextInt(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NUMBER) {
+            return (int) reader.nextDouble();
+        }
+        reader.skipValue();
+        return 0;
+    }
+
+    private String getPostContents(String title, String description) {
+        if (StringUtils.isEmpty(title)) {
+            return description;
+        }
+
+        if (StringUtils.isEmpty(description)) {
+            return title;
+        }
+
+        return title + "\n\n" + description;
+    }
+}
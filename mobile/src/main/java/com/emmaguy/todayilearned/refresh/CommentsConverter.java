@@ -1,14 +1,14 @@
 package com.emmaguy.todayilearned.refresh;
 
 import android.content.res.Resources;
-import android.support.annotation.NonNull;
 
-import com.emmaguy.todayilearned.common.StringUtils;
 import com.emmaguy.todayilearned.sharedlib.Comment;
 import com.emmaguy.todayilearned.storage.UserStorage;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
@@ -16,86 +16,143 @@ import java.util.List;
 import retrofit.converter.ConversionException;
 import retrofit.converter.Converter;
 import retrofit.converter.GsonConverter;
+import retrofit.mime.MimeUtil;
 import retrofit.mime.TypedInput;
 import retrofit.mime.TypedOutput;
 
 public class CommentsConverter implements Converter {
+    private static final String DEFAULT_CHARSET = "UTF-8";
+
+    // Kept small as the whole tree has to fit in a single DataItem, the rest is loaded on demand
+    static final int DEFAULT_MAX_ROOT_COMMENTS = 25;
+    static final int DEFAULT_MAX_DEPTH = 5;
+    static final int DEFAULT_MAX_COMMENTS = 200;
+
     private final GsonConverter mOriginalConverter;
     private final UserStorage mUserStorage;
     private final Resources mResources;
-    private final Gson mGson;
 
-    public CommentsConverter(Gson gson, GsonConverter gsonConverter, Resources resources,
+    private final int mMaxRootComments;
+    private final int mMaxDepth;
+    private final int mMaxComments;
+
+    public CommentsConverter(GsonConverter gsonConverter, Resources resources,
                              UserStorage userStorage) {
-        mGson = gson;
+        this(gsonConverter, resources, userStorage, DEFAULT_MAX_ROOT_COMMENTS, DEFAULT_MAX_DEPTH,
+                DEFAULT_MAX_COMMENTS);
+    }
+
+    CommentsConverter(GsonConverter gsonConverter, Resources resources, UserStorage userStorage,
+                      int maxRootComments, int maxDepth, int maxComments) {
         mOriginalConverter = gsonConverter;
         mResources = resources;
         mUserStorage = userStorage;
+        mMaxRootComments = maxRootComments;
+        mMaxDepth = maxDepth;
+        mMaxComments = maxComments;
     }
 
     @Override public Object fromBody(TypedInput body, Type type) throws ConversionException {
-        List<ListingResponse> responses = (List<ListingResponse>) mOriginalConverter.fromBody(body,
-                new TypeToken<List<ListingResponse>>() {
-                }.getType());
-
-        // First child is always the post itself, second is all the comments
-        final ListingResponse listingResponse = responses.get(1);
-        return convert(listingResponse, 0);
-    }
-
-    @NonNull private List<Comment> convert(ListingResponse listingResponse, int level) {
-        level++;
-
-        final List<Comment> comments = new ArrayList<>();
-        if (listingResponse == null || listingResponse.getData() == null ||
-                listingResponse.getData().getChildren() == null || listingResponse.getData()
-                .getChildren()
-                .isEmpty()) {
-            return comments;
+        String charset = DEFAULT_CHARSET;
+        if (body.mimeType() != null) {
+            charset = MimeUtil.parseCharset(body.mimeType(), charset);
         }
 
-        for (PostResponse response : listingResponse.getData().getChildren()) {
-            final PostResponse.Data data = response.getData();
-            if (data.getName().equals("more")) {
-                continue;
+        JsonReader reader = null;
+        try {
+            reader = new JsonReader(new InputStreamReader(body.in(), charset));
+            return readComments(reader);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new ConversionException(e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ignored) {
+                }
             }
+        }
+    }
 
-            final boolean hasReplies = data.getReplies() != null && data.getReplies()
-                    .isJsonObject();
-            final List<Comment> childComments = hasReplies ? convert(mGson.fromJson(data.getReplies(),
-                    ListingResponse.class), level) : null;
-
-            final String title = StringUtils.isEmpty(data.getTitle()) ? "" : data.getTitle().trim();
-            final String description = StringUtils.isEmpty(data.getBody()) ? "" : data.getBody()
-                    .trim();
+    private List<Comment> readComments(JsonReader reader) throws IOException {
+        List<Comment> comments = new ArrayList<>();
 
-            if (StringUtils.isEmpty(title) && StringUtils.isEmpty(description)) {
-                continue;
+        // First child is always the post itself, second is all the comments
+        reader.beginArray();
+        String linkFullname = null;
+        int index = 0;
+        while (reader.hasNext()) {
+            if (index == 0) {
+                linkFullname = readLinkFullname(reader);
+            } else if (index == 1) {
+                comments = new CommentListingReader(mMaxRootComments, mMaxDepth, mMaxComments)
+                        .read(reader, linkFullname);
+            } else {
+                reader.skipValue();
             }
-
-            comments.add(new Comment.Builder().setComments(childComments)
-                    .setAuthor(data.getAuthor())
-                    .setPostContents(getPostContents(title, description))
-                    .setIsScoreHidden(data.isScoreHidden())
-                    .setScore(data.getScore())
-                    .setGilded(data.getGilded())
-                    .setReplyLevel(level)
-                    .build());
+            index++;
         }
+        reader.endArray();
 
         return comments;
     }
 
-    private String getPostContents(String title, String description) {
-        if (StringUtils.isEmpty(title)) {
-            return description;
+    // The post listing only has the one child, we need its fullname to load any more comments
+    private String readLinkFullname(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
         }
 
-        if (StringUtils.isEmpty(description)) {
-            return title;
+        String linkFullname = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("data") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (reader.nextName().equals("children") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            if (linkFullname == null && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                                linkFullname = readChildName(reader);
+                            } else {
+                                reader.skipValue();
+                            }
+                        }
+                        reader.endArray();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
         }
+        reader.endObject();
+        return linkFullname;
+    }
 
-        return title + "\n\n" + description;
+    private String readChildName(JsonReader reader) throws IOException {
+        String name = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("data") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (reader.nextName().equals("name") && reader.peek() == JsonToken.STRING) {
+                        name = reader.nextString();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return name;
     }
 
     @Override public TypedOutput toBody(Object object) {
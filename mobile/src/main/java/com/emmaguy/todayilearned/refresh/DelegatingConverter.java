@@ -17,18 +17,19 @@ import retrofit.mime.TypedOutput;
  */
 public class DelegatingConverter implements Converter {
     private final SubscriptionConverter mSubscriptionConverter;
-    private final MarkAsReadConverter mMarkAsReadConverter;
+    private final MoreCommentsConverter mMoreCommentsConverter;
     private final CommentsConverter mCommentsConverter;
     private final TokenConverter mTokenConverter;
     private final PostConverter mPostConverter;
     private final Converter mOriginalConverter;
 
     public DelegatingConverter(Converter originalConverter, TokenConverter tokenConverter,
-                               PostConverter postConverter, MarkAsReadConverter markAsReadConverter,
+                               PostConverter postConverter,
                                SubscriptionConverter subscriptionConverter,
-                               CommentsConverter commentsConverter) {
+                               CommentsConverter commentsConverter,
+                               MoreCommentsConverter moreCommentsConverter) {
+        mMoreCommentsConverter = moreCommentsConverter;
         mSubscriptionConverter = subscriptionConverter;
-        mMarkAsReadConverter = markAsReadConverter;
         mOriginalConverter = originalConverter;
         mCommentsConverter = commentsConverter;
         mTokenConverter = tokenConverter;
@@ -38,8 +39,8 @@ public class DelegatingConverter implements Converter {
     @Override public Object fromBody(TypedInput body, Type type) throws ConversionException {
         if (type == Token.class) {
             return mTokenConverter.fromBody(body, type);
-        } else if (type == MarkAllRead.class) {
-            return mMarkAsReadConverter.fromBody(body, type);
+        } else if (type == MoreComments.class) {
+            return mMoreCommentsConverter.fromBody(body, type);
         } else if (type == SubscriptionResponse.class) {
             return mSubscriptionConverter.fromBody(body, type);
         } else if (isListOfDesiredType(type, Post.class)) {
@@ -0,0 +1,48 @@
+package com.emmaguy.todayilearned.refresh;
+
+import android.support.annotation.NonNull;
+
+import com.emmaguy.todayilearned.Analytics;
+import com.emmaguy.todayilearned.common.Logger;
+import com.emmaguy.todayilearned.sharedlib.Constants;
+import com.emmaguy.todayilearned.storage.PendingAction;
+
+/**
+ * Reports an action the {@link ActionOutbox} has given up on. The watch was told the action would be sent
+ * when it was queued, so it's told again that it failed after all
+ */
+public class DroppedActionNotifier {
+    private final WearableConnection mWearableConnection;
+    private final Analytics mAnalytics;
+
+    public DroppedActionNotifier(@NonNull WearableConnection wearableConnection,
+                                 @NonNull Analytics analytics) {
+        mWearableConnection = wearableConnection;
+        mAnalytics = analytics;
+    }
+
+    public void onDropped(@NonNull PendingAction action) {
+        final String path;
+        switch (action.getType()) {
+            case PendingAction.TYPE_VOTE:
+                mAnalytics.sendEvent(WearListenerService.getVoteType(action.getVoteDirection()),
+                        Logger.LOG_EVENT_FAILURE);
+                path = Constants.PATH_VOTE_RESULT_FAILED;
+                break;
+            case PendingAction.TYPE_REPLY_TO_POST:
+                mAnalytics.sendEvent(Logger.LOG_EVENT_REPLY_TO_POST, Logger.LOG_EVENT_FAILURE);
+                path = Constants.PATH_POST_REPLY_RESULT_FAILURE;
+                break;
+            case PendingAction.TYPE_REPLY_TO_DIRECT_MESSAGE:
+                mAnalytics.sendEvent(Logger.LOG_EVENT_SEND_DM, Logger.LOG_EVENT_FAILURE);
+                path = Constants.PATH_POST_REPLY_RESULT_FAILURE;
+                break;
+            default:
+                return;
+        }
+
+        // The message is still sent once we release, within the connection's idle timeout
+        WearListenerService.sendToPath(mWearableConnection.acquire(), path);
+        mWearableConnection.release();
+    }
+}
@@ -0,0 +1,142 @@
+package com.emmaguy.todayilearned.refresh;
+
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * Counts how many of our requests were answered from the http cache, so we can see how much
+ * bandwidth it saves us each refresh.
+ * <p>
+ * The bytes are counted as they're read from a cached body. OkHttp removes the Content-Length when it
+ * transparently unzips a response, so the headers can't tell us how big it was
+ */
+public class HttpCacheStats {
+    private final AtomicInteger mHits = new AtomicInteger();
+    private final AtomicInteger mConditionalHits = new AtomicInteger();
+    private final AtomicInteger mMisses = new AtomicInteger();
+    private final AtomicLong mBytesFromCache = new AtomicLong();
+
+    /**
+     * @return the response, with its body counted as it's read if it came from the cache
+     */
+    Response record(Response response) {
+        final Response cacheResponse = response.cacheResponse();
+        final Response networkResponse = response.networkResponse();
+
+        if (cacheResponse != null && networkResponse == null) {
+            mHits.incrementAndGet();
+            return countBody(response);
+        } else if (cacheResponse != null && networkResponse.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            // Server told us our copy is still valid, so we only paid for the headers
+            mConditionalHits.incrementAndGet();
+            return countBody(response);
+        }
+
+        mMisses.incrementAndGet();
+        return response;
+    }
+
+    /**
+     * @return the counts since the last call, resetting them all back to zero
+     */
+    public Snapshot getAndReset() {
+        return new Snapshot(mHits.getAndSet(0),
+                mConditionalHits.getAndSet(0),
+                mMisses.getAndSet(0),
+                mBytesFromCache.getAndSet(0));
+    }
+
+    private Response countBody(Response response) {
+        final ResponseBody body = response.body();
+        if (body == null) {
+            return response;
+        }
+        return response.newBuilder().body(new CountingResponseBody(body)).build();
+    }
+
+    private class CountingResponseBody extends ResponseBody {
+        private final ResponseBody mBody;
+        private BufferedSource mSource;
+
+        CountingResponseBody(ResponseBody body) {
+            mBody = body;
+        }
+
+        @Override public MediaType contentType() {
+            return mBody.contentType();
+        }
+
+        @Override public long contentLength() throws IOException {
+            return mBody.contentLength();
+        }
+
+        @Override public BufferedSource source() throws IOException {
+            if (mSource == null) {
+                mSource = Okio.buffer(new ForwardingSource(mBody.source()) {
+                    @Override public long read(Buffer sink, long byteCount) throws IOException {
+                        final long read = super.read(sink, byteCount);
+                        if (read > 0) {
+                            mBytesFromCache.addAndGet(read);
+                        }
+                        return read;
+                    }
+                });
+            }
+            return mSource;
+        }
+    }
+
+    public static class Snapshot {
+        private final int mHits;
+        private final int mConditionalHits;
+        private final int mMisses;
+        private final long mBytesFromCache;
+
+        Snapshot(int hits, int conditionalHits, int misses, long bytesFromCache) {
+            mHits = hits;
+            mConditionalHits = conditionalHits;
+            mMisses = misses;
+            mBytesFromCache = bytesFromCache;
+        }
+
+        public int getHits() {
+            return mHits;
+        }
+
+        public int getConditionalHits() {
+            return mConditionalHits;
+        }
+
+        public int getMisses() {
+            return mMisses;
+        }
+
+        /**
+         * @return bytes of cached bodies we read, after unzipping, so roughly what we'd otherwise have
+         * downloaded before compression
+         */
+        public long getBytesFromCache() {
+            return mBytesFromCache;
+        }
+
+        public int getRequests() {
+            return mHits + mConditionalHits + mMisses;
+        }
+
+        @Override public String toString() {
+            return "hits: " + mHits + ", conditional hits: " + mConditionalHits + ", misses: " + mMisses +
+                    ", bytes from cache: " + mBytesFromCache;
+        }
+    }
+}
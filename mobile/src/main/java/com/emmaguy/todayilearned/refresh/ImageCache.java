@@ -0,0 +1,298 @@
+package com.emmaguy.todayilearned.refresh;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.emmaguy.todayilearned.common.Clock;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import timber.log.Timber;
+
+/**
+ * Bounded disk cache of watch-ready image bytes, i.e. after they've been downsampled and encoded, keyed by
+ * image url and the size they were downsampled to.
+ * <p>
+ * Entries are evicted least recently used first once the total size goes over the limit, and are dropped
+ * once they're older than the max age regardless. Recency isn't persisted, so after a restart entries are
+ * ordered by when they were written
+ */
+public class ImageCache {
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File mDirectory;
+    private final long mMaxBytes;
+    private final long mMaxAgeMillis;
+    private final Clock mClock;
+
+    private final LinkedHashMap<String, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean mInitialised;
+    private long mSize;
+
+    private int mHits;
+    private int mMisses;
+    private int mEvictions;
+
+    public ImageCache(@NonNull File directory, long maxBytes, long maxAgeMillis) {
+        this(directory, maxBytes, maxAgeMillis, Clock.SYSTEM);
+    }
+
+    ImageCache(@NonNull File directory, long maxBytes, long maxAgeMillis, @NonNull Clock clock) {
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+        mMaxAgeMillis = maxAgeMillis;
+        mClock = clock;
+    }
+
+    @Nullable public synchronized byte[] get(@NonNull String url, int targetSize) {
+        initialise();
+
+        final String key = getKey(url, targetSize);
+        final Entry entry = mEntries.get(key);
+        if (entry == null) {
+            mMisses++;
+            return null;
+        }
+
+        if (isExpired(entry)) {
+            remove(key);
+            mEvictions++;
+            mMisses++;
+            return null;
+        }
+
+        try {
+            final byte[] bytes = read(getFile(key), entry.mLength);
+            mHits++;
+            return bytes;
+        } catch (IOException e) {
+            Timber.d(e, "Failed to read cached image");
+            remove(key);
+            mMisses++;
+            return null;
+        }
+    }
+
+    public synchronized void put(@NonNull String url, int targetSize, @NonNull byte[] bytes) {
+        if (bytes.length > mMaxBytes) {
+            return;
+        }
+        initialise();
+
+        final String key = getKey(url, targetSize);
+        final File file = getFile(key);
+        final File tempFile = new File(mDirectory, key + TEMP_SUFFIX);
+        try {
+            write(tempFile, bytes);
+            // Only replace the existing entry once the new one is complete
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Failed to rename " + tempFile);
+            }
+        } catch (IOException e) {
+            Timber.d(e, "Failed to cache image");
+            tempFile.delete();
+            return;
+        }
+
+        final long now = mClock.currentTimeMillis();
+        file.setLastModified(now);
+
+        final Entry previous = mEntries.put(key, new Entry(bytes.length, now));
+        if (previous != null) {
+            mSize -= previous.mLength;
+        }
+        mSize += bytes.length;
+
+        trim();
+    }
+
+    /**
+     * @return the counts since the last call, resetting them all back to zero
+     */
+    public synchronized Stats getAndResetStats() {
+        final Stats stats = new Stats(mHits, mMisses, mEvictions, mSize);
+        mHits = 0;
+        mMisses = 0;
+        mEvictions = 0;
+        return stats;
+    }
+
+    // Lazily, so that scanning the directory happens on whichever background thread first uses the cache
+    private void initialise() {
+        if (mInitialised) {
+            return;
+        }
+        mInitialised = true;
+
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            Timber.d("Failed to create image cache directory %s", mDirectory);
+            return;
+        }
+
+        final File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        Arrays.sort(files, (first, second) -> {
+            final long difference = first.lastModified() - second.lastModified();
+            return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+        });
+        for (File file : files) {
+            if (file.getName().endsWith(TEMP_SUFFIX)) {
+                // Left behind by a write that didn't finish
+                file.delete();
+            } else {
+                mEntries.put(file.getName(), new Entry(file.length(), file.lastModified()));
+                mSize += file.length();
+            }
+        }
+
+        trim();
+    }
+
+    private void trim() {
+        final Iterator<Map.Entry<String, Entry>> iterator = mEntries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, Entry> eldest = iterator.next();
+            if (mSize <= mMaxBytes && !isExpired(eldest.getValue())) {
+                continue;
+            }
+
+            iterator.remove();
+            mSize -= eldest.getValue().mLength;
+            getFile(eldest.getKey()).delete();
+            mEvictions++;
+        }
+    }
+
+    private void remove(String key) {
+        final Entry entry = mEntries.remove(key);
+        if (entry != null) {
+            mSize -= entry.mLength;
+        }
+        getFile(key).delete();
+    }
+
+    private boolean isExpired(Entry entry) {
+        return mClock.currentTimeMillis() - entry.mWrittenMillis > mMaxAgeMillis;
+    }
+
+    private File getFile(String key) {
+        return new File(mDirectory, key);
+    }
+
+    private byte[] read(File file, long length) throws IOException {
+        final byte[] bytes = new byte[(int) length];
+        final InputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < bytes.length) {
+                final int read = in.read(bytes, offset, bytes.length - offset);
+                if (read == -1) {
+                    throw new IOException("Unexpected end of " + file);
+                }
+                offset += read;
+            }
+        } finally {
+            close(in);
+        }
+        return bytes;
+    }
+
+    private void write(File file, byte[] bytes) throws IOException {
+        final OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            close(out);
+        }
+    }
+
+    private void close(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    // Urls can be long and contain characters that aren't valid in file names, so use a hash of them
+    private static String getKey(String url, int targetSize) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            final byte[] hash = digest.digest((url + "@" + targetSize).getBytes("UTF-8"));
+
+            final StringBuilder key = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                key.append(Character.forDigit((b >> 4) & 0xf, 16));
+                key.append(Character.forDigit(b & 0xf, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Entry {
+        private final long mLength;
+        private final long mWrittenMillis;
+
+        Entry(long length, long writtenMillis) {
+            mLength = length;
+            mWrittenMillis = writtenMillis;
+        }
+    }
+
+    public static class Stats {
+        private final int mHits;
+        private final int mMisses;
+        private final int mEvictions;
+        private final long mSizeBytes;
+
+        Stats(int hits, int misses, int evictions, long sizeBytes) {
+            mHits = hits;
+            mMisses = misses;
+            mEvictions = evictions;
+            mSizeBytes = sizeBytes;
+        }
+
+        public int getHits() {
+            return mHits;
+        }
+
+        public int getMisses() {
+            return mMisses;
+        }
+
+        public int getEvictions() {
+            return mEvictions;
+        }
+
+        public long getSizeBytes() {
+            return mSizeBytes;
+        }
+
+        public float getHitRatio() {
+            final int requests = mHits + mMisses;
+            return requests == 0 ? 0f : (float) mHits / requests;
+        }
+
+        @Override public String toString() {
+            return "hits: " + mHits + ", misses: " + mMisses + ", evictions: " + mEvictions + ", size: " +
+                    mSizeBytes;
+        }
+    }
+}
@@ -3,7 +3,6 @@ package com.emmaguy.todayilearned.refresh;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 
-import java.io.ByteArrayOutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 
@@ -15,13 +14,29 @@ import timber.log.Timber;
 public class ImageDownloader {
     private static final int WATCH_SCREEN_SIZE = 400;
     private static final int MARKER = 65536;
+    private static final int TIMEOUT_MILLIS = 10000;
+
+    private final ImageEncoder mImageEncoder;
+    private final ImageCache mImageCache;
+
+    public ImageDownloader(ImageEncoder imageEncoder, ImageCache imageCache) {
+        mImageEncoder = imageEncoder;
+        mImageCache = imageCache;
+    }
 
     public byte[] downloadImage(String imageUrl) {
-        byte[] bytes = null;
+        byte[] bytes = mImageCache.get(imageUrl, WATCH_SCREEN_SIZE);
+        if (bytes != null) {
+            return bytes;
+        }
+
         try {
             URL url = new URL(imageUrl);
             HttpURLConnection connection = (HttpURLConnection) url.openConnection();
             connection.setDoInput(true);
+            // Stop a stalled download from tying up a thread after the retriever's given up on it
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
             connection.connect();
 
             MarkableInputStream markStream = new MarkableInputStream(connection.getInputStream());
@@ -38,12 +53,11 @@ public class ImageDownloader {
 
             markStream.reset(mark);
 
-            final ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
             Bitmap bitmap = BitmapFactory.decodeStream(markStream, null, options);
-            bitmap.compress(Bitmap.CompressFormat.PNG, 100, byteStream);
-
-            bytes = byteStream.toByteArray();
+            bytes = mImageEncoder.encode(bitmap);
             bitmap.recycle();
+
+            mImageCache.put(imageUrl, WATCH_SCREEN_SIZE, bytes);
         } catch (Exception e) {
             Timber.d(e, "Failed to download image");
         }
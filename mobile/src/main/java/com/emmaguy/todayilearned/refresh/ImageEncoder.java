@@ -0,0 +1,50 @@
+package com.emmaguy.todayilearned.refresh;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Encodes images to send to the watch, as small as we can get them whilst still looking ok on its screen.
+ * <p>
+ * Photos are encoded as JPEG and anything with transparency as WebP, starting at the target quality and
+ * stepping down until the result fits in the byte budget. If even the lowest quality doesn't fit, the
+ * smallest attempt is used
+ */
+public class ImageEncoder {
+    private static final int QUALITY_STEP = 10;
+
+    private final int mTargetQuality;
+    private final int mMinQuality;
+    private final int mMaxBytes;
+
+    public ImageEncoder(int targetQuality, int minQuality, int maxBytes) {
+        mTargetQuality = targetQuality;
+        mMinQuality = minQuality;
+        mMaxBytes = maxBytes;
+    }
+
+    @NonNull public byte[] encode(@NonNull Bitmap bitmap) {
+        final Bitmap.CompressFormat format = getFormat(bitmap);
+        final ByteArrayOutputStream byteStream = new ByteArrayOutputStream(mMaxBytes);
+
+        byte[] bytes = compress(bitmap, format, mTargetQuality, byteStream);
+        for (int quality = mTargetQuality - QUALITY_STEP; bytes.length > mMaxBytes && quality >= mMinQuality; quality -= QUALITY_STEP) {
+            bytes = compress(bitmap, format, quality, byteStream);
+        }
+        return bytes;
+    }
+
+    // JPEG has no alpha channel, so transparent areas would come out black
+    private Bitmap.CompressFormat getFormat(Bitmap bitmap) {
+        return bitmap.hasAlpha() ? Bitmap.CompressFormat.WEBP : Bitmap.CompressFormat.JPEG;
+    }
+
+    private byte[] compress(Bitmap bitmap, Bitmap.CompressFormat format, int quality,
+                            ByteArrayOutputStream byteStream) {
+        byteStream.reset();
+        bitmap.compress(format, quality, byteStream);
+        return byteStream.toByteArray();
+    }
+}
@@ -0,0 +1,186 @@
+package com.emmaguy.todayilearned.refresh;
+
+import android.os.Process;
+import android.support.annotation.NonNull;
+
+import com.emmaguy.todayilearned.common.Clock;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed pool of threads for one kind of work, so work of one priority never has to queue behind
+ * another's. Actions from the watch run in the interactive lane, while a refresh's listings and image
+ * downloads share the bulk lane, whose threads run at background priority.
+ * <p>
+ * A lane's threads are reused, and its queue can be bounded so a burst of work - like votes mashed across
+ * a stack of notifications - is rejected rather than piling up. A request made on a full lane errors
+ * with a {@link RejectedExecutionException}.
+ * <p>
+ * Records how long each task waited in the queue before it started, how many threads the lane had to
+ * create and how many tasks it turned away, so we can see if a lane is the wrong size
+ */
+public class LaneExecutor implements Executor {
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final String mName;
+    private final Clock mClock;
+    private final ThreadPoolExecutor mExecutor;
+    private final LaneThreadFactory mThreadFactory;
+
+    // All guarded by this
+    private int mRejected;
+    private int mTasks;
+    private long mTotalWaitMillis;
+    private long mMaxWaitMillis;
+
+    /**
+     * @param queueCapacity  how many tasks can wait for a thread before more are rejected
+     * @param threadPriority one of the {@link Process} thread priorities, e.g.
+     *                       {@link Process#THREAD_PRIORITY_BACKGROUND}
+     */
+    public LaneExecutor(@NonNull String name, int threads, int queueCapacity, int threadPriority) {
+        this(name, threads, queueCapacity, threadPriority, Clock.SYSTEM);
+    }
+
+    LaneExecutor(@NonNull String name, int threads, int queueCapacity, int threadPriority,
+                 @NonNull Clock clock) {
+        mName = name;
+        mClock = clock;
+        mThreadFactory = new LaneThreadFactory(name, threadPriority);
+        mExecutor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), mThreadFactory, new CountingAbortPolicy());
+        // Idle lanes shouldn't hold on to their threads between refreshes
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override public void execute(@NonNull Runnable command) {
+        final long enqueuedAt = mClock.elapsedRealtime();
+        mExecutor.execute(() -> {
+            recordWait(mClock.elapsedRealtime() - enqueuedAt);
+            command.run();
+        });
+    }
+
+    @NonNull public String getName() {
+        return mName;
+    }
+
+    /**
+     * @return the stats since the last call, resetting them back to zero
+     */
+    @NonNull public synchronized Stats getAndResetStats() {
+        final Stats stats = new Stats(mName, mTasks, mTotalWaitMillis, mMaxWaitMillis,
+                mExecutor.getQueue().size(), mThreadFactory.getAndResetCreated(), mRejected);
+        mRejected = 0;
+        mTasks = 0;
+        mTotalWaitMillis = 0;
+        mMaxWaitMillis = 0;
+        return stats;
+    }
+
+    private synchronized void recordWait(long waitMillis) {
+        mTasks++;
+        mTotalWaitMillis += waitMillis;
+        mMaxWaitMillis = Math.max(mMaxWaitMillis, waitMillis);
+    }
+
+    private synchronized void recordRejected() {
+        mRejected++;
+    }
+
+    private class CountingAbortPolicy implements RejectedExecutionHandler {
+        @Override public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+            recordRejected();
+            throw new RejectedExecutionException("Lane " + mName + " is full");
+        }
+    }
+
+    private static class LaneThreadFactory implements ThreadFactory {
+        private final AtomicInteger mCount = new AtomicInteger();
+        private final AtomicInteger mCreated = new AtomicInteger();
+        private final String mName;
+        private final int mThreadPriority;
+
+        LaneThreadFactory(String name, int threadPriority) {
+            mName = name;
+            mThreadPriority = threadPriority;
+        }
+
+        int getAndResetCreated() {
+            return mCreated.getAndSet(0);
+        }
+
+        @Override public Thread newThread(@NonNull Runnable runnable) {
+            mCreated.incrementAndGet();
+            return new Thread(() -> {
+                Process.setThreadPriority(mThreadPriority);
+                runnable.run();
+            }, mName + "-" + mCount.incrementAndGet());
+        }
+    }
+
+    public static class Stats {
+        private final String mName;
+        private final int mTasks;
+        private final long mTotalWaitMillis;
+        private final long mMaxWaitMillis;
+        private final int mQueued;
+        private final int mThreadsCreated;
+        private final int mRejected;
+
+        Stats(String name, int tasks, long totalWaitMillis, long maxWaitMillis, int queued,
+              int threadsCreated, int rejected) {
+            mName = name;
+            mTasks = tasks;
+            mTotalWaitMillis = totalWaitMillis;
+            mMaxWaitMillis = maxWaitMillis;
+            mQueued = queued;
+            mThreadsCreated = threadsCreated;
+            mRejected = rejected;
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        public int getTasks() {
+            return mTasks;
+        }
+
+        public long getMaxWaitMillis() {
+            return mMaxWaitMillis;
+        }
+
+        public long getAverageWaitMillis() {
+            return mTasks == 0 ? 0 : mTotalWaitMillis / mTasks;
+        }
+
+        /**
+         * @return tasks still waiting for a thread when the stats were taken
+         */
+        public int getQueued() {
+            return mQueued;
+        }
+
+        public int getThreadsCreated() {
+            return mThreadsCreated;
+        }
+
+        public int getRejected() {
+            return mRejected;
+        }
+
+        @Override public String toString() {
+            return mName + ": tasks: " + mTasks + ", average wait: " + getAverageWaitMillis() +
+                    " ms, max wait: " + mMaxWaitMillis + " ms, queued: " + mQueued + ", threads created: " +
+                    mThreadsCreated + ", rejected: " + mRejected;
+        }
+    }
+}
@@ -5,71 +5,343 @@ import android.support.annotation.NonNull;
 import com.emmaguy.todayilearned.common.StringUtils;
 import com.emmaguy.todayilearned.sharedlib.Constants;
 import com.emmaguy.todayilearned.sharedlib.Post;
+import com.emmaguy.todayilearned.storage.ListingCursorStorage;
+import com.emmaguy.todayilearned.storage.SeenPostStorage;
 import com.emmaguy.todayilearned.storage.UserStorage;
 import com.google.android.gms.wearable.Asset;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import rx.Observable;
+import rx.Scheduler;
 import timber.log.Timber;
 
 /**
- * Retrieves the latest n posts from the user's preferred subreddit(s)
+ * Retrieves the latest n posts from the user's preferred subreddit(s) that we haven't already sent,
+ * downloading their images a few at a time in parallel.
+ * <p>
+ * With more than one subreddit, each one's listing is requested separately, a few at a time, then
+ * merged by the {@link ListingMerger} so every subreddit gets a fair share of the n posts. A busy
+ * subreddit no longer crowds out the rest, and a refresh takes as long as the slowest subreddit rather
+ * than one big response. Each listing only asks for its share of the n, plus a few in case some of the
+ * others are quiet, rather than n posts from every subreddit that the merge would mostly throw away.
+ * <p>
+ * When sorting by new, a listing is in the order posts were made, so we remember its newest post and
+ * only ask for posts before it. On a quiet subreddit that's a near empty response rather than a full page
  */
 public class LatestPostsRetriever {
+    private static final String SORT_NEW = "new";
+
+    // Asked for on top of each listing's share, to fill in for subreddits with fewer new posts
+    private static final int LISTING_LIMIT_MARGIN = 2;
+
+    // How many refreshes' worth of listed posts the seen index should hold, so a post that drops out of
+    // a listing and comes back isn't sent again
+    private static final int SEEN_POSTS_REFRESHES_KEPT = 4;
+
     private final RedditService mRedditService;
 
     private final ImageDownloader mImageDownloader;
+    private final ListingCursorStorage mListingCursorStorage;
+    private final SeenPostStorage mSeenPostStorage;
     private final UserStorage mUserStorage;
+    private final Scheduler mBulkScheduler;
 
+    private final int mMaxConcurrentListings;
+    private final int mMaxConcurrentDownloads;
+    private final long mImageTimeoutMillis;
+
+    /**
+     * @param maxConcurrentListings 1 to ask for all the subreddits in a single multireddit listing
+     */
     public LatestPostsRetriever(@NonNull final ImageDownloader imageDownloader,
+                                @NonNull final ListingCursorStorage listingCursorStorage,
+                                @NonNull final SeenPostStorage seenPostStorage,
                                 @NonNull final UserStorage userStorage,
-                                @NonNull final RedditService redditService) {
+                                @NonNull final RedditService redditService,
+                                @NonNull final Scheduler bulkScheduler,
+                                final int maxConcurrentListings,
+                                final int maxConcurrentDownloads,
+                                final long imageTimeoutMillis) {
         mImageDownloader = imageDownloader;
+        mListingCursorStorage = listingCursorStorage;
+        mSeenPostStorage = seenPostStorage;
         mUserStorage = userStorage;
         mRedditService = redditService;
+        mBulkScheduler = bulkScheduler;
+        mMaxConcurrentListings = maxConcurrentListings;
+        mMaxConcurrentDownloads = maxConcurrentDownloads;
+        mImageTimeoutMillis = imageTimeoutMillis;
     }
 
-    @NonNull public Observable<List<PostAndImage>> retrieve() {
-        final long currentSavedTimestamp = mUserStorage.getTimestamp();
+    /**
+     * Errors if none of the listings can be retrieved, so the refresh can be retried. If only some fail,
+     * we carry on with the rest. A post whose image fails to download is just left out.
+     * <p>
+     * Nothing is marked as seen and no cursor is moved yet, that's up to the caller once the posts have
+     * been delivered
+     */
+    @NonNull public Observable<LatestPosts> retrieve() {
         return Observable.defer(() -> {
-            String subreddits = mUserStorage.getSubreddits();
-            if (StringUtils.isEmpty(subreddits)) {
-                subreddits = StringUtils.join("+", Constants.sDefaultSelectedSubreddits);
-            }
-            return mRedditService.latestPosts(subreddits,
-                    mUserStorage.getSortType(),
-                    mUserStorage.getNumberToRequest())
-                    .doOnNext(posts -> {
-                        long maxTimestamp = 0;
-                        for (final Post p : posts) {
-                            if (p.getCreatedUtc() > maxTimestamp) {
-                                maxTimestamp = p.getCreatedUtc();
-                            }
-                        }
-                        mUserStorage.setSeenTimestamp(maxTimestamp);
-                    })
-                    .flatMap(Observable::from)
-                    .filter(post -> post.getCreatedUtc() > currentSavedTimestamp)
-                    .flatMap(post -> Observable.defer(() -> {
-                        final PostAndImage postAndImage = new PostAndImage(post);
-                        if (post.hasImageUrl()) {
-                            final byte[] bytes = mImageDownloader.downloadImage(post.getImageUrl());
-                            if (bytes != null) {
-                                postAndImage.setImage(Asset.createFromBytes(bytes));
-                            }
+            final String sort = mUserStorage.getSortType();
+            final int limit = mUserStorage.getNumberToRequest();
+            final List<String> listingSubreddits = getListingSubreddits();
+            final int listingLimit = getListingLimit(limit, listingSubreddits.size());
+            final int maxSeenPosts = listingSubreddits.size() * listingLimit * SEEN_POSTS_REFRESHES_KEPT;
+
+            return Observable.range(0, listingSubreddits.size())
+                    .flatMap(index -> retrieveListing(index, listingSubreddits.get(index), sort,
+                            listingLimit).subscribeOn(mBulkScheduler), mMaxConcurrentListings)
+                    .toList()
+                    .flatMap(listings -> {
+                        final List<Listing> retrieved = removeFailedListings(listings);
+                        if (retrieved.isEmpty()) {
+                            return Observable.<LatestPosts>error(listings.get(0).mError);
                         }
-                        return Observable.just(postAndImage);
-                    }).onErrorResumeNext(throwable -> Observable.empty()))
-                    .toList();
-        }).onErrorResumeNext(throwable -> {
-            Timber.e(throwable, "Failed to get latest posts");
-            // If we fail somewhere whilst retrieving posts, just emit an empty list
-            return Observable.just(Collections.<PostAndImage>emptyList());
+
+                        return downloadImages(mergeListings(retrieved, sort, limit))
+                                .map(postAndImages -> createLatestPosts(retrieved, postAndImages,
+                                        SORT_NEW.equals(sort), maxSeenPosts));
+                    });
         });
     }
 
+    /**
+     * Marks the posts as seen, so they aren't sent again, and moves each listing's cursor past them. Call
+     * once they've been delivered to the watch, or there were none to deliver, so posts that didn't make
+     * it are asked for and retrieved again next time
+     */
+    public void markDelivered(@NonNull LatestPosts latestPosts) {
+        mSeenPostStorage.markSeen(latestPosts.mSeenFullnames, latestPosts.mMaxSeenPosts);
+        for (Map.Entry<String, String> cursor : latestPosts.mCursors.entrySet()) {
+            mListingCursorStorage.setCursor(cursor.getKey(), cursor.getValue());
+        }
+    }
+
+    /**
+     * @return each subreddit on its own, or all of them joined into one multireddit
+     */
+    private List<String> getListingSubreddits() {
+        Collection<String> subreddits = mUserStorage.getSubredditCollection();
+        if (subreddits == null || subreddits.isEmpty()) {
+            subreddits = Constants.sDefaultSelectedSubreddits;
+        }
+
+        if (mMaxConcurrentListings > 1) {
+            return new ArrayList<>(subreddits);
+        }
+        return Collections.singletonList(StringUtils.join("+", subreddits));
+    }
+
+    /**
+     * @return each listing's share of the limit, rounded up, plus the margin - never more than the limit
+     * itself, which is what a single listing asks for
+     */
+    private static int getListingLimit(int limit, int listings) {
+        if (listings <= 1) {
+            return limit;
+        }
+        return Math.min(limit, (limit + listings - 1) / listings + LISTING_LIMIT_MARGIN);
+    }
+
+    private Observable<Listing> retrieveListing(int index, String subreddits, String sort, int limit) {
+        final String key = subreddits + "/" + sort;
+        return Observable.defer(() -> mRedditService.latestPosts(subreddits,
+                sort,
+                limit,
+                SORT_NEW.equals(sort) ? mListingCursorStorage.getCursor(key) : null))
+                .map(posts -> new Listing(index, key, posts))
+                .onErrorReturn(throwable -> {
+                    Timber.e(throwable, "Failed to get latest posts from " + subreddits);
+                    return new Listing(index, key, throwable);
+                });
+    }
+
+    /**
+     * @return the listings that were retrieved, in the order they were asked for, each with the posts
+     * we've sent before filtered out
+     */
+    private List<Listing> removeFailedListings(List<Listing> listings) {
+        // Listings finish in any order, put them back in the order they were asked for
+        Collections.sort(listings, (lhs, rhs) -> lhs.mIndex - rhs.mIndex);
+
+        final List<Listing> retrieved = new ArrayList<>(listings.size());
+        for (Listing listing : listings) {
+            if (listing.mError == null) {
+                listing.mUnseenPosts = removeSeenPosts(listing.mPosts);
+                retrieved.add(listing);
+            }
+        }
+        return retrieved;
+    }
+
+    private List<Post> mergeListings(List<Listing> listings, String sort, int limit) {
+        final List<List<Post>> unseenPosts = new ArrayList<>(listings.size());
+        for (Listing listing : listings) {
+            unseenPosts.add(listing.mUnseenPosts);
+        }
+        return ListingMerger.merge(unseenPosts, limit, ListingMerger.ranking(sort));
+    }
+
+    /**
+     * Filters out the posts we've sent before, whatever the sort order
+     */
+    private List<Post> removeSeenPosts(List<Post> posts) {
+        final List<Post> unseenPosts = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            if (!mSeenPostStorage.hasSeen(post.getFullname())) {
+                unseenPosts.add(post);
+            }
+        }
+        return unseenPosts;
+    }
+
+    /**
+     * Every post in the listings is to be marked as seen, apart from new ones that didn't make it into the
+     * page we're sending - left out of the merged page, or their image failed - so they're picked up next
+     * time. Marking the old ones again stops them expiring from the index whilst they're still listed.
+     * <p>
+     * Listings are newest first, so the first post is where the next refresh carries on from - unless
+     * some were left out, in which case we stay where we were so they're asked for again
+     */
+    private LatestPosts createLatestPosts(List<Listing> listings, List<PostAndImage> postAndImages,
+                                          boolean useCursor, int maxSeenPosts) {
+        final Set<String> sentFullnames = new HashSet<>(postAndImages.size());
+        for (PostAndImage postAndImage : postAndImages) {
+            sentFullnames.add(postAndImage.getPost().getFullname());
+        }
+
+        final List<String> fullnames = new ArrayList<>();
+        final Map<String, String> cursors = new HashMap<>();
+        for (Listing listing : listings) {
+            final Set<String> leftOut = new HashSet<>();
+            for (Post post : listing.mUnseenPosts) {
+                if (!sentFullnames.contains(post.getFullname())) {
+                    leftOut.add(post.getFullname());
+                }
+            }
+
+            for (Post post : listing.mPosts) {
+                if (!leftOut.contains(post.getFullname())) {
+                    fullnames.add(post.getFullname());
+                }
+            }
+
+            if (useCursor && leftOut.isEmpty() && !listing.mPosts.isEmpty()) {
+                cursors.put(listing.mKey, listing.mPosts.get(0).getFullname());
+            }
+        }
+        return new LatestPosts(postAndImages, fullnames, cursors, maxSeenPosts);
+    }
+
+    /**
+     * Downloads up to mMaxConcurrentDownloads images at once on the io scheduler. They finish in any
+     * order, so are sorted back into the order of the listing afterwards
+     */
+    private Observable<List<PostAndImage>> downloadImages(List<Post> posts) {
+        return Observable.range(0, posts.size())
+                .flatMap(index -> downloadImage(index, posts.get(index)), mMaxConcurrentDownloads)
+                .toSortedList((first, second) -> first.mIndex - second.mIndex)
+                .map(indexedPostAndImages -> {
+                    final List<PostAndImage> postAndImages = new ArrayList<>(indexedPostAndImages.size());
+                    for (IndexedPostAndImage indexed : indexedPostAndImages) {
+                        postAndImages.add(indexed.mPostAndImage);
+                    }
+                    return postAndImages;
+                });
+    }
+
+    private Observable<IndexedPostAndImage> downloadImage(int index, Post post) {
+        if (!post.hasImageUrl()) {
+            return Observable.just(new IndexedPostAndImage(index, new PostAndImage(post)));
+        }
+
+        return Observable.defer(() -> {
+            final PostAndImage postAndImage = new PostAndImage(post);
+            final byte[] bytes = mImageDownloader.downloadImage(post.getImageUrl());
+            if (bytes != null) {
+                postAndImage.setImage(Asset.createFromBytes(bytes));
+            }
+            return Observable.just(new IndexedPostAndImage(index, postAndImage));
+        })
+                .subscribeOn(mBulkScheduler)
+                // A slow image shouldn't hold up the whole refresh, send the post without it instead
+                .timeout(mImageTimeoutMillis,
+                        TimeUnit.MILLISECONDS,
+                        Observable.just(new IndexedPostAndImage(index, new PostAndImage(post))))
+                .onErrorResumeNext(throwable -> {
+                    Timber.d(throwable, "Failed to download image, skipping post");
+                    return Observable.empty();
+                });
+    }
+
+    /**
+     * One subreddit's listing, or why it couldn't be retrieved
+     */
+    private static class Listing {
+        private final int mIndex;
+        private final String mKey;
+        private final List<Post> mPosts;
+        private final Throwable mError;
+
+        private List<Post> mUnseenPosts;
+
+        Listing(int index, String key, List<Post> posts) {
+            mIndex = index;
+            mKey = key;
+            mPosts = posts;
+            mError = null;
+        }
+
+        Listing(int index, String key, Throwable error) {
+            mIndex = index;
+            mKey = key;
+            mPosts = Collections.emptyList();
+            mError = error;
+        }
+    }
+
+    private static class IndexedPostAndImage {
+        private final int mIndex;
+        private final PostAndImage mPostAndImage;
+
+        IndexedPostAndImage(int index, PostAndImage postAndImage) {
+            mIndex = index;
+            mPostAndImage = postAndImage;
+        }
+    }
+
+    /**
+     * The posts from one refresh, and which fullnames to mark as seen and where each listing's cursor
+     * moves to once they've been delivered
+     */
+    static class LatestPosts {
+        private final List<PostAndImage> mPostAndImages;
+        private final List<String> mSeenFullnames;
+        private final Map<String, String> mCursors;
+        private final int mMaxSeenPosts;
+
+        LatestPosts(List<PostAndImage> postAndImages, List<String> seenFullnames,
+                    Map<String, String> cursors, int maxSeenPosts) {
+            mPostAndImages = postAndImages;
+            mSeenFullnames = seenFullnames;
+            mCursors = cursors;
+            mMaxSeenPosts = maxSeenPosts;
+        }
+
+        public List<PostAndImage> getPostAndImages() {
+            return mPostAndImages;
+        }
+    }
+
     static class PostAndImage {
         private final Post mPost;
         private Asset mImage;
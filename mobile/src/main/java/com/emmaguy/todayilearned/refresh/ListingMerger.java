@@ -0,0 +1,68 @@
+package com.emmaguy.todayilearned.refresh;
+
+import android.support.annotation.NonNull;
+
+import com.emmaguy.todayilearned.sharedlib.Post;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Merges listings from several subreddits into one page, taking turns so a busy subreddit can't crowd
+ * out the quieter ones.
+ * <p>
+ * Each round takes the next post from every listing that has any left, best ranked first, until the
+ * page is full. So with n listings, each gets at least limit / n of the page if it has that many posts,
+ * and any share a listing can't use goes to the others.
+ */
+class ListingMerger {
+    private static final String SORT_NEW = "new";
+
+    private ListingMerger() {
+    }
+
+    /**
+     * @param listings each in the order reddit ranked it
+     */
+    @NonNull static List<Post> merge(@NonNull List<List<Post>> listings, int limit,
+                                     @NonNull Comparator<Post> ranking) {
+        final int[] next = new int[listings.size()];
+        final List<Post> merged = new ArrayList<>(limit);
+        final List<Integer> round = new ArrayList<>(listings.size());
+
+        while (merged.size() < limit) {
+            round.clear();
+            for (int i = 0; i < listings.size(); i++) {
+                if (next[i] < listings.get(i).size()) {
+                    round.add(i);
+                }
+            }
+            if (round.isEmpty()) {
+                break;
+            }
+
+            // Stable, so ties keep the order the listings were asked for in
+            Collections.sort(round, (lhs, rhs) -> ranking.compare(listings.get(lhs).get(next[lhs]),
+                    listings.get(rhs).get(next[rhs])));
+            for (int i = 0; i < round.size() && merged.size() < limit; i++) {
+                final int listing = round.get(i);
+                merged.add(listings.get(listing).get(next[listing]++));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * @return newest first when sorting by new, otherwise highest score first
+     */
+    @NonNull static Comparator<Post> ranking(String sort) {
+        if (SORT_NEW.equals(sort)) {
+            return (lhs, rhs) -> lhs.getCreatedUtc() > rhs.getCreatedUtc()
+                    ? -1
+                    : (lhs.getCreatedUtc() == rhs.getCreatedUtc() ? 0 : 1);
+        }
+        return (lhs, rhs) -> rhs.getScore() - lhs.getScore();
+    }
+}
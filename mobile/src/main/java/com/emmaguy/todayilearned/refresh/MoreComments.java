@@ -0,0 +1,20 @@
+package com.emmaguy.todayilearned.refresh;
+
+import com.emmaguy.todayilearned.sharedlib.Comment;
+
+import java.util.List;
+
+/**
+ * The comments returned from /api/morechildren, already put back together into a tree
+ */
+public class MoreComments {
+    private final List<Comment> mComments;
+
+    public MoreComments(List<Comment> comments) {
+        mComments = comments;
+    }
+
+    public List<Comment> getComments() {
+        return mComments;
+    }
+}
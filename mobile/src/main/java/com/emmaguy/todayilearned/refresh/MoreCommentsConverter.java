@@ -0,0 +1,287 @@
+package com.emmaguy.todayilearned.refresh;
+
+import com.emmaguy.todayilearned.common.StringUtils;
+import com.emmaguy.todayilearned.sharedlib.Comment;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import retrofit.converter.ConversionException;
+import retrofit.converter.Converter;
+import retrofit.mime.MimeUtil;
+import retrofit.mime.TypedInput;
+import retrofit.mime.TypedOutput;
+
+/**
+ * Converts the flat list of things returned from /api/morechildren back into a tree of {@link Comment}s,
+ * using each thing's parent_id. Any 'more' things in the response become placeholders, as they do
+ * when reading a comment thread
+ */
+public class MoreCommentsConverter implements Converter {
+    private static final String DEFAULT_CHARSET = "UTF-8";
+    private static final String KIND_MORE = "more";
+
+    @Override public Object fromBody(TypedInput body, Type type) throws ConversionException {
+        String charset = DEFAULT_CHARSET;
+        if (body.mimeType() != null) {
+            charset = MimeUtil.parseCharset(body.mimeType(), charset);
+        }
+
+        JsonReader reader = null;
+        try {
+            reader = new JsonReader(new InputStreamReader(body.in(), charset));
+            return new MoreComments(toTree(readThings(reader)));
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new ConversionException(e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    // Response looks like {"json": {"errors": [], "data": {"things": [...]}}}
+    private List<Thing> readThings(JsonReader reader) throws IOException {
+        final List<Thing> things = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("json") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (reader.nextName().equals("data") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            if (reader.nextName().equals("things") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                                reader.beginArray();
+                                while (reader.hasNext()) {
+                                    final Thing thing = readThing(reader);
+                                    if (thing != null) {
+                                        things.add(thing);
+                                    }
+                                }
+                                reader.endArray();
+                            } else {
+                                reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return things;
+    }
+
+    private Thing readThing(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        final Thing thing = new Thing();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (name.equals("kind")) {
+                thing.mKind = nextString(reader);
+            } else if (name.equals("data") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                readThingData(reader, thing);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return thing;
+    }
+
+    private void readThingData(JsonReader reader, Thing thing) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name":
+                    thing.mName = nextString(reader);
+                    break;
+                case "parent_id":
+                    thing.mParentId = nextString(reader);
+                    break;
+                case "link_id":
+                    thing.mLinkId = nextString(reader);
+                    break;
+                case "depth":
+                    thing.mDepth = nextInt(reader);
+                    break;
+                case "body":
+                    thing.mBody = nextString(reader);
+                    break;
+                case "author":
+                    thing.mAuthor = nextString(reader);
+                    break;
+                case "score_hidden":
+                    thing.mScoreHidden = nextBoolean(reader);
+                    break;
+                case "score":
+                    thing.mScore = nextInt(reader);
+                    break;
+                case "gilded":
+                    thing.mGilded = nextInt(reader);
+                    break;
+                case "children":
+                    readChildIds(reader, thing.mChildIds);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+    }
+
+    private void readChildIds(JsonReader reader, List<String> ids) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return;
+        }
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            final String id = nextString(reader);
+            if (!StringUtils.isEmpty(id)) {
+                ids.add(id);
+            }
+        }
+        reader.endArray();
+    }
+
+    private List<Comment> toTree(List<Thing> things) {
+        // 'more' things don't have a link_id, so take it from any comment in the response
+        String linkFullname = null;
+        final Map<String, Thing> thingsByName = new LinkedHashMap<>();
+        for (Thing thing : things) {
+            if (!StringUtils.isEmpty(thing.mName)) {
+                thingsByName.put(thing.mName, thing);
+            }
+            if (linkFullname == null && !StringUtils.isEmpty(thing.mLinkId)) {
+                linkFullname = thing.mLinkId;
+            }
+        }
+
+        final List<Thing> roots = new ArrayList<>();
+        for (Thing thing : things) {
+            final Thing parent = thing.mParentId == null ? null : thingsByName.get(thing.mParentId);
+            if (parent == null || parent == thing) {
+                roots.add(thing);
+            } else {
+                parent.mReplies.add(thing);
+            }
+        }
+
+        final List<Comment> comments = toComments(roots, linkFullname);
+        return comments == null ? new ArrayList<>() : comments;
+    }
+
+    private List<Comment> toComments(List<Thing> things, String linkFullname) {
+        final List<Comment> comments = new ArrayList<>();
+        final List<String> moreChildIds = new ArrayList<>();
+        int level = 0;
+
+        for (Thing thing : things) {
+            level = thing.mDepth + 1;
+            if (KIND_MORE.equals(thing.mKind)) {
+                moreChildIds.addAll(thing.mChildIds);
+                continue;
+            }
+
+            final String body = StringUtils.isEmpty(thing.mBody) ? "" : thing.mBody.trim();
+            if (StringUtils.isEmpty(body)) {
+                continue;
+            }
+
+            final List<Comment> replies = thing.mReplies.isEmpty() ? null : toComments(thing.mReplies,
+                    linkFullname);
+            comments.add(new Comment.Builder().setComments(replies)
+                    .setAuthor(thing.mAuthor)
+                    .setPostContents(body)
+                    .setIsScoreHidden(thing.mScoreHidden)
+                    .setScore(thing.mScore)
+                    .setGilded(thing.mGilded)
+                    .setReplyLevel(level)
+                    .build());
+        }
+
+        if (!moreChildIds.isEmpty() && !StringUtils.isEmpty(linkFullname)) {
+            comments.add(new Comment.Builder().setMoreChildIds(moreChildIds)
+                    .setLinkFullname(linkFullname)
+                    .setReplyLevel(level)
+                    .build());
+        }
+
+        return comments.isEmpty() ? null : comments;
+    }
+
+    private String nextString(JsonReader reader) throws IOException {
+        final JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    private boolean nextBoolean(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.BOOLEAN) {
+            return reader.nextBoolean();
+        }
+        reader.skipValue();
+        return false;
+    }
+
+    private int nextInt(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NUMBER) {
+            return (int) reader.nextDouble();
+        }
+        reader.skipValue();
+        return 0;
+    }
+
+    @Override public TypedOutput toBody(Object object) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * A comment or 'more' thing from the response, before it's been put into the tree
+     */
+    private static class Thing {
+        private final List<String> mChildIds = new ArrayList<>();
+        private final List<Thing> mReplies = new ArrayList<>();
+
+        private String mKind;
+        private String mName;
+        private String mParentId;
+        private String mLinkId;
+        private String mAuthor;
+        private String mBody;
+
+        private boolean mScoreHidden;
+        private int mDepth;
+        private int mScore;
+        private int mGilded;
+    }
+}
@@ -0,0 +1,57 @@
+package com.emmaguy.todayilearned.refresh;
+
+import android.support.annotation.NonNull;
+
+import com.emmaguy.todayilearned.common.StringUtils;
+import com.emmaguy.todayilearned.sharedlib.Comment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import rx.Observable;
+
+/**
+ * Loads the comments behind a 'more' placeholder a slice at a time, so the watch only ever receives
+ * a small tree. Any ids left over are returned as a new placeholder at the end of the slice
+ */
+public class MoreCommentsRetriever {
+    static final int DEFAULT_MAX_IDS_PER_REQUEST = 20;
+
+    private static final String SORT = "best";
+
+    private final RedditService mRedditService;
+    private final int mMaxIdsPerRequest;
+
+    public MoreCommentsRetriever(@NonNull final RedditService redditService) {
+        this(redditService, DEFAULT_MAX_IDS_PER_REQUEST);
+    }
+
+    MoreCommentsRetriever(@NonNull final RedditService redditService, int maxIdsPerRequest) {
+        mRedditService = redditService;
+        mMaxIdsPerRequest = maxIdsPerRequest;
+    }
+
+    @NonNull public Observable<List<Comment>> retrieve(@NonNull final String linkFullname,
+                                                       @NonNull final List<String> childIds,
+                                                       final int replyLevel) {
+        if (childIds.isEmpty()) {
+            return Observable.just(new ArrayList<>());
+        }
+
+        final int sliceSize = Math.min(mMaxIdsPerRequest, childIds.size());
+        final List<String> slice = childIds.subList(0, sliceSize);
+        final List<String> remaining = new ArrayList<>(childIds.subList(sliceSize, childIds.size()));
+
+        return mRedditService.moreComments(linkFullname, StringUtils.join(",", slice), SORT)
+                .map(moreComments -> {
+                    final List<Comment> comments = new ArrayList<>(moreComments.getComments());
+                    if (!remaining.isEmpty()) {
+                        comments.add(new Comment.Builder().setMoreChildIds(remaining)
+                                .setLinkFullname(linkFullname)
+                                .setReplyLevel(replyLevel)
+                                .build());
+                    }
+                    return comments;
+                });
+    }
+}
@@ -3,16 +3,22 @@ package com.emmaguy.todayilearned.refresh;
 import android.content.res.Resources;
 
 import com.emmaguy.todayilearned.storage.UserStorage;
+import com.google.gson.stream.JsonReader;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.lang.reflect.Type;
 
 import retrofit.converter.ConversionException;
 import retrofit.converter.Converter;
 import retrofit.converter.GsonConverter;
+import retrofit.mime.MimeUtil;
 import retrofit.mime.TypedInput;
 import retrofit.mime.TypedOutput;
 
 public class PostConverter implements Converter {
+    private static final String DEFAULT_CHARSET = "UTF-8";
+
     private final GsonConverter mOriginalConverter;
     private final UserStorage mUserStorage;
     private final HtmlDecoder mHtmlDecoder;
@@ -27,10 +33,25 @@ public class PostConverter implements Converter {
     }
 
     @Override public Object fromBody(TypedInput body, Type type) throws ConversionException {
-        ListingResponse listingResponse = (ListingResponse) mOriginalConverter.fromBody(body,
-                ListingResponse.class);
-        return new ListingResponseConverter(mUserStorage, mResources, mHtmlDecoder).convert(
-                listingResponse);
+        String charset = DEFAULT_CHARSET;
+        if (body.mimeType() != null) {
+            charset = MimeUtil.parseCharset(body.mimeType(), charset);
+        }
+
+        JsonReader reader = null;
+        try {
+            reader = new JsonReader(new InputStreamReader(body.in(), charset));
+            return new PostListingReader(mUserStorage, mResources, mHtmlDecoder).read(reader);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new ConversionException(e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
     }
 
     @Override public TypedOutput toBody(Object object) {
@@ -0,0 +1,406 @@
+package com.emmaguy.todayilearned.refresh;
+
+import android.content.res.Resources;
+import android.support.annotation.NonNull;
+
+import com.emmaguy.todayilearned.R;
+import com.emmaguy.todayilearned.common.StringUtils;
+import com.emmaguy.todayilearned.sharedlib.Post;
+import com.emmaguy.todayilearned.storage.UserStorage;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a listing straight from the response stream and builds {@link Post}s in a single pass,
+ * skipping every field we don't display rather than binding the whole listing first
+ */
+class PostListingReader {
+    private final UserStorage mUserStorage;
+    private final HtmlDecoder mHtmlDecoder;
+    private final Resources mResources;
+
+    PostListingReader(UserStorage userStorage, Resources resources, HtmlDecoder htmlDecoder) {
+        mUserStorage = userStorage;
+        mResources = resources;
+        mHtmlDecoder = htmlDecoder;
+    }
+
+    @NonNull public List<Post> read(JsonReader reader) throws IOException {
+        final List<Post> result = new ArrayList<>();
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return result;
+        }
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("data") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                readListingData(reader, result);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return result;
+    }
+
+    private void readListingData(JsonReader reader, List<Post> result) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("children") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    final Post post = readChild(reader);
+                    if (post != null) {
+                        result.add(post);
+                    }
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private Post readChild(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        Post post = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("data") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                post = readPost(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return post;
+    }
+
+    private Post readPost(JsonReader reader) throws IOException {
+        final Fields fields = new Fields();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "created_utc":
+                    fields.mCreatedUtc = nextString(reader);
+                    break;
+                case "subreddit":
+                    fields.mSubreddit = nextString(reader);
+                    break;
+                case "permalink":
+                    fields.mPermalink = nextString(reader);
+                    break;
+                case "thumbnail":
+                    fields.mThumbnail = nextString(reader);
+                    break;
+                case "selftext":
+                    fields.mSelfText = nextString(reader);
+                    break;
+                case "subject":
+                    fields.mSubject = nextString(reader);
+                    break;
+                case "author":
+                    fields.mAuthor = nextString(reader);
+                    break;
+                case "title":
+                    fields.mTitle = nextString(reader);
+                    break;
+                case "body":
+                    fields.mBody = nextString(reader);
+                    break;
+                case "name":
+                    fields.mName = nextString(reader);
+                    break;
+                case "url":
+                    fields.mUrl = nextString(reader);
+                    break;
+                case "id":
+                    fields.mId = nextString(reader);
+                    break;
+                case "stickied":
+                    fields.mStickied = nextBoolean(reader);
+                    break;
+                case "score":
+                    fields.mScore = nextInt(reader);
+                    break;
+                case "gilded":
+                    fields.mGilded = nextInt(reader);
+                    break;
+                case "media":
+                    readMedia(reader, fields);
+                    break;
+                case "preview":
+                    readPreview(reader, fields);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (fields.mStickied || "more".equals(fields.mName)) {
+            return null;
+        }
+        return toPost(fields);
+    }
+
+    private void readMedia(JsonReader reader, Fields fields) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("oembed") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                fields.mHasOembed = true;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (reader.nextName().equals("thumbnail_url")) {
+                        fields.mOembedThumbnailUrl = nextString(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    // We only ever use the first image, and from it only the smallest and largest resolutions
+    private void readPreview(JsonReader reader, Fields fields) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("images") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                boolean isFirstImage = true;
+                while (reader.hasNext()) {
+                    if (isFirstImage && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                        readPreviewImage(reader, fields);
+                    } else {
+                        reader.skipValue();
+                    }
+                    isFirstImage = false;
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void readPreviewImage(JsonReader reader, Fields fields) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("resolutions") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    final String url = readPreviewItemUrl(reader);
+                    if (fields.mPreviewResolutionCount == 0) {
+                        fields.mSmallestPreviewUrl = url;
+                    }
+                    fields.mLargestPreviewUrl = url;
+                    fields.mPreviewResolutionCount++;
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private String readPreviewItemUrl(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        String url = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("url")) {
+                url = nextString(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return url;
+    }
+
+    private String nextString(JsonReader reader) throws IOException {
+        final JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        } else if (token == JsonToken.BOOLEAN) {
+            return String.valueOf(reader.nextBoolean());
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    private boolean nextBoolean(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.BOOLEAN) {
+            return reader.nextBoolean();
+        }
+        reader.skipValue();
+        return false;
+    }
+
+    private int nextInt(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NUMBER) {
+            return (int) reader.nextDouble();
+        }
+        reader.skipValue();
+        return 0;
+    }
+
+    @NonNull private Post toPost(Fields fields) {
+        final boolean isDirectMessage = fields.mName.startsWith("t4");
+        final String title = StringUtils.isEmpty(fields.mTitle) ? "" : fields.mTitle.trim();
+        final String description = getDescription(fields);
+        final String imageUrl = getImageUrl(fields);
+
+        return new Post.Builder().setTitle(isDirectMessage ? mResources.getString(R.string.message_from_x,
+                fields.mAuthor) : fields.mSubreddit)
+                .setShortTitle(isDirectMessage ? getShortDescription(description) : getShortString(
+                        title))
+                .setSubreddit(fields.mSubreddit)
+                .setPermalink(isDirectMessage ? "/message/messages/" + fields.mId : fields.mPermalink)
+                .setPostContents(getPostContents(isDirectMessage, title, description))
+                .setCreatedUtc(getCreatedUtc(fields.mCreatedUtc))
+                .setImageUrl(imageUrl)
+                .setGilded(fields.mGilded)
+                .setFullname(fields.mName)
+                .setUrl(fields.mUrl)
+                .setId(fields.mId)
+                .setAuthor(fields.mAuthor)
+                .setScore(fields.mScore)
+                .hasImageUrl(!StringUtils.isEmpty(imageUrl))
+                .setIsDirectMessage(isDirectMessage)
+                .build();
+    }
+
+    private String getDescription(Fields fields) {
+        final String subjectAndBody = fields.mSubject + "\n" + fields.mBody;
+        final String description = StringUtils.isEmpty(fields.mSelfText) ? subjectAndBody : fields.mSelfText;
+        return StringUtils.isEmpty(description) ? "" : description.trim();
+    }
+
+    // Sometimes the api returns invalid longs, e.g. 1420079792.0
+    private long getCreatedUtc(String createdUtc) {
+        if (StringUtils.isEmpty(createdUtc)) {
+            return 0;
+        }
+
+        if (createdUtc.endsWith(".0")) {
+            createdUtc = createdUtc.replace(".0", "");
+        }
+
+        return Long.valueOf(createdUtc);
+    }
+
+    private String getImageUrl(Fields fields) {
+        String imageUrl = StringUtils.isEmpty(fields.mThumbnail) ? "" : fields.mThumbnail.trim();
+        if (imageUrl.equals("default") || imageUrl.equals("nsfw") || imageUrl.equals("self")) {
+            return "";
+        }
+
+        if (fields.mHasOembed) {
+            imageUrl = fields.mOembedThumbnailUrl;
+        }
+
+        if (fields.mPreviewResolutionCount > 0) {
+            imageUrl = mHtmlDecoder.decode(fields.mSmallestPreviewUrl);
+
+            if (mUserStorage.downloadFullSizedImages() && fields.mPreviewResolutionCount >= 2) {
+                imageUrl = mHtmlDecoder.decode(fields.mLargestPreviewUrl);
+            }
+        }
+
+        return imageUrl;
+    }
+
+    private String getShortString(String string) {
+        if (string.length() < 15) {
+            return string;
+        }
+        return string.substring(0, 12) + "...";
+    }
+
+    private String getShortDescription(String description) {
+        if (description.contains("\n")) {
+            String title = description.substring(0, description.indexOf("\n"));
+            return getShortString(title);
+        }
+        return getShortString(description);
+    }
+
+    private String getPostContents(boolean isDirectMessage, String title, String description) {
+        if (isDirectMessage) {
+            return description;
+        }
+
+        if (StringUtils.isEmpty(title)) {
+            return description;
+        }
+
+        if (StringUtils.isEmpty(description)) {
+            return title;
+        }
+
+        return title + "\n\n" + description;
+    }
+
+    /**
+     * The handful of values we keep from a listing element whilst streaming through it
+     */
+    private static class Fields {
+        private String mCreatedUtc;
+        private String mSubreddit;
+        private String mPermalink;
+        private String mThumbnail;
+        private String mSelfText;
+        private String mSubject = "";
+        private String mAuthor;
+        private String mTitle;
+        private String mBody = "";
+        private String mName = "";
+        private String mUrl;
+        private String mId;
+
+        private boolean mHasOembed;
+        private String mOembedThumbnailUrl;
+
+        private int mPreviewResolutionCount;
+        private String mSmallestPreviewUrl;
+        private String mLargestPreviewUrl;
+
+        private boolean mStickied;
+        private int mScore;
+        private int mGilded;
+    }
+}
@@ -0,0 +1,63 @@
+package com.emmaguy.todayilearned.refresh;
+
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+
+import java.io.IOException;
+
+import timber.log.Timber;
+
+/**
+ * Keeps us inside reddit's rate limit, using the budget it sends back on every response. Background
+ * requests from a refresh are held back by the {@link RateLimiter} when the budget runs low, so votes,
+ * replies and comments from the watch still get through.
+ * <p>
+ * Needs to be a network interceptor, as responses from the cache don't cost anything
+ */
+public class RateLimitInterceptor implements Interceptor {
+    private static final String HEADER_REMAINING = "X-Ratelimit-Remaining";
+    private static final String HEADER_RESET = "X-Ratelimit-Reset";
+    private static final String HEADER_RETRY_AFTER = "Retry-After";
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final long DEFAULT_RETRY_AFTER_SECONDS = 60;
+
+    private final RateLimiter mRateLimiter;
+
+    public RateLimitInterceptor(RateLimiter rateLimiter) {
+        mRateLimiter = rateLimiter;
+    }
+
+    @Override public Response intercept(Chain chain) throws IOException {
+        final Request request = chain.request();
+        mRateLimiter.acquire(isInteractive(request));
+
+        final Response response = chain.proceed(request);
+        final String remaining = response.header(HEADER_REMAINING);
+        final String reset = response.header(HEADER_RESET);
+        try {
+            if (remaining != null && reset != null) {
+                mRateLimiter.update(Double.parseDouble(remaining), (long) Double.parseDouble(reset));
+            } else if (response.code() == HTTP_TOO_MANY_REQUESTS) {
+                final String retryAfter = response.header(HEADER_RETRY_AFTER);
+                mRateLimiter.update(0, retryAfter == null
+                        ? DEFAULT_RETRY_AFTER_SECONDS
+                        : Long.parseLong(retryAfter));
+            }
+        } catch (NumberFormatException e) {
+            Timber.d(e, "Ignoring malformed rate limit headers");
+        }
+        return response;
+    }
+
+    /**
+     * Everything a refresh asks for can wait: subreddit listings, unread messages and marking them read.
+     * Comment threads also live under /r/, but are opened from the watch
+     */
+    static boolean isInteractive(Request request) {
+        final String path = request.url().getPath();
+        final boolean isListing = path.startsWith("/r/") && !path.contains("/comments/");
+        return !isListing && !path.startsWith("/message/unread") && !path.startsWith("/api/read_message");
+    }
+}
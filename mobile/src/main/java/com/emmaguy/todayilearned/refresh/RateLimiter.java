@@ -0,0 +1,96 @@
+package com.emmaguy.todayilearned.refresh;
+
+import android.support.annotation.NonNull;
+
+import com.emmaguy.todayilearned.common.Clock;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * Tracks how many requests reddit will still let us make before its rate limit window resets, as a
+ * bucket of tokens that's refilled when the window ends. Reddit tells us the remaining budget on every
+ * response, in between we take a token for each request we send.
+ * <p>
+ * Interactive requests from the watch always go straight through. Once the budget drops to the reserve
+ * kept for them, background requests queue until the window resets - or fail if that's too far away, so
+ * the refresh can be retried later rather than holding the device awake.
+ */
+public class RateLimiter {
+    private final int mInteractiveReserve;
+    private final long mMaxWaitMillis;
+    private final Clock mClock;
+
+    // All guarded by this
+    private boolean mIsBudgetKnown;
+    private double mRemaining;
+    private long mResetAtMillis;
+
+    public RateLimiter(int interactiveReserve, long maxWaitMillis) {
+        this(interactiveReserve, maxWaitMillis, Clock.SYSTEM);
+    }
+
+    RateLimiter(int interactiveReserve, long maxWaitMillis, @NonNull Clock clock) {
+        mInteractiveReserve = interactiveReserve;
+        mMaxWaitMillis = maxWaitMillis;
+        mClock = clock;
+    }
+
+    /**
+     * Takes a token for a request, first waiting for the window to reset if it's a background request and
+     * the budget is low
+     *
+     * @throws IOException if a background request would have to wait longer than the max wait
+     */
+    public synchronized void acquire(boolean isInteractive) throws IOException {
+        if (!isInteractive) {
+            final long deadline = mClock.elapsedRealtime() + mMaxWaitMillis;
+            while (isBudgetLow()) {
+                final long waitMillis = mResetAtMillis - mClock.elapsedRealtime();
+                if (mResetAtMillis > deadline) {
+                    throw new IOException("Rate limited, budget resets in " + waitMillis + " ms");
+                }
+
+                try {
+                    wait(Math.max(1, waitMillis));
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException("Interrupted waiting for rate limit to reset");
+                }
+            }
+        }
+
+        if (mIsBudgetKnown) {
+            mRemaining--;
+        }
+    }
+
+    /**
+     * @param remaining    requests left in the current window, as reddit counts them
+     * @param resetSeconds until the window resets
+     */
+    public synchronized void update(double remaining, long resetSeconds) {
+        mIsBudgetKnown = true;
+        mRemaining = remaining;
+        mResetAtMillis = mClock.elapsedRealtime() + resetSeconds * 1000;
+
+        // The budget may have gone up, let any queued requests check again
+        notifyAll();
+    }
+
+    synchronized double getRemaining() {
+        return mRemaining;
+    }
+
+    private boolean isBudgetLow() {
+        if (!mIsBudgetKnown) {
+            return false;
+        }
+
+        if (mClock.elapsedRealtime() >= mResetAtMillis) {
+            // The window has reset, we won't know the new budget until the next response
+            mIsBudgetKnown = false;
+            return false;
+        }
+        return mRemaining <= mInteractiveReserve;
+    }
+}
@@ -25,14 +25,25 @@ public interface RedditService {
             @Path(value = "permalink", encode = false) String permalink,
             @Query("sort") String sort);
 
+    @GET("/api/morechildren?api_type=json") Observable<MoreComments> moreComments(
+            @Query("link_id") String linkFullname, @Query("children") String childIds,
+            @Query("sort") String sort);
+
+    /**
+     * @param before only return posts newer than this fullname, or null for the first page. Retrofit
+     *               leaves null query parameters out of the url
+     */
     @GET("/r/{subreddit}/{sort}.json") Observable<List<Post>> latestPosts(
             @Path("subreddit") String subreddit, @Path("sort") String sort,
-            @Query("limit") Integer limit);
+            @Query("limit") Integer limit, @Query("before") String before);
 
     @POST("/api/vote") Observable<Void> vote(@Query("id") String fullname,
                                              @Query("dir") Integer voteDirection);
 
-    @POST("/api/read_all_messages") MarkAllRead markAllMessagesRead();
+    /**
+     * @param fullnames comma separated fullnames of the messages to mark as read
+     */
+    @POST("/api/read_message") Observable<Void> markMessagesRead(@Query("id") String fullnames);
 
     @POST("/api/compose?api_type=json") Observable<RedditResponse> replyToDirectMessage(
             @Query("subject") String subject, @Query("text") String message,
@@ -0,0 +1,67 @@
+package com.emmaguy.todayilearned.refresh;
+
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+import android.support.annotation.NonNull;
+
+import com.emmaguy.todayilearned.storage.UserStorage;
+
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
+
+/**
+ * Schedules the next refresh with the {@link JobScheduler}, which only runs it once there's a network
+ * to refresh over - an unmetered one, if the user asked for that. A refresh that fails is retried with
+ * exponential backoff, starting from 30 seconds.
+ * <p>
+ * The job scheduler only exists from Lollipop, so callers must check the API level first
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class RefreshJobScheduler {
+    private static final int JOB_ID = 1;
+    private static final long INITIAL_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final Context mContext;
+    private final UserStorage mUserStorage;
+
+    public RefreshJobScheduler(@NonNull Context context, @NonNull UserStorage userStorage) {
+        mContext = context;
+        mUserStorage = userStorage;
+    }
+
+    /**
+     * Replaces any refresh that's already scheduled, including one that's waiting to retry
+     */
+    public void schedule(long delayMillis) {
+        final int networkType = mUserStorage.refreshOnUnmeteredNetworkOnly()
+                ? JobInfo.NETWORK_TYPE_UNMETERED
+                : JobInfo.NETWORK_TYPE_ANY;
+
+        final JobInfo job = new JobInfo.Builder(JOB_ID,
+                new ComponentName(mContext, RefreshJobService.class))
+                .setMinimumLatency(delayMillis)
+                .setRequiredNetworkType(networkType)
+                .setBackoffCriteria(INITIAL_BACKOFF_MILLIS, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                .setPersisted(true)
+                .build();
+
+        if (getJobScheduler().schedule(job) == JobScheduler.RESULT_SUCCESS) {
+            Timber.d("Scheduled refresh job in %d ms, network type: %d", delayMillis, networkType);
+        } else {
+            Timber.e("Failed to schedule refresh job");
+        }
+    }
+
+    public void cancel() {
+        getJobScheduler().cancel(JOB_ID);
+    }
+
+    private JobScheduler getJobScheduler() {
+        return (JobScheduler) mContext.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+    }
+}
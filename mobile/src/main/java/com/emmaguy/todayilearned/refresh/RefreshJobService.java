@@ -0,0 +1,80 @@
+package com.emmaguy.todayilearned.refresh;
+
+import android.annotation.TargetApi;
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.os.Build;
+
+import com.commonsware.cwac.wakeful.WakefulIntentService;
+import com.emmaguy.todayilearned.App;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscription;
+import timber.log.Timber;
+
+/**
+ * Runs a refresh scheduled by the {@link RefreshJobScheduler}. The system holds a wakelock for us until
+ * the job is finished, so the refresh runs on the io scheduler rather than blocking the main thread
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class RefreshJobService extends JobService {
+    @Inject BackgroundAlarmListener mAlarmListener;
+    @Inject Refresher mRefresher;
+
+    @Inject @Named("io") Scheduler mIoScheduler;
+
+    private volatile Subscription mRefresh;
+
+    @Override public void onCreate() {
+        super.onCreate();
+
+        App.with(this).getAppComponent().inject(this);
+    }
+
+    @Override public boolean onStartJob(JobParameters params) {
+        Timber.d("onStartJob");
+
+        mRefresh = Observable.defer(() -> Observable.just(mRefresher.refresh(false)))
+                .subscribeOn(mIoScheduler)
+                .subscribe(isSuccess -> {
+                    mRefresh = null;
+
+                    // A failed refresh is retried with backoff, the job scheduler takes care of that
+                    jobFinished(params, !isSuccess);
+                    if (isSuccess) {
+                        WakefulIntentService.scheduleAlarms(mAlarmListener, getApplicationContext());
+                    }
+                }, throwable -> {
+                    Timber.e(throwable, "RefreshJobService: Failed to refresh");
+                    mRefresh = null;
+                    jobFinished(params, true);
+                });
+        return true;
+    }
+
+    /**
+     * Called if we lose the network part way through. Unsubscribing interrupts the io thread, wherever it's
+     * blocked - waiting on the posts and messages, or sending the outbox - and the refresh gives up with an
+     * exception the {@link Refresher} catches. If that's before the posts were retrieved, it's not
+     * recorded with the {@link AdaptiveRefreshScheduler} and no post is marked as seen nor cursor moved.
+     * If it's in the outbox, the posts have already been delivered, so recording them is right, and the
+     * outbox tries what's left next time.
+     * <p>
+     * We won't report back on it either way, and the job scheduler will run it again once there's a
+     * network
+     */
+    @Override public boolean onStopJob(JobParameters params) {
+        Timber.d("onStopJob");
+
+        final Subscription refresh = mRefresh;
+        if (refresh != null) {
+            refresh.unsubscribe();
+            mRefresh = null;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,224 @@
+package com.emmaguy.todayilearned.refresh;
+
+import android.support.annotation.NonNull;
+import android.support.v4.util.SimpleArrayMap;
+
+import com.emmaguy.todayilearned.Analytics;
+import com.emmaguy.todayilearned.settings.ActionStorage;
+import com.emmaguy.todayilearned.sharedlib.Constants;
+import com.emmaguy.todayilearned.sharedlib.Post;
+import com.emmaguy.todayilearned.storage.TokenStorage;
+import com.emmaguy.todayilearned.storage.UserStorage;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.wearable.Asset;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Scheduler;
+import timber.log.Timber;
+
+/**
+ * Does one refresh: fetches posts and messages in parallel, then sends them all to the watch in one go.
+ * Blocks until they've been delivered, so callers must keep the device awake until it returns - it's
+ * run from both the {@link RetrieveService} and, from Lollipop, the {@link RefreshJobService}.
+ * <p>
+ * All of a refresh's requests run in the bulk {@link LaneExecutor}, so they never hold up actions from
+ * the watch. Once a refresh has got through, it also sends any actions waiting in the {@link ActionOutbox}
+ */
+public class Refresher {
+    private static final long SENT_POSTS_MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final long CONNECT_TIMEOUT_SECONDS = 30;
+
+    private final AdaptiveRefreshScheduler mAdaptiveRefreshScheduler;
+    private final UnreadDirectMessageRetriever mUnreadDirectMessageRetriever;
+    private final LatestPostsRetriever mLatestPostsRetriever;
+    private final ActionOutbox mActionOutbox;
+    private final HttpCacheStats mHttpCacheStats;
+    private final ImageCache mImageCache;
+    private final WearPayloadCompressor mWearPayloadCompressor;
+    private final WearableConnection mWearableConnection;
+    private final WearablePostSync mWearablePostSync;
+
+    private final ActionStorage mWearableActionStorage;
+    private final TokenStorage mTokenStorage;
+    private final UserStorage mUserStorage;
+    private final Analytics mAnalytics;
+
+    private final LaneExecutor mBulkLane;
+    private final Scheduler mBulkScheduler;
+
+    public Refresher(@NonNull AdaptiveRefreshScheduler adaptiveRefreshScheduler,
+                     @NonNull UnreadDirectMessageRetriever unreadDirectMessageRetriever,
+                     @NonNull LatestPostsRetriever latestPostsRetriever,
+                     @NonNull ActionOutbox actionOutbox,
+                     @NonNull HttpCacheStats httpCacheStats,
+                     @NonNull ImageCache imageCache,
+                     @NonNull WearPayloadCompressor wearPayloadCompressor,
+                     @NonNull WearableConnection wearableConnection,
+                     @NonNull ActionStorage wearableActionStorage,
+                     @NonNull TokenStorage tokenStorage,
+                     @NonNull UserStorage userStorage,
+                     @NonNull Analytics analytics,
+                     @NonNull LaneExecutor bulkLane,
+                     @NonNull Scheduler bulkScheduler) {
+        mAdaptiveRefreshScheduler = adaptiveRefreshScheduler;
+        mUnreadDirectMessageRetriever = unreadDirectMessageRetriever;
+        mLatestPostsRetriever = latestPostsRetriever;
+        mActionOutbox = actionOutbox;
+        mHttpCacheStats = httpCacheStats;
+        mImageCache = imageCache;
+        mWearPayloadCompressor = wearPayloadCompressor;
+        mWearableConnection = wearableConnection;
+        mWearableActionStorage = wearableActionStorage;
+        mTokenStorage = tokenStorage;
+        mUserStorage = userStorage;
+        mAnalytics = analytics;
+        mBulkLane = bulkLane;
+        mBulkScheduler = bulkScheduler;
+
+        mWearablePostSync = new WearablePostSync(wearPayloadCompressor, SENT_POSTS_MAX_AGE_MILLIS);
+    }
+
+    /**
+     * Messages are only marked as read, and posts as seen, once delivered, so any that fail to send are
+     * retrieved again next time. If the posts were retrieved, the new ones are recorded with the
+     * {@link AdaptiveRefreshScheduler}, but it's up to the caller to schedule the next refresh
+     *
+     * @return false if the posts couldn't be retrieved, e.g. because the network dropped, and the
+     * refresh is worth retrying
+     */
+    public boolean refresh(boolean informWatchIfNoPosts) {
+        Timber.d("refresh");
+        final GoogleApiClient googleApiClient = mWearableConnection.acquire();
+
+        mAnalytics.sendRefreshEvent(mUserStorage, mTokenStorage);
+
+        final String message = "refresh: " + mUserStorage.getRefreshInterval() + ", subreddits: " +
+                mUserStorage.getSubreddits() + ", sort: " + mUserStorage.getSortType() + ", number: " +
+                mUserStorage.getNumberToRequest();
+
+        List<Post> newPosts = Collections.emptyList();
+        boolean isSuccess = false;
+        try {
+            // The message retriever emits an empty list rather than an error, so this emits once
+            // unless the posts failed
+            final Refresh refresh = Observable.zip(
+                    mLatestPostsRetriever.retrieve().subscribeOn(mBulkScheduler),
+                    mUnreadDirectMessageRetriever.retrieve().subscribeOn(mBulkScheduler),
+                    Refresh::new)
+                    .toBlocking()
+                    .single();
+
+            isSuccess = true;
+            newPosts = refresh.mPosts;
+
+            final List<Post> postsAndMessages = refresh.getPostsAndMessages();
+            boolean isDelivered = true;
+            if (postsAndMessages.size() > 0) {
+                final String msg = message + ", posts " + refresh.mPosts.size() + ", messages " +
+                        refresh.mMessages.size();
+                isDelivered = sendPostsToWearable(googleApiClient, postsAndMessages, msg, refresh.mAssets);
+                if (isDelivered) {
+                    markMessagesAsRead(refresh.mMessages);
+                }
+            } else if (informWatchIfNoPosts && mWearableConnection.awaitConnected(
+                    CONNECT_TIMEOUT_SECONDS,
+                    TimeUnit.SECONDS)) {
+                WearListenerService.sendToPath(googleApiClient, Constants.PATH_NO_NEW_POSTS);
+            }
+
+            if (isDelivered) {
+                mLatestPostsRetriever.markDelivered(refresh.mLatestPosts);
+            }
+
+            // The network is up and the radio awake, so send anything from the watch that's waiting
+            mActionOutbox.drain();
+        } catch (RuntimeException e) {
+            Timber.e(e, "Refresher: Failed to refresh");
+        } finally {
+            mWearableConnection.release();
+            mAnalytics.sendHttpCacheStats(mHttpCacheStats.getAndReset());
+            mAnalytics.sendImageCacheStats(mImageCache.getAndResetStats());
+            mAnalytics.sendWearPayloadStats(mWearPayloadCompressor.getAndResetStats());
+            mAnalytics.sendLaneStats(mBulkLane.getAndResetStats());
+
+            // A refresh that failed says nothing about how busy the subreddits are
+            if (isSuccess) {
+                mAdaptiveRefreshScheduler.onRefreshed(newPosts);
+            }
+        }
+        return isSuccess;
+    }
+
+    private void markMessagesAsRead(@NonNull List<Post> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        try {
+            mUnreadDirectMessageRetriever.markAsRead(messages).toBlocking().lastOrDefault(null);
+        } catch (RuntimeException e) {
+            Timber.e(e, "Refresher: Failed to mark messages as read");
+        }
+    }
+
+    /**
+     * @return true if the posts were sent to the wearable
+     */
+    private boolean sendPostsToWearable(@NonNull GoogleApiClient googleApiClient,
+                                        @NonNull List<Post> posts, @NonNull final String msg,
+                                        @NonNull SimpleArrayMap<String, Asset> assets) {
+        if (!mWearableConnection.awaitConnected(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            Timber.d(msg + ", failed to connect to wearable");
+            return false;
+        }
+
+        final boolean isSuccess = mWearablePostSync.sync(googleApiClient,
+                posts,
+                assets,
+                mUserStorage.openOnPhoneDismissesAfterAction(),
+                mWearableActionStorage.getSelectedActionIds());
+        Timber.d(msg + ", success: " + isSuccess);
+
+        if (!isSuccess) {
+            Timber.d("Failed to send posts to wearable");
+        }
+        return isSuccess;
+    }
+
+    /**
+     * The posts and messages from one refresh, merged so they go to the watch in a single transfer
+     */
+    private static class Refresh {
+        private final LatestPostsRetriever.LatestPosts mLatestPosts;
+        private final List<Post> mPosts;
+        private final List<Post> mMessages;
+        private final SimpleArrayMap<String, Asset> mAssets = new SimpleArrayMap<>();
+
+        Refresh(LatestPostsRetriever.LatestPosts latestPosts, List<Post> messages) {
+            mLatestPosts = latestPosts;
+
+            final List<LatestPostsRetriever.PostAndImage> postAndImages = latestPosts.getPostAndImages();
+            mPosts = new ArrayList<>(postAndImages.size());
+            for (LatestPostsRetriever.PostAndImage p : postAndImages) {
+                if (p.getImage() != null) {
+                    mAssets.put(p.getPost().getId(), p.getImage());
+                }
+                mPosts.add(p.getPost());
+            }
+
+            mMessages = messages;
+        }
+
+        List<Post> getPostsAndMessages() {
+            final List<Post> postsAndMessages = new ArrayList<>(mPosts.size() + mMessages.size());
+            postsAndMessages.addAll(mPosts);
+            postsAndMessages.addAll(mMessages);
+            return postsAndMessages;
+        }
+    }
+}
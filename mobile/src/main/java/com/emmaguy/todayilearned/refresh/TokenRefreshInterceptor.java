@@ -9,14 +9,19 @@ import com.squareup.okhttp.Request;
 import com.squareup.okhttp.Response;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.HttpURLConnection;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import retrofit.RetrofitError;
 
 /**
  * Refresh a token - transparently to rest of the code. Will block a request whilst doing the token refresh,
- * then continue with the original request once we have a valid token again.
+ * then continue with the original request once we have a valid token again. Concurrent requests that find
+ * the token needs refreshing share a single refresh rather than each doing their own.
  * <p>
  * Created by emma on 14/06/15.
  */
@@ -26,6 +31,9 @@ public class TokenRefreshInterceptor implements Interceptor {
     private final TokenStorage mTokenStorage;
     private final RedditAuthenticationService mAuthenticationService;
 
+    private final Object mRefreshLock = new Object();
+    private FutureTask<Token> mInFlightRefresh; // guarded by mRefreshLock
+
     public TokenRefreshInterceptor(TokenStorage tokenStorage,
                                    RedditAuthenticationService authenticationService) {
         mTokenStorage = tokenStorage;
@@ -51,44 +59,112 @@ public class TokenRefreshInterceptor implements Interceptor {
         return response;
     }
 
-    // synchronized so we only renew one request at a time
-    @NonNull private synchronized Response requestAppOnlyTokenAndProceed(Chain chain,
-                                                                         Request originalRequest) throws
+    @NonNull private Response requestAppOnlyTokenAndProceed(Chain chain, Request originalRequest) throws
             IOException {
+        refreshOnce(() -> {
+            // Another request may have got a token whilst we were waiting to start
+            if (!mTokenStorage.hasNoToken()) {
+                return null;
+            }
+
+            try {
+                Token token = mAuthenticationService.appOnlyToken(Constants.GRANT_TYPE_INSTALLED_CLIENT,
+                        UUID.randomUUID().toString());
+                mTokenStorage.updateToken(token);
+                return token;
+            } catch (RetrofitError error) {
+                if (error.getResponse() == null || isServerError(error.getResponse())) {
+                    throw new RuntimeException(
+                            "Failed to retrieve app only token, empty response/server error: " + error.getCause());
+                } else {
+                    throw new RuntimeException("Failed to retrieve app only token, unknown cause: " + error
+                            .getCause());
+                }
+            }
+        });
+        return addHeaderAndProceedWithChain(chain, originalRequest);
+    }
+
+    @NonNull private Response renewTokenAndProceed(Chain chain, Request originalRequest) throws
+            IOException {
+        refreshOnce(() -> {
+            // Another request may have renewed the token whilst we were waiting to start
+            if (!mTokenStorage.hasTokenExpired()) {
+                return null;
+            }
+            return exchangeRefreshToken();
+        });
+        return addHeaderAndProceedWithChain(chain, originalRequest);
+    }
+
+    /**
+     * Renews the logged in user's token if it expires within the given window, so it can be done ahead of
+     * time rather than on the first request after it's expired. Shares any refresh already in flight
+     */
+    public void renewTokenAhead(long windowMillis) throws IOException {
+        refreshOnce(() -> {
+            if (mTokenStorage.hasNoToken()
+                    || mTokenStorage.getExpiryTimeMillis() - windowMillis > System.currentTimeMillis()) {
+                return null;
+            }
+            return exchangeRefreshToken();
+        });
+    }
+
+    private Token exchangeRefreshToken() {
         try {
-            Token token = mAuthenticationService.appOnlyToken(Constants.GRANT_TYPE_INSTALLED_CLIENT,
-                    UUID.randomUUID().toString());
+            Token token = mAuthenticationService.refreshToken(Constants.GRANT_TYPE_REFRESH_TOKEN,
+                    mTokenStorage.getRefreshToken());
             mTokenStorage.updateToken(token);
+            return token;
         } catch (RetrofitError error) {
             if (error.getResponse() == null || isServerError(error.getResponse())) {
                 throw new RuntimeException(
-                        "Failed to retrieve app only token, empty response/server error: " + error.getCause());
+                        "Failed to renew token, empty response/server error: " + error.getCause());
             } else {
-                throw new RuntimeException("Failed to retrieve app only token, unknown cause: " + error
-                        .getCause());
+                throw new RuntimeException("Failed to renew token, unknown cause: " + error.getCause());
             }
         }
-        return addHeaderAndProceedWithChain(chain, originalRequest);
     }
 
-    @NonNull
-    private synchronized Response renewTokenAndProceed(Chain chain, Request originalRequest) throws
-            IOException {
-        if (mTokenStorage.hasTokenExpired()) {
+    /**
+     * Runs the token exchange, unless one is already in flight - in which case waits for that one and
+     * shares its result. Only the exchange itself is serialised, the requests waiting on it all carry
+     * on in parallel once it's done
+     */
+    private void refreshOnce(Callable<Token> exchange) throws IOException {
+        FutureTask<Token> refresh;
+        boolean isOwner = false;
+        synchronized (mRefreshLock) {
+            refresh = mInFlightRefresh;
+            if (refresh == null) {
+                refresh = new FutureTask<>(exchange);
+                mInFlightRefresh = refresh;
+                isOwner = true;
+            }
+        }
+
+        if (isOwner) {
             try {
-                Token token = mAuthenticationService.refreshToken(Constants.GRANT_TYPE_REFRESH_TOKEN,
-                        mTokenStorage.getRefreshToken());
-                mTokenStorage.updateToken(token);
-            } catch (RetrofitError error) {
-                if (error.getResponse() == null || isServerError(error.getResponse())) {
-                    throw new RuntimeException(
-                            "Failed to renew token, empty response/server error: " + error.getCause());
-                } else {
-                    throw new RuntimeException("Failed to renew token, unknown cause: " + error.getCause());
+                refresh.run();
+            } finally {
+                synchronized (mRefreshLock) {
+                    mInFlightRefresh = null;
                 }
             }
         }
-        return addHeaderAndProceedWithChain(chain, originalRequest);
+
+        try {
+            refresh.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted whilst waiting for token refresh");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Failed to refresh token", e.getCause());
+        }
     }
 
     @NonNull private Response makeRequest(Chain chain, Request request) throws IOException {
@@ -0,0 +1,82 @@
+package com.emmaguy.todayilearned.refresh;
+
+import android.support.annotation.NonNull;
+
+import com.emmaguy.todayilearned.storage.TokenStorage;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscription;
+import timber.log.Timber;
+
+/**
+ * Renews the logged in user's token in the background when it's about to expire, so requests from the
+ * watch don't have to wait for a renewal first. The interceptor still renews on the request path if
+ * this hasn't managed to, e.g. because the process was killed
+ */
+public class TokenRenewalScheduler {
+    // Stops us retrying a failed renewal, or renewing a token that's short lived, in a tight loop
+    private static final long MIN_RESCHEDULE_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final TokenRefreshInterceptor mTokenRefreshInterceptor;
+    private final TokenStorage mTokenStorage;
+    private final Scheduler mScheduler;
+    private final long mRenewalWindowMillis;
+
+    private Subscription mPendingRenewal; // guarded by this
+
+    public TokenRenewalScheduler(@NonNull TokenRefreshInterceptor tokenRefreshInterceptor,
+                                 @NonNull TokenStorage tokenStorage,
+                                 @NonNull Scheduler scheduler, long renewalWindowMillis) {
+        mTokenRefreshInterceptor = tokenRefreshInterceptor;
+        mTokenStorage = tokenStorage;
+        mScheduler = scheduler;
+        mRenewalWindowMillis = renewalWindowMillis;
+    }
+
+    /**
+     * Schedules a renewal for when the current token enters the renewal window, replacing any renewal
+     * that's already scheduled. Safe to call whenever the token may have changed
+     */
+    public void schedule() {
+        schedule(0);
+    }
+
+    public synchronized void cancel() {
+        if (mPendingRenewal != null) {
+            mPendingRenewal.unsubscribe();
+            mPendingRenewal = null;
+        }
+    }
+
+    private synchronized void schedule(long minDelayMillis) {
+        cancel();
+
+        if (!mTokenStorage.isLoggedIn()) {
+            // App only tokens are requested on demand, there's nothing to renew
+            return;
+        }
+
+        final long renewAt = mTokenStorage.getExpiryTimeMillis() - mRenewalWindowMillis;
+        final long delayMillis = Math.max(minDelayMillis, renewAt - mScheduler.now());
+
+        Timber.d("Scheduling token renewal in %d ms", delayMillis);
+        mPendingRenewal = Observable.timer(delayMillis, TimeUnit.MILLISECONDS, mScheduler)
+                .subscribe(ignored -> renew(),
+                        throwable -> Timber.e(throwable, "Token renewal timer failed"));
+    }
+
+    private void renew() {
+        try {
+            mTokenRefreshInterceptor.renewTokenAhead(mRenewalWindowMillis);
+        } catch (IOException | RuntimeException e) {
+            Timber.e(e, "Failed to renew token ahead of expiry, will retry");
+        }
+
+        // Re-arm for the new token's expiry, or to retry if that failed
+        schedule(MIN_RESCHEDULE_DELAY_MILLIS);
+    }
+}
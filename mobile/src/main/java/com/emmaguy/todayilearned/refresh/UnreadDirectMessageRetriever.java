@@ -2,10 +2,12 @@ package com.emmaguy.todayilearned.refresh;
 
 import android.support.annotation.NonNull;
 
+import com.emmaguy.todayilearned.common.StringUtils;
 import com.emmaguy.todayilearned.sharedlib.Post;
 import com.emmaguy.todayilearned.storage.TokenStorage;
 import com.emmaguy.todayilearned.storage.UserStorage;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -13,9 +15,13 @@ import rx.Observable;
 import timber.log.Timber;
 
 /**
- * Retrieves all unread direct messages for the logged in user, marks as read on successful retrieval
+ * Retrieves all unread direct messages for the logged in user. They're only marked as read once they've
+ * been delivered, so a message that fails to reach the watch is retrieved again next time
  */
 public class UnreadDirectMessageRetriever {
+    // Unread messages come a page of 25 at a time, so this is usually a single request
+    static final int MARK_AS_READ_BATCH_SIZE = 25;
+
     private final RedditService mRedditService;
 
     private final TokenStorage mTokenStorage;
@@ -32,16 +38,7 @@ public class UnreadDirectMessageRetriever {
     @NonNull public Observable<List<Post>> retrieve() {
         return Observable.defer(() -> {
             if (mTokenStorage.isLoggedIn() && mUserStorage.messagesEnabled()) {
-                return mRedditService.unreadMessages().flatMap(posts -> {
-                    if (!posts.isEmpty()) {
-                        MarkAllRead markAllRead = mRedditService.markAllMessagesRead();
-                        if (markAllRead.hasErrors()) {
-                            throw new RuntimeException("Failed to mark all messages as read: " + markAllRead);
-                        }
-                    }
-
-                    return Observable.just(posts);
-                });
+                return mRedditService.unreadMessages();
             } else {
                 return Observable.just(Collections.<Post>emptyList());
             }
@@ -51,4 +48,25 @@ public class UnreadDirectMessageRetriever {
             return Observable.just(Collections.<Post>emptyList());
         });
     }
+
+    /**
+     * Marks the given messages as read, batching their fullnames into as few requests as possible.
+     * Completes when every batch has been marked, or errors if any fails
+     */
+    @NonNull public Observable<Void> markAsRead(@NonNull final List<Post> messages) {
+        final List<String> fullnames = new ArrayList<>(messages.size());
+        for (Post message : messages) {
+            if (!StringUtils.isEmpty(message.getFullname())) {
+                fullnames.add(message.getFullname());
+            }
+        }
+
+        final List<String> batches = new ArrayList<>();
+        for (int i = 0; i < fullnames.size(); i += MARK_AS_READ_BATCH_SIZE) {
+            batches.add(StringUtils.join(",",
+                    fullnames.subList(i, Math.min(i + MARK_AS_READ_BATCH_SIZE, fullnames.size()))));
+        }
+
+        return Observable.from(batches).concatMap(mRedditService::markMessagesRead).ignoreElements();
+    }
 }
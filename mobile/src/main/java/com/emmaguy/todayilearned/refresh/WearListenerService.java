@@ -2,6 +2,7 @@ package com.emmaguy.todayilearned.refresh;
 
 import android.content.Intent;
 import android.net.Uri;
+import android.os.Build;
 import android.text.TextUtils;
 
 import com.commonsware.cwac.wakeful.WakefulIntentService;
@@ -9,8 +10,10 @@ import com.emmaguy.todayilearned.Analytics;
 import com.emmaguy.todayilearned.App;
 import com.emmaguy.todayilearned.common.Logger;
 import com.emmaguy.todayilearned.common.PocketUtils;
+import com.emmaguy.todayilearned.sharedlib.BinaryCodec;
 import com.emmaguy.todayilearned.sharedlib.Comment;
 import com.emmaguy.todayilearned.sharedlib.Constants;
+import com.emmaguy.todayilearned.storage.PendingAction;
 import com.emmaguy.todayilearned.storage.TokenStorage;
 import com.google.android.gms.common.api.GoogleApiClient;
 import com.google.android.gms.common.data.FreezableUtils;
@@ -23,27 +26,33 @@ import com.google.android.gms.wearable.PutDataMapRequest;
 import com.google.android.gms.wearable.PutDataRequest;
 import com.google.android.gms.wearable.Wearable;
 import com.google.android.gms.wearable.WearableListenerService;
-import com.google.gson.Gson;
 
+import java.util.Arrays;
 import java.util.List;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 
 import rx.Observer;
 import rx.android.schedulers.AndroidSchedulers;
-import rx.schedulers.Schedulers;
 import timber.log.Timber;
 
 public class WearListenerService extends WearableListenerService {
-    @Inject RedditService mRedditService;
+    @Inject MoreCommentsRetriever mMoreCommentsRetriever;
+    @Inject @Named("interactive") RedditService mRedditService;
 
     @Inject TokenStorage mTokenStorage;
     @Inject Analytics mAnalytics;
-    @Inject Gson mGson;
+    @Inject WearPayloadCompressor mWearPayloadCompressor;
+    @Inject WearableConnection mWearableConnection;
+    @Inject ActionOutbox mActionOutbox;
+    @Inject ActionOutboxJobScheduler mActionOutboxJobScheduler;
+
+    @Inject @Named("interactive") LaneExecutor mInteractiveLane;
 
     private GoogleApiClient mGoogleApiClient;
 
-    private static String getVoteType(int voteDirection) {
+    static String getVoteType(int voteDirection) {
         return voteDirection > 0 ? Logger.LOG_EVENT_VOTE_UP : Logger.LOG_EVENT_VOTE_DOWN;
     }
 
@@ -58,9 +67,15 @@ public class WearListenerService extends WearableListenerService {
 
         App.with(this).getAppComponent().inject(this);
 
-        mGoogleApiClient = new GoogleApiClient.Builder(this).addApi(Wearable.API).build();
+        mGoogleApiClient = mWearableConnection.acquire();
+    }
+
+    @Override public void onDestroy() {
+        // Results of requests still in flight are sent within the connection's idle timeout
+        mWearableConnection.release();
+        mAnalytics.sendLaneStats(mInteractiveLane.getAndResetStats());
 
-        mGoogleApiClient.connect();
+        super.onDestroy();
     }
 
     @Override public void onMessageReceived(MessageEvent messageEvent) {
@@ -125,6 +140,14 @@ public class WearListenerService extends WearableListenerService {
                     if (!TextUtils.isEmpty(permalink)) {
                         getComments(permalink);
                     }
+                } else if (Constants.PATH_MORE_COMMENTS.equals(path)) {
+                    String linkFullname = dataMap.getString(Constants.KEY_LINK_FULLNAME);
+                    String childIds = dataMap.getString(Constants.KEY_MORE_CHILD_IDS);
+                    int replyLevel = dataMap.getInt(Constants.KEY_REPLY_LEVEL);
+                    if (!TextUtils.isEmpty(linkFullname) && !TextUtils.isEmpty(childIds)) {
+                        getMoreComments(linkFullname, Arrays.asList(TextUtils.split(childIds, ",")),
+                                replyLevel);
+                    }
                 } else if (Constants.PATH_LOGGING.equals(path)) {
                     String message = dataMap.getString(Constants.PATH_KEY_MESSAGE);
                     Timber.e(message);
@@ -135,7 +158,6 @@ public class WearListenerService extends WearableListenerService {
 
     private void getComments(String permalink) {
         mRedditService.comments(permalink, "best")
-                .subscribeOn(Schedulers.newThread())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(comments -> {
                     if (comments == null) {
@@ -154,9 +176,24 @@ public class WearListenerService extends WearableListenerService {
                 });
     }
 
+    private void getMoreComments(String linkFullname, List<String> childIds, int replyLevel) {
+        mMoreCommentsRetriever.retrieve(linkFullname, childIds, replyLevel)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(comments -> {
+                    sendComments(comments);
+                    mAnalytics.sendEvent(Logger.LOG_EVENT_GET_COMMENTS, Logger.LOG_EVENT_SUCCESS);
+                }, throwable -> {
+                    Timber.e(throwable, "Failed to get more comments");
+                    mAnalytics.sendEvent(Logger.LOG_EVENT_GET_COMMENTS, Logger.LOG_EVENT_FAILURE);
+                    sendToPath(mGoogleApiClient, Constants.PATH_GET_COMMENTS_RESULT_FAILED);
+                });
+    }
+
     private void sendComments(final List<Comment> comments) {
         PutDataMapRequest mapRequest = PutDataMapRequest.create(Constants.PATH_COMMENTS);
-        mapRequest.getDataMap().putString(Constants.KEY_REDDIT_POSTS, mGson.toJson(comments));
+        mapRequest.getDataMap()
+                .putByteArray(Constants.KEY_REDDIT_POSTS,
+                        mWearPayloadCompressor.compress(BinaryCodec.encodeComments(comments)));
         mapRequest.getDataMap().putLong("timestamp", System.currentTimeMillis());
 
         PutDataRequest request = mapRequest.asPutDataRequest();
@@ -165,14 +202,40 @@ public class WearListenerService extends WearableListenerService {
                         .getStatus()));
     }
 
+    /**
+     * Queues an action that failed because of the network in the outbox, to be sent later, if it's safe
+     * to send again
+     *
+     * @return false if the action can't be retried, so its failure should be reported to the watch
+     */
+    private boolean queueForRetry(Throwable e, PendingAction action) {
+        if (!ActionOutbox.isRetryable(action, e)) {
+            return false;
+        }
+
+        mActionOutbox.add(action);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            mActionOutboxJobScheduler.schedule(mActionOutbox.getNextAttemptDelayMillis());
+        }
+        return true;
+    }
+
     private void vote(String fullname, final int voteDirection) {
+        // This vote replaces any earlier one on the post that's still waiting to be retried
+        mActionOutbox.removeVotes(fullname);
+
         mRedditService.vote(fullname, voteDirection)
-                .subscribeOn(Schedulers.newThread())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(v -> {
 
                 }, e -> {
                     Timber.e(e, "Failed to vote");
+                    if (queueForRetry(e, PendingAction.vote(fullname, voteDirection))) {
+                        mAnalytics.sendEvent(getVoteType(voteDirection), Logger.LOG_EVENT_QUEUED);
+                        sendToPath(mGoogleApiClient, Constants.PATH_VOTE_RESULT_SUCCESS);
+                        return;
+                    }
+
                     mAnalytics.sendEvent(getVoteType(voteDirection), Logger.LOG_EVENT_FAILURE);
                     sendToPath(mGoogleApiClient, Constants.PATH_VOTE_RESULT_FAILED);
                 }, () -> {
@@ -183,7 +246,6 @@ public class WearListenerService extends WearableListenerService {
 
     private void replyToDirectMessage(String subject, String message, String toUser) {
         mRedditService.replyToDirectMessage(subject, message, toUser)
-                .subscribeOn(Schedulers.newThread())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Observer<RedditResponse>() {
                     @Override public void onNext(RedditResponse response) {
@@ -198,8 +260,15 @@ public class WearListenerService extends WearableListenerService {
                     }
 
                     @Override public void onError(Throwable e) {
-                        mAnalytics.sendEvent(Logger.LOG_EVENT_SEND_DM, Logger.LOG_EVENT_FAILURE);
                         Timber.e(e, "Failed to reply to direct message");
+                        if (queueForRetry(e,
+                                PendingAction.replyToDirectMessage(subject, message, toUser))) {
+                            mAnalytics.sendEvent(Logger.LOG_EVENT_SEND_DM, Logger.LOG_EVENT_QUEUED);
+                            sendToPath(mGoogleApiClient, Constants.PATH_POST_REPLY_RESULT_SUCCESS);
+                            return;
+                        }
+
+                        mAnalytics.sendEvent(Logger.LOG_EVENT_SEND_DM, Logger.LOG_EVENT_FAILURE);
                         sendToPath(mGoogleApiClient, Constants.PATH_POST_REPLY_RESULT_FAILURE);
                     }
                 });
@@ -207,7 +276,6 @@ public class WearListenerService extends WearableListenerService {
 
     private void replyToRedditPost(String fullname, String message) {
         mRedditService.commentOnPost(message, fullname)
-                .subscribeOn(Schedulers.newThread())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Observer<RedditResponse>() {
                     @Override public void onNext(RedditResponse response) {
@@ -223,9 +291,16 @@ public class WearListenerService extends WearableListenerService {
                     }
 
                     @Override public void onError(Throwable e) {
+                        Timber.e(e, "Failed to reply to reddit post");
+                        if (queueForRetry(e, PendingAction.replyToPost(fullname, message))) {
+                            mAnalytics.sendEvent(Logger.LOG_EVENT_REPLY_TO_POST,
+                                    Logger.LOG_EVENT_QUEUED);
+                            sendToPath(mGoogleApiClient, Constants.PATH_POST_REPLY_RESULT_SUCCESS);
+                            return;
+                        }
+
                         mAnalytics.sendEvent(Logger.LOG_EVENT_REPLY_TO_POST,
                                 Logger.LOG_EVENT_FAILURE);
-                        Timber.e(e, "Failed to reply to reddit post");
                         sendToPath(mGoogleApiClient, Constants.PATH_POST_REPLY_RESULT_FAILURE);
                     }
                 });
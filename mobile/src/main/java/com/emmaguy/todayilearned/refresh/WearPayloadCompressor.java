@@ -0,0 +1,91 @@
+package com.emmaguy.todayilearned.refresh;
+
+import com.emmaguy.todayilearned.sharedlib.PayloadCompression;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compresses payloads over the threshold before they're sent to the watch, counting the raw and sent
+ * sizes and the time spent compressing, so we can see if the bandwidth saved is worth the cpu
+ */
+public class WearPayloadCompressor {
+    private final int mThresholdBytes;
+
+    private final AtomicInteger mPayloads = new AtomicInteger();
+    private final AtomicInteger mCompressedPayloads = new AtomicInteger();
+    private final AtomicLong mRawBytes = new AtomicLong();
+    private final AtomicLong mSentBytes = new AtomicLong();
+    private final AtomicLong mCompressionNanos = new AtomicLong();
+
+    public WearPayloadCompressor(int thresholdBytes) {
+        mThresholdBytes = thresholdBytes;
+    }
+
+    public byte[] compress(byte[] payload) {
+        final long start = System.nanoTime();
+        final byte[] bytes = PayloadCompression.compress(payload, mThresholdBytes);
+        mCompressionNanos.addAndGet(System.nanoTime() - start);
+
+        mPayloads.incrementAndGet();
+        if (PayloadCompression.isCompressed(bytes)) {
+            mCompressedPayloads.incrementAndGet();
+        }
+        mRawBytes.addAndGet(payload.length);
+        mSentBytes.addAndGet(bytes.length);
+        return bytes;
+    }
+
+    /**
+     * @return the counts since the last call, resetting them all back to zero
+     */
+    public Stats getAndResetStats() {
+        return new Stats(mPayloads.getAndSet(0),
+                mCompressedPayloads.getAndSet(0),
+                mRawBytes.getAndSet(0),
+                mSentBytes.getAndSet(0),
+                TimeUnit.NANOSECONDS.toMillis(mCompressionNanos.getAndSet(0)));
+    }
+
+    public static class Stats {
+        private final int mPayloads;
+        private final int mCompressedPayloads;
+        private final long mRawBytes;
+        private final long mSentBytes;
+        private final long mCompressionMillis;
+
+        Stats(int payloads, int compressedPayloads, long rawBytes, long sentBytes, long compressionMillis) {
+            mPayloads = payloads;
+            mCompressedPayloads = compressedPayloads;
+            mRawBytes = rawBytes;
+            mSentBytes = sentBytes;
+            mCompressionMillis = compressionMillis;
+        }
+
+        public int getPayloads() {
+            return mPayloads;
+        }
+
+        public int getCompressedPayloads() {
+            return mCompressedPayloads;
+        }
+
+        public long getRawBytes() {
+            return mRawBytes;
+        }
+
+        public long getSentBytes() {
+            return mSentBytes;
+        }
+
+        public long getCompressionMillis() {
+            return mCompressionMillis;
+        }
+
+        @Override public String toString() {
+            return "payloads: " + mPayloads + ", compressed: " + mCompressedPayloads + ", raw bytes: " +
+                    mRawBytes + ", sent bytes: " + mSentBytes + ", compression millis: " + mCompressionMillis;
+        }
+    }
+}
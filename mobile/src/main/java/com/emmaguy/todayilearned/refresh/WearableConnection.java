@@ -0,0 +1,101 @@
+package com.emmaguy.todayilearned.refresh;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.wearable.Wearable;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscription;
+import timber.log.Timber;
+
+/**
+ * One {@link GoogleApiClient} for the whole process, rather than each service connecting its own every time
+ * it does some work. Each piece of work {@link #acquire()}s the client and {@link #release()}s it when done,
+ * the client stays connected whilst anything holds it and is disconnected once nothing has for the idle
+ * timeout, so back to back refreshes and actions from the watch reuse the same connection
+ */
+public class WearableConnection {
+    private final GoogleApiClient mGoogleApiClient;
+    private final Scheduler mScheduler;
+    private final long mIdleTimeoutMillis;
+
+    private int mReferenceCount; // guarded by this
+    private Subscription mPendingDisconnect; // guarded by this
+
+    public WearableConnection(@NonNull Context context, @NonNull Scheduler scheduler, long idleTimeoutMillis) {
+        this(new GoogleApiClient.Builder(context).addApi(Wearable.API).build(), scheduler, idleTimeoutMillis);
+    }
+
+    WearableConnection(@NonNull GoogleApiClient googleApiClient, @NonNull Scheduler scheduler,
+                       long idleTimeoutMillis) {
+        mGoogleApiClient = googleApiClient;
+        mScheduler = scheduler;
+        mIdleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Starts connecting if we aren't already, without waiting for it. Every call must be matched by a call
+     * to {@link #release()}
+     */
+    @NonNull public synchronized GoogleApiClient acquire() {
+        mReferenceCount++;
+        cancelPendingDisconnect();
+
+        if (!mGoogleApiClient.isConnected() && !mGoogleApiClient.isConnecting()) {
+            mGoogleApiClient.connect();
+        }
+        return mGoogleApiClient;
+    }
+
+    public synchronized void release() {
+        if (mReferenceCount == 0) {
+            Timber.w("WearableConnection released more times than it was acquired");
+            return;
+        }
+
+        mReferenceCount--;
+        if (mReferenceCount == 0) {
+            mPendingDisconnect = Observable.timer(mIdleTimeoutMillis, TimeUnit.MILLISECONDS, mScheduler)
+                    .subscribe(ignored -> disconnectIfIdle(),
+                            throwable -> Timber.e(throwable, "Wearable idle timer failed"));
+        }
+    }
+
+    /**
+     * Blocks until the acquired client is connected, so must be called off the main thread
+     *
+     * @return true if it's connected
+     */
+    public boolean awaitConnected(long timeout, TimeUnit unit) {
+        if (mGoogleApiClient.isConnected()) {
+            return true;
+        }
+
+        final ConnectionResult result = mGoogleApiClient.blockingConnect(timeout, unit);
+        if (!result.isSuccess()) {
+            Timber.d("Failed to connect to wearable: %s", result);
+        }
+        return result.isSuccess();
+    }
+
+    private synchronized void disconnectIfIdle() {
+        mPendingDisconnect = null;
+        if (mReferenceCount == 0 && (mGoogleApiClient.isConnected() || mGoogleApiClient.isConnecting())) {
+            Timber.d("Disconnecting idle wearable connection");
+            mGoogleApiClient.disconnect();
+        }
+    }
+
+    private void cancelPendingDisconnect() {
+        if (mPendingDisconnect != null) {
+            mPendingDisconnect.unsubscribe();
+            mPendingDisconnect = null;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.emmaguy.todayilearned.refresh;
+
+import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.SimpleArrayMap;
+
+import com.emmaguy.todayilearned.common.Clock;
+import com.emmaguy.todayilearned.sharedlib.BinaryCodec;
+import com.emmaguy.todayilearned.sharedlib.Constants;
+import com.emmaguy.todayilearned.sharedlib.PayloadCompression;
+import com.emmaguy.todayilearned.sharedlib.Post;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.wearable.Asset;
+import com.google.android.gms.wearable.DataApi;
+import com.google.android.gms.wearable.DataItem;
+import com.google.android.gms.wearable.DataItemBuffer;
+import com.google.android.gms.wearable.DataMap;
+import com.google.android.gms.wearable.DataMapItem;
+import com.google.android.gms.wearable.PutDataMapRequest;
+import com.google.android.gms.wearable.PutDataRequest;
+import com.google.android.gms.wearable.Wearable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import timber.log.Timber;
+
+/**
+ * Sends posts to the watch as one DataItem per post, keyed by fullname, rather than a single item holding
+ * every post. Posts the watch already has an identical copy of aren't put again, so they (and their images)
+ * aren't transferred again, and items older than the max age are deleted.
+ * <p>
+ * Uses blocking calls, so must be called off the main thread
+ */
+class WearablePostSync {
+    private final WearPayloadCompressor mCompressor;
+    private final Clock mClock;
+    private final long mMaxAgeMillis;
+
+    WearablePostSync(@NonNull WearPayloadCompressor compressor, long maxAgeMillis) {
+        this(compressor, maxAgeMillis, Clock.SYSTEM);
+    }
+
+    WearablePostSync(@NonNull WearPayloadCompressor compressor, long maxAgeMillis, @NonNull Clock clock) {
+        mCompressor = compressor;
+        mMaxAgeMillis = maxAgeMillis;
+        mClock = clock;
+    }
+
+    /**
+     * @return true if every put and delete succeeded
+     */
+    boolean sync(@NonNull GoogleApiClient client, @NonNull List<Post> posts,
+                 @Nullable SimpleArrayMap<String, Asset> assets, boolean openOnPhoneDismisses,
+                 @NonNull ArrayList<Integer> actionOrder) {
+        final Delta delta = diff(getSentItems(client), posts);
+        Timber.d("Syncing posts to wearable, put: %d, unchanged: %d, delete: %d",
+                delta.mPostsToPut.size(),
+                posts.size() - delta.mPostsToPut.size(),
+                delta.mPathsToDelete.size());
+
+        boolean isSuccess = true;
+        for (Post post : delta.mPostsToPut) {
+            final PutDataMapRequest mapRequest = PutDataMapRequest.create(getPath(post));
+            final DataMap dataMap = mapRequest.getDataMap();
+
+            final Asset image = assets == null ? null : assets.get(post.getId());
+            if (image != null) {
+                dataMap.putAsset(Constants.KEY_REDDIT_POST_IMAGE, image);
+            }
+
+            dataMap.putLong(Constants.KEY_SENT_TIMESTAMP, mClock.currentTimeMillis());
+            dataMap.putByteArray(Constants.KEY_REDDIT_POST,
+                    mCompressor.compress(BinaryCodec.encodePost(post)));
+            dataMap.putBoolean(Constants.KEY_DISMISS_AFTER_ACTION, openOnPhoneDismisses);
+            dataMap.putIntegerArrayList(Constants.KEY_ACTION_ORDER, actionOrder);
+
+            final PutDataRequest request = mapRequest.asPutDataRequest();
+            final DataApi.DataItemResult result = Wearable.DataApi.putDataItem(client, request).await();
+            if (!result.getStatus().isSuccess()) {
+                Timber.d("Failed to put post %s: %s", post.getFullname(), result.getStatus());
+                isSuccess = false;
+            }
+        }
+
+        for (String path : delta.mPathsToDelete) {
+            final DataApi.DeleteDataItemsResult result = Wearable.DataApi.deleteDataItems(client,
+                    getUri(path)).await();
+            if (!result.getStatus().isSuccess()) {
+                Timber.d("Failed to delete %s: %s", path, result.getStatus());
+                isSuccess = false;
+            }
+        }
+
+        return isSuccess;
+    }
+
+    @NonNull Delta diff(@NonNull List<SentItem> sentItems, @NonNull List<Post> posts) {
+        final Map<String, SentItem> sentByPath = new HashMap<>(sentItems.size());
+        for (SentItem item : sentItems) {
+            sentByPath.put(item.mPath, item);
+        }
+
+        final List<Post> postsToPut = new ArrayList<>();
+        for (Post post : posts) {
+            final String path = getPath(post);
+            final SentItem sent = sentByPath.remove(path);
+            if (sent == null || !Arrays.equals(BinaryCodec.encodePost(post), sent.mPostBytes)) {
+                postsToPut.add(post);
+            }
+        }
+
+        final List<String> pathsToDelete = new ArrayList<>();
+        final long now = mClock.currentTimeMillis();
+        for (SentItem item : sentByPath.values()) {
+            // The single item every post used to be sent in is no longer read by the watch
+            if (Constants.PATH_REDDIT_POSTS.equals(item.mPath) || now - item.mSentTimestamp > mMaxAgeMillis) {
+                pathsToDelete.add(item.mPath);
+            }
+        }
+
+        return new Delta(postsToPut, pathsToDelete);
+    }
+
+    private List<SentItem> getSentItems(GoogleApiClient client) {
+        final List<SentItem> sentItems = new ArrayList<>();
+        final DataItemBuffer buffer = Wearable.DataApi.getDataItems(client,
+                getUri(Constants.PATH_REDDIT_POSTS),
+                DataApi.FILTER_PREFIX).await();
+        try {
+            if (!buffer.getStatus().isSuccess()) {
+                Timber.d("Failed to get sent posts: %s", buffer.getStatus());
+                return sentItems;
+            }
+
+            for (DataItem item : buffer) {
+                final DataMap dataMap = DataMapItem.fromDataItem(item).getDataMap();
+                sentItems.add(new SentItem(item.getUri().getPath(),
+                        getPostBytes(dataMap),
+                        dataMap.getLong(Constants.KEY_SENT_TIMESTAMP)));
+            }
+        } finally {
+            buffer.release();
+        }
+        return sentItems;
+    }
+
+    // Compressed bytes can differ for the same post, so compare what's inside instead
+    @Nullable private byte[] getPostBytes(DataMap dataMap) {
+        final byte[] bytes = dataMap.getByteArray(Constants.KEY_REDDIT_POST);
+        if (bytes == null) {
+            return null;
+        }
+
+        try {
+            return PayloadCompression.decompress(bytes);
+        } catch (IOException e) {
+            // Most likely sent by an older version, so just send it again
+            return null;
+        }
+    }
+
+    // No host, so that it matches the items on every node
+    private Uri getUri(String path) {
+        return new Uri.Builder().scheme(PutDataRequest.WEAR_URI_SCHEME).path(path).build();
+    }
+
+    private String getPath(Post post) {
+        return Constants.PATH_REDDIT_POST_PREFIX + post.getFullname();
+    }
+
+    static class SentItem {
+        private final String mPath;
+        private final byte[] mPostBytes;
+        private final long mSentTimestamp;
+
+        SentItem(String path, byte[] postBytes, long sentTimestamp) {
+            mPath = path;
+            mPostBytes = postBytes;
+            mSentTimestamp = sentTimestamp;
+        }
+    }
+
+    static class Delta {
+        private final List<Post> mPostsToPut;
+        private final List<String> mPathsToDelete;
+
+        Delta(List<Post> postsToPut, List<String> pathsToDelete) {
+            mPostsToPut = postsToPut;
+            mPathsToDelete = pathsToDelete;
+        }
+
+        List<Post> getPostsToPut() {
+            return mPostsToPut;
+        }
+
+        List<String> getPathsToDelete() {
+            return mPathsToDelete;
+        }
+    }
+}
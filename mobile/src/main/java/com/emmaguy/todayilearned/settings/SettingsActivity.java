@@ -24,15 +24,20 @@ import com.emmaguy.todayilearned.R;
 import com.emmaguy.todayilearned.common.Logger;
 import com.emmaguy.todayilearned.common.StringUtils;
 import com.emmaguy.todayilearned.common.Utils;
+import com.emmaguy.todayilearned.refresh.AdaptiveRefreshScheduler;
 import com.emmaguy.todayilearned.refresh.BackgroundAlarmListener;
 import com.emmaguy.todayilearned.refresh.RedditAuthenticationService;
 import com.emmaguy.todayilearned.refresh.RedditService;
 import com.emmaguy.todayilearned.refresh.Token;
+import com.emmaguy.todayilearned.refresh.TokenRenewalScheduler;
 import com.emmaguy.todayilearned.sharedlib.Constants;
+import com.emmaguy.todayilearned.storage.ListingCursorStorage;
+import com.emmaguy.todayilearned.storage.SeenPostStorage;
 import com.emmaguy.todayilearned.storage.TokenStorage;
 import com.emmaguy.todayilearned.storage.UserStorage;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 
 import de.psdev.licensesdialog.LicensesDialog;
 import rx.Observer;
@@ -59,9 +64,13 @@ public class SettingsActivity extends AppCompatActivity {
         @Inject RedditAccessTokenRequester mRedditAccessTokenRequester;
         @Inject RedditAuthenticationService mRedditAuthenticationService;
         @Inject RedditRequestTokenUriParser mRequestTokenUriParser;
+        @Inject AdaptiveRefreshScheduler mAdaptiveRefreshScheduler;
         @Inject BackgroundAlarmListener mAlarmListener;
         @Inject WearableActionStorage mWearableActionStorage;
-        @Inject RedditService mRedditService;
+        @Inject TokenRenewalScheduler mTokenRenewalScheduler;
+        @Inject @Named("interactive") RedditService mRedditService;
+        @Inject ListingCursorStorage mListingCursorStorage;
+        @Inject SeenPostStorage mSeenPostStorage;
         @Inject TokenStorage mTokenStorage;
         @Inject UserStorage mUserStorage;
         @Inject Analytics mAnalytics;
@@ -149,7 +158,7 @@ public class SettingsActivity extends AppCompatActivity {
             sb.append("Sort order: " + mUserStorage.getSortType() + "\n");
             sb.append("Refresh interval: " + mUserStorage.getRefreshInterval() + "\n");
             sb.append("Selected subreddits: " + mUserStorage.getSubreddits() + "\n");
-            sb.append("Stored timestamp: " + mUserStorage.getTimestamp() + "\n");
+            sb.append("Seen posts: " + mSeenPostStorage.size() + "\n");
             sb.append("Is logged in: " + mTokenStorage.isLoggedIn() + "\n");
             sb.append("Has token expired: " + mTokenStorage.hasTokenExpired() + "\n");
             sb.append("\n\n");
@@ -205,6 +214,7 @@ public class SettingsActivity extends AppCompatActivity {
 
                         @Override public void onNext(Token tokenResponse) {
                             mTokenStorage.saveToken(tokenResponse);
+                            mTokenRenewalScheduler.schedule();
                             if (mTokenStorage.isLoggedIn()) {
                                 toggleRedditSettings();
                                 initPrefsSummary(findPreference(getString(R.string.prefs_key_account_info)));
@@ -234,6 +244,7 @@ public class SettingsActivity extends AppCompatActivity {
             } else if (preferenceKey.equals(getString(R.string.prefs_key_account_info))) {
                 if (mTokenStorage.isLoggedIn()) {
                     mTokenStorage.clearToken();
+                    mTokenRenewalScheduler.cancel();
                     initSummary();
                     toggleRedditSettings();
                     Toast.makeText(getActivity(), R.string.logged_out, Toast.LENGTH_SHORT).show();
@@ -251,7 +262,7 @@ public class SettingsActivity extends AppCompatActivity {
             } else if (preferenceKey.equals(getString(R.string.prefs_force_expire_token))) {
                 mTokenStorage.forceExpireToken();
             } else if (preferenceKey.equals(getString(R.string.prefs_force_refresh_now))) {
-                mUserStorage.clearTimestamp();
+                clearSeenPosts();
                 mAlarmListener.sendWakefulWork(getActivity());
             } else if (preferenceKey.equals(getString(R.string.prefs_key_actions_order))) {
                 mAnalytics.sendEvent(Logger.LOG_EVENT_CUSTOMISE_ACTIONS, "");
@@ -312,9 +323,16 @@ public class SettingsActivity extends AppCompatActivity {
                                 ""));
                 WakefulIntentService.scheduleAlarms(mAlarmListener,
                         getActivity().getApplicationContext());
+            } else if (key.equals(getString(R.string.prefs_key_unmetered_only))) {
+                WakefulIntentService.scheduleAlarms(mAlarmListener,
+                        getActivity().getApplicationContext());
             } else if (key.equals(getString(R.string.prefs_key_sort_order)) || key.equals(
                     subredditPreference.getKey()) || key.equals(subredditPreference.getSelectedSubredditsKey())) {
-                clearSavedUtcTime();
+                clearSeenPosts();
+                // How busy the old subreddits were says nothing about the new ones
+                mAdaptiveRefreshScheduler.reset();
+                WakefulIntentService.scheduleAlarms(mAlarmListener,
+                        getActivity().getApplicationContext());
             } else if (key.equals(getString(R.string.prefs_key_actions_order)) || key.equals(
                     getString(R.string.prefs_key_actions_order_ordered))) {
                 toggleOpenOnPhoneAction();
@@ -348,8 +366,9 @@ public class SettingsActivity extends AppCompatActivity {
             }
         }
 
-        private void clearSavedUtcTime() {
-            mUserStorage.clearTimestamp();
+        private void clearSeenPosts() {
+            mListingCursorStorage.clear();
+            mSeenPostStorage.clear();
         }
 
         protected void initSummary() {
@@ -0,0 +1,9 @@
+package com.emmaguy.todayilearned.storage;
+
+import android.support.annotation.Nullable;
+
+public interface ListingCursorStorage {
+    @Nullable String getCursor(String listing);
+    void setCursor(String listing, String fullname);
+    void clear();
+}
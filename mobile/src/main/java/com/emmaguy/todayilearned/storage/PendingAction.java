@@ -0,0 +1,108 @@
+package com.emmaguy.todayilearned.storage;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.util.UUID;
+
+/**
+ * A vote or reply from the watch that couldn't be sent yet, waiting in the outbox to be retried.
+ * Stored as json, so the field names are part of the stored format
+ */
+public class PendingAction {
+    public static final String TYPE_VOTE = "vote";
+    public static final String TYPE_REPLY_TO_POST = "reply_to_post";
+    public static final String TYPE_REPLY_TO_DIRECT_MESSAGE = "reply_to_direct_message";
+
+    @SerializedName("id") private String mId;
+    @SerializedName("type") private String mType;
+    @SerializedName("fullname") private String mFullname;
+    @SerializedName("vote_direction") private int mVoteDirection;
+    @SerializedName("subject") private String mSubject;
+    @SerializedName("message") private String mMessage;
+    @SerializedName("to_user") private String mToUser;
+    @SerializedName("attempts") private int mAttempts;
+    @SerializedName("next_attempt_millis") private long mNextAttemptMillis;
+
+    // For gson
+    PendingAction() {
+    }
+
+    private PendingAction(String type) {
+        mId = UUID.randomUUID().toString();
+        mType = type;
+    }
+
+    public static PendingAction vote(String fullname, int voteDirection) {
+        final PendingAction action = new PendingAction(TYPE_VOTE);
+        action.mFullname = fullname;
+        action.mVoteDirection = voteDirection;
+        return action;
+    }
+
+    public static PendingAction replyToPost(String fullname, String message) {
+        final PendingAction action = new PendingAction(TYPE_REPLY_TO_POST);
+        action.mFullname = fullname;
+        action.mMessage = message;
+        return action;
+    }
+
+    public static PendingAction replyToDirectMessage(String subject, String message, String toUser) {
+        final PendingAction action = new PendingAction(TYPE_REPLY_TO_DIRECT_MESSAGE);
+        action.mSubject = subject;
+        action.mMessage = message;
+        action.mToUser = toUser;
+        return action;
+    }
+
+    public String getId() {
+        return mId;
+    }
+
+    public String getType() {
+        return mType;
+    }
+
+    public String getFullname() {
+        return mFullname;
+    }
+
+    public int getVoteDirection() {
+        return mVoteDirection;
+    }
+
+    public String getSubject() {
+        return mSubject;
+    }
+
+    public String getMessage() {
+        return mMessage;
+    }
+
+    public String getToUser() {
+        return mToUser;
+    }
+
+    public int getAttempts() {
+        return mAttempts;
+    }
+
+    public long getNextAttemptMillis() {
+        return mNextAttemptMillis;
+    }
+
+    public boolean isVoteOn(String fullname) {
+        return TYPE_VOTE.equals(mType) && fullname != null && fullname.equals(mFullname);
+    }
+
+    /**
+     * @param nextAttemptMillis wall clock time to try again from, so it survives a reboot
+     */
+    public void setNextAttempt(int attempts, long nextAttemptMillis) {
+        mAttempts = attempts;
+        mNextAttemptMillis = nextAttemptMillis;
+    }
+
+    @Override public String toString() {
+        return mType + " " + (mFullname == null ? mToUser : mFullname) + ", attempts: " + mAttempts;
+    }
+}
@@ -0,0 +1,12 @@
+package com.emmaguy.todayilearned.storage;
+
+import java.util.List;
+
+public interface PendingActionStorage {
+    /**
+     * @return the actions waiting to be retried, oldest first
+     */
+    List<PendingAction> getPendingActions();
+    void setPendingActions(List<PendingAction> actions);
+    void clear();
+}
@@ -0,0 +1,15 @@
+package com.emmaguy.todayilearned.storage;
+
+import java.util.Map;
+
+public interface RefreshStatsStorage {
+    /**
+     * @return the average number of new posts per hour, keyed by lower case subreddit name
+     */
+    Map<String, Double> getPostRates();
+    long getLastRefreshMillis();
+    int getConsecutiveEmptyRefreshes();
+
+    void save(Map<String, Double> postRates, long lastRefreshMillis, int consecutiveEmptyRefreshes);
+    void clear();
+}
@@ -0,0 +1,11 @@
+package com.emmaguy.todayilearned.storage;
+
+import java.util.Collection;
+
+public interface SeenPostStorage {
+    boolean hasSeen(String fullname);
+    void markSeen(Collection<String> fullnames, int maxEntries);
+    void clear();
+
+    int size();
+}
@@ -0,0 +1,118 @@
+package com.emmaguy.todayilearned.storage;
+
+import android.content.SharedPreferences;
+import android.content.res.Resources;
+import android.support.annotation.Nullable;
+
+import com.emmaguy.todayilearned.R;
+import com.emmaguy.todayilearned.common.Clock;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import timber.log.Timber;
+
+/**
+ * Stores the fullname of the newest post we've retrieved from each listing (subreddits and sort) in
+ * {@link SharedPreferences}. There's one listing per subreddit when they're requested separately, so a
+ * cursor is kept for each of them.
+ * <p>
+ * If the post a cursor points at gets deleted, asking for posts before it returns nothing forever. So
+ * a cursor is only handed out for a while after it was last moved, then we go back to a full page and
+ * pick up a fresh one. Cursors older than that are dropped whenever one is saved, which also drops the
+ * ones for subreddits the user no longer has selected.
+ */
+class SharedPreferencesListingCursorStorage implements ListingCursorStorage {
+    private static final String SEPARATOR = "@";
+
+    private final SharedPreferences mSharedPreferences;
+    private final long mMaxAgeMillis;
+    private final Clock mClock;
+
+    private final String mKey;
+
+    SharedPreferencesListingCursorStorage(SharedPreferences sharedPreferences, Resources resources,
+                                          long maxAgeMillis) {
+        this(sharedPreferences, resources, maxAgeMillis, Clock.SYSTEM);
+    }
+
+    SharedPreferencesListingCursorStorage(SharedPreferences sharedPreferences, Resources resources,
+                                          long maxAgeMillis, Clock clock) {
+        mSharedPreferences = sharedPreferences;
+        mMaxAgeMillis = maxAgeMillis;
+        mClock = clock;
+
+        mKey = resources.getString(R.string.prefs_key_listing_cursors);
+    }
+
+    @Override @Nullable public synchronized String getCursor(String listing) {
+        final long now = mClock.currentTimeMillis();
+        for (String value : getValues()) {
+            final Cursor cursor = Cursor.parse(value);
+            if (cursor != null && cursor.mListing.equals(listing) && !cursor.isExpired(now,
+                    mMaxAgeMillis)) {
+                return cursor.mFullname;
+            }
+        }
+        return null;
+    }
+
+    @Override public synchronized void setCursor(String listing, String fullname) {
+        final long now = mClock.currentTimeMillis();
+        final Set<String> values = new HashSet<>();
+        for (String value : getValues()) {
+            final Cursor cursor = Cursor.parse(value);
+            if (cursor != null && !cursor.mListing.equals(listing) && !cursor.isExpired(now,
+                    mMaxAgeMillis)) {
+                values.add(value);
+            }
+        }
+        values.add(listing + SEPARATOR + fullname + SEPARATOR + now);
+
+        mSharedPreferences.edit().putStringSet(mKey, values).apply();
+    }
+
+    @Override public synchronized void clear() {
+        mSharedPreferences.edit().remove(mKey).apply();
+    }
+
+    private Set<String> getValues() {
+        return mSharedPreferences.getStringSet(mKey, Collections.<String>emptySet());
+    }
+
+    private static class Cursor {
+        private final String mListing;
+        private final String mFullname;
+        private final long mSavedMillis;
+
+        Cursor(String listing, String fullname, long savedMillis) {
+            mListing = listing;
+            mFullname = fullname;
+            mSavedMillis = savedMillis;
+        }
+
+        // listing@fullname@savedMillis
+        @Nullable static Cursor parse(String value) {
+            final int millisSeparator = value.lastIndexOf(SEPARATOR);
+            final int fullnameSeparator = value.lastIndexOf(SEPARATOR, millisSeparator - 1);
+            if (fullnameSeparator <= 0 || millisSeparator - fullnameSeparator <= 1) {
+                return null;
+            }
+
+            try {
+                return new Cursor(value.substring(0, fullnameSeparator),
+                        value.substring(fullnameSeparator + 1, millisSeparator),
+                        Long.parseLong(value.substring(millisSeparator + 1)));
+            } catch (NumberFormatException e) {
+                Timber.d(e, "Ignoring malformed listing cursor: " + value);
+                return null;
+            }
+        }
+
+        boolean isExpired(long now, long maxAgeMillis) {
+            // If the clock has gone backwards, we can't tell how old it is
+            return now < mSavedMillis || now - mSavedMillis > maxAgeMillis;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.emmaguy.todayilearned.storage;
+
+import android.content.SharedPreferences;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import timber.log.Timber;
+
+/**
+ * Stores the outbox of actions waiting to be retried in {@link SharedPreferences}, as a json array so
+ * they stay in order and replies can contain any text. It only ever holds a handful of actions, so it's
+ * rewritten in full on every change
+ */
+class SharedPreferencesPendingActionStorage implements PendingActionStorage {
+    private static final Type TYPE_ACTIONS = new TypeToken<List<PendingAction>>() {
+    }.getType();
+
+    private final SharedPreferences mSharedPreferences;
+    private final String mKey;
+    private final Gson mGson;
+
+    SharedPreferencesPendingActionStorage(SharedPreferences sharedPreferences, String key, Gson gson) {
+        mSharedPreferences = sharedPreferences;
+        mKey = key;
+        mGson = gson;
+    }
+
+    @Override public List<PendingAction> getPendingActions() {
+        final String json = mSharedPreferences.getString(mKey, null);
+        if (json == null) {
+            return new ArrayList<>();
+        }
+
+        try {
+            final List<PendingAction> actions = mGson.fromJson(json, TYPE_ACTIONS);
+            if (actions != null) {
+                return actions;
+            }
+        } catch (JsonParseException e) {
+            Timber.d(e, "Ignoring malformed pending actions: " + json);
+        }
+        return new ArrayList<>();
+    }
+
+    @Override public void setPendingActions(List<PendingAction> actions) {
+        if (actions.isEmpty()) {
+            clear();
+        } else {
+            mSharedPreferences.edit().putString(mKey, mGson.toJson(actions, TYPE_ACTIONS)).apply();
+        }
+    }
+
+    @Override public void clear() {
+        mSharedPreferences.edit().remove(mKey).apply();
+    }
+}
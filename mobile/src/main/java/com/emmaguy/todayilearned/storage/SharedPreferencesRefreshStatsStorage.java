@@ -0,0 +1,85 @@
+package com.emmaguy.todayilearned.storage;
+
+import android.content.SharedPreferences;
+import android.content.res.Resources;
+
+import com.emmaguy.todayilearned.R;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import timber.log.Timber;
+
+/**
+ * Stores how busy each subreddit is, and how the last refreshes went, in {@link SharedPreferences}
+ */
+class SharedPreferencesRefreshStatsStorage implements RefreshStatsStorage {
+    private static final String SEPARATOR = "@";
+
+    private final SharedPreferences mSharedPreferences;
+
+    private final String mKeyPostRates;
+    private final String mKeyLastRefreshMillis;
+    private final String mKeyConsecutiveEmptyRefreshes;
+
+    SharedPreferencesRefreshStatsStorage(SharedPreferences sharedPreferences, Resources resources) {
+        mSharedPreferences = sharedPreferences;
+
+        mKeyPostRates = resources.getString(R.string.prefs_key_refresh_post_rates);
+        mKeyLastRefreshMillis = resources.getString(R.string.prefs_key_refresh_last_millis);
+        mKeyConsecutiveEmptyRefreshes = resources.getString(
+                R.string.prefs_key_refresh_consecutive_empty);
+    }
+
+    @Override public Map<String, Double> getPostRates() {
+        final Map<String, Double> rates = new HashMap<>();
+        final Set<String> values = mSharedPreferences.getStringSet(mKeyPostRates,
+                Collections.<String>emptySet());
+        for (String value : values) {
+            final int separator = value.lastIndexOf(SEPARATOR);
+            if (separator <= 0) {
+                continue;
+            }
+
+            try {
+                rates.put(value.substring(0, separator),
+                        Double.parseDouble(value.substring(separator + 1)));
+            } catch (NumberFormatException e) {
+                Timber.d(e, "Ignoring malformed post rate: " + value);
+            }
+        }
+        return rates;
+    }
+
+    @Override public long getLastRefreshMillis() {
+        return mSharedPreferences.getLong(mKeyLastRefreshMillis, 0);
+    }
+
+    @Override public int getConsecutiveEmptyRefreshes() {
+        return mSharedPreferences.getInt(mKeyConsecutiveEmptyRefreshes, 0);
+    }
+
+    @Override public void save(Map<String, Double> postRates, long lastRefreshMillis,
+                               int consecutiveEmptyRefreshes) {
+        final Set<String> values = new HashSet<>(postRates.size());
+        for (Map.Entry<String, Double> entry : postRates.entrySet()) {
+            values.add(entry.getKey() + SEPARATOR + entry.getValue());
+        }
+
+        mSharedPreferences.edit()
+                .putStringSet(mKeyPostRates, values)
+                .putLong(mKeyLastRefreshMillis, lastRefreshMillis)
+                .putInt(mKeyConsecutiveEmptyRefreshes, consecutiveEmptyRefreshes)
+                .apply();
+    }
+
+    @Override public void clear() {
+        mSharedPreferences.edit()
+                .remove(mKeyPostRates)
+                .remove(mKeyConsecutiveEmptyRefreshes)
+                .apply();
+    }
+}
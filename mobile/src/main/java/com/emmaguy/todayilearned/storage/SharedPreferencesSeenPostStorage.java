@@ -0,0 +1,154 @@
+package com.emmaguy.todayilearned.storage;
+
+import android.content.SharedPreferences;
+
+import com.emmaguy.todayilearned.common.Clock;
+import com.emmaguy.todayilearned.common.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import timber.log.Timber;
+
+/**
+ * Stores the fullnames of posts that have been delivered to the watch in {@link SharedPreferences}, each
+ * with the time it was last seen in a listing. Posts are only marked once the refresh that found them has
+ * synced them to the watch.
+ * <p>
+ * Lookups go to an in memory map, loaded on first use, so checking a post is O(1). The index is bounded
+ * to a max number of entries and a max age - whichever post was seen longest ago is dropped first. Posts
+ * are marked again every time they're still in the listing, so only ones that have dropped out of it
+ * can expire.
+ * <p>
+ * How many entries we need depends on how many subreddits are being refreshed, so the caller passes the
+ * max each time it marks posts, and minEntries is only the floor. Loading only drops entries by age, so a
+ * restart doesn't shrink the index before the next refresh says how big it should be.
+ */
+class SharedPreferencesSeenPostStorage implements SeenPostStorage {
+    private static final String SEPARATOR = "@";
+
+    private final SharedPreferences mSharedPreferences;
+    private final String mKey;
+    private final int mMinEntries;
+    private final long mMaxAgeMillis;
+    private final Clock mClock;
+
+    // fullname -> millis it was last seen, least recently seen first
+    private LinkedHashMap<String, Long> mSeen;
+
+    SharedPreferencesSeenPostStorage(SharedPreferences sharedPreferences, String key, int minEntries,
+                                     long maxAgeMillis) {
+        this(sharedPreferences, key, minEntries, maxAgeMillis, Clock.SYSTEM);
+    }
+
+    SharedPreferencesSeenPostStorage(SharedPreferences sharedPreferences, String key, int minEntries,
+                                     long maxAgeMillis, Clock clock) {
+        mSharedPreferences = sharedPreferences;
+        mKey = key;
+        mMinEntries = minEntries;
+        mMaxAgeMillis = maxAgeMillis;
+        mClock = clock;
+    }
+
+    @Override public synchronized boolean hasSeen(String fullname) {
+        return getSeen().containsKey(fullname);
+    }
+
+    @Override public synchronized void markSeen(Collection<String> fullnames, int maxEntries) {
+        final Map<String, Long> seen = getSeen();
+        final long now = mClock.currentTimeMillis();
+        for (String fullname : fullnames) {
+            if (StringUtils.isEmpty(fullname)) {
+                continue;
+            }
+
+            // Remove first so it moves to the most recently seen end
+            seen.remove(fullname);
+            seen.put(fullname, now);
+        }
+
+        evict(now, Math.max(mMinEntries, maxEntries));
+        save();
+    }
+
+    @Override public synchronized void clear() {
+        mSeen = new LinkedHashMap<>();
+        mSharedPreferences.edit().remove(mKey).apply();
+    }
+
+    @Override public synchronized int size() {
+        return getSeen().size();
+    }
+
+    private LinkedHashMap<String, Long> getSeen() {
+        if (mSeen == null) {
+            mSeen = load();
+            evict(mClock.currentTimeMillis(), Integer.MAX_VALUE);
+        }
+        return mSeen;
+    }
+
+    private LinkedHashMap<String, Long> load() {
+        final List<Entry> entries = new ArrayList<>();
+        for (String value : mSharedPreferences.getStringSet(mKey, Collections.<String>emptySet())) {
+            final int separator = value.lastIndexOf(SEPARATOR);
+            if (separator <= 0) {
+                continue;
+            }
+
+            try {
+                entries.add(new Entry(value.substring(0, separator),
+                        Long.parseLong(value.substring(separator + 1))));
+            } catch (NumberFormatException e) {
+                Timber.d(e, "Ignoring malformed seen post: " + value);
+            }
+        }
+
+        Collections.sort(entries, (lhs, rhs) -> lhs.mSeenMillis < rhs.mSeenMillis
+                ? -1
+                : (lhs.mSeenMillis == rhs.mSeenMillis ? 0 : 1));
+
+        final LinkedHashMap<String, Long> seen = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            seen.put(entry.mFullname, entry.mSeenMillis);
+        }
+        return seen;
+    }
+
+    // Entries are in the order they were seen, so we only ever need to look at the front
+    private void evict(long now, int maxEntries) {
+        final Iterator<Map.Entry<String, Long>> iterator = mSeen.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, Long> entry = iterator.next();
+            if (mSeen.size() <= maxEntries && now - entry.getValue() <= mMaxAgeMillis) {
+                break;
+            }
+            iterator.remove();
+        }
+    }
+
+    private void save() {
+        final Set<String> values = new HashSet<>(mSeen.size());
+        for (Map.Entry<String, Long> entry : mSeen.entrySet()) {
+            values.add(entry.getKey() + SEPARATOR + entry.getValue());
+        }
+        mSharedPreferences.edit().putStringSet(mKey, values).apply();
+    }
+
+    private static class Entry {
+        private final String mFullname;
+        private final long mSeenMillis;
+
+        Entry(String fullname, long seenMillis) {
+            mFullname = fullname;
+            mSeenMillis = seenMillis;
+        }
+    }
+}
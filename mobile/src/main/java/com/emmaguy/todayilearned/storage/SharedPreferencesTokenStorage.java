@@ -2,27 +2,47 @@ package com.emmaguy.todayilearned.storage;
 
 import android.content.SharedPreferences;
 import android.content.res.Resources;
-import android.text.TextUtils;
 
 import com.emmaguy.todayilearned.R;
+import com.emmaguy.todayilearned.common.Clock;
+import com.emmaguy.todayilearned.common.StringUtils;
 import com.emmaguy.todayilearned.refresh.Token;
 
-import org.joda.time.DateTime;
-import org.joda.time.DateTimeZone;
-
 import javax.inject.Inject;
 
 /**
- * Stores a token in {@link SharedPreferences}
+ * Stores a token in {@link SharedPreferences}.
+ * <p>
+ * Every api request checks the token, so reads come from an immutable in memory snapshot rather than
+ * {@link SharedPreferences}. Writes replace the snapshot and are then persisted.
  */
 class SharedPreferencesTokenStorage implements TokenStorage {
     private final SharedPreferences mSharedPreferences;
-    private final Resources mResources;
+    private final Clock mClock;
+
+    private final String mKeyExpiryMillis;
+    private final String mKeyAccessToken;
+    private final String mKeyRefreshToken;
+
+    private volatile Snapshot mSnapshot;
 
     @Inject SharedPreferencesTokenStorage(SharedPreferences sharedPreferences,
                                           Resources resources) {
+        this(sharedPreferences, resources, Clock.SYSTEM);
+    }
+
+    SharedPreferencesTokenStorage(SharedPreferences sharedPreferences, Resources resources,
+                                  Clock clock) {
         mSharedPreferences = sharedPreferences;
-        mResources = resources;
+        mClock = clock;
+
+        mKeyExpiryMillis = resources.getString(R.string.prefs_key_token_expiry_millis);
+        mKeyAccessToken = resources.getString(R.string.prefs_key_token_access_token);
+        mKeyRefreshToken = resources.getString(R.string.prefs_key_token_refresh_token);
+
+        mSnapshot = createSnapshot(mSharedPreferences.getLong(mKeyExpiryMillis, -1),
+                mSharedPreferences.getString(mKeyAccessToken, ""),
+                mSharedPreferences.getString(mKeyRefreshToken, ""));
     }
 
     @Override public boolean isLoggedIn() {
@@ -30,59 +50,91 @@ class SharedPreferencesTokenStorage implements TokenStorage {
     }
 
     @Override public boolean hasNoToken() {
-        return TextUtils.isEmpty(getRefreshToken()) || TextUtils.isEmpty(getAccessToken());
+        final Snapshot snapshot = mSnapshot;
+        return StringUtils.isEmpty(snapshot.mRefreshToken) || StringUtils.isEmpty(snapshot.mAccessToken);
     }
 
     @Override public boolean hasTokenExpired() {
-        long expiryTime = mSharedPreferences.getLong(mResources.getString(R.string.prefs_key_token_expiry_millis),
-                -1);
-        return expiryTime < DateTime.now(DateTimeZone.UTC).getMillis();
+        return mSnapshot.mExpiryElapsedRealtime < mClock.elapsedRealtime();
     }
 
-    @Override public void saveToken(Token token) {
+    @Override public synchronized void saveToken(Token token) {
+        mSnapshot = createSnapshot(token.getExpiryTimeMillis(), token.getAccessToken(),
+                token.getRefreshToken());
+
         mSharedPreferences.edit()
-                .putLong(mResources.getString(R.string.prefs_key_token_expiry_millis),
-                        token.getExpiryTimeMillis())
-                .putString(mResources.getString(R.string.prefs_key_token_access_token),
-                        token.getAccessToken())
-                .putString(mResources.getString(R.string.prefs_key_token_refresh_token),
-                        token.getRefreshToken())
+                .putLong(mKeyExpiryMillis, token.getExpiryTimeMillis())
+                .putString(mKeyAccessToken, token.getAccessToken())
+                .putString(mKeyRefreshToken, token.getRefreshToken())
                 .apply();
     }
 
-    @Override public void updateToken(Token token) {
+    @Override public synchronized void updateToken(Token token) {
         // Update the expiry and access token, but the refresh token remains the same
+        mSnapshot = createSnapshot(token.getExpiryTimeMillis(), token.getAccessToken(),
+                mSnapshot.mRefreshToken);
+
         mSharedPreferences.edit()
-                .putLong(mResources.getString(R.string.prefs_key_token_expiry_millis),
-                        token.getExpiryTimeMillis())
-                .putString(mResources.getString(R.string.prefs_key_token_access_token),
-                        token.getAccessToken())
+                .putLong(mKeyExpiryMillis, token.getExpiryTimeMillis())
+                .putString(mKeyAccessToken, token.getAccessToken())
                 .apply();
     }
 
-    @Override public void clearToken() {
+    @Override public synchronized void clearToken() {
+        mSnapshot = createSnapshot(-1, "", "");
+
         mSharedPreferences.edit()
-                .remove(mResources.getString(R.string.prefs_key_token_expiry_millis))
-                .remove(mResources.getString(R.string.prefs_key_token_access_token))
-                .remove(mResources.getString(R.string.prefs_key_token_refresh_token))
+                .remove(mKeyExpiryMillis)
+                .remove(mKeyAccessToken)
+                .remove(mKeyRefreshToken)
                 .apply();
     }
 
-    @Override public void forceExpireToken() {
-        final long timeInThePast = DateTime.now(DateTimeZone.UTC).getMillis() - 1;
-        mSharedPreferences.edit()
-                .putLong(mResources.getString(R.string.prefs_key_token_expiry_millis),
-                        timeInThePast)
-                .apply();
+    @Override public synchronized void forceExpireToken() {
+        final long timeInThePast = mClock.currentTimeMillis() - 1;
+        final Snapshot snapshot = mSnapshot;
+        mSnapshot = new Snapshot(timeInThePast,
+                mClock.elapsedRealtime() - 1,
+                snapshot.mAccessToken,
+                snapshot.mRefreshToken);
+
+        mSharedPreferences.edit().putLong(mKeyExpiryMillis, timeInThePast).apply();
     }
 
     @Override public String getRefreshToken() {
-        return mSharedPreferences.getString(mResources.getString(R.string.prefs_key_token_refresh_token),
-                "");
+        return mSnapshot.mRefreshToken;
     }
 
     @Override public String getAccessToken() {
-        return mSharedPreferences.getString(mResources.getString(R.string.prefs_key_token_access_token),
-                "");
+        return mSnapshot.mAccessToken;
+    }
+
+    @Override public long getExpiryTimeMillis() {
+        return mSnapshot.mExpiryTimeMillis;
+    }
+
+    // The expiry is stored as wall clock time, but compared against the monotonic clock so changing
+    // the time on the phone can't make a token look valid for longer than it is
+    private Snapshot createSnapshot(long expiryTimeMillis, String accessToken, String refreshToken) {
+        final long millisUntilExpiry = expiryTimeMillis - mClock.currentTimeMillis();
+        return new Snapshot(expiryTimeMillis,
+                mClock.elapsedRealtime() + millisUntilExpiry,
+                accessToken == null ? "" : accessToken,
+                refreshToken == null ? "" : refreshToken);
+    }
+
+    private static final class Snapshot {
+        private final long mExpiryTimeMillis;
+        private final long mExpiryElapsedRealtime;
+        private final String mAccessToken;
+        private final String mRefreshToken;
+
+        Snapshot(long expiryTimeMillis, long expiryElapsedRealtime, String accessToken,
+                 String refreshToken) {
+            mExpiryTimeMillis = expiryTimeMillis;
+            mExpiryElapsedRealtime = expiryElapsedRealtime;
+            mAccessToken = accessToken;
+            mRefreshToken = refreshToken;
+        }
     }
 }
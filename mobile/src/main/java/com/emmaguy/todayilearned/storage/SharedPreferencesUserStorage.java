@@ -11,8 +11,6 @@ import java.util.Set;
 
 import javax.inject.Inject;
 
-import timber.log.Timber;
-
 /**
  * Stores user's specific preferences in {@link SharedPreferences}
  */
@@ -30,19 +28,6 @@ class SharedPreferencesUserStorage implements UserStorage {
         return Integer.parseInt(mSharedPreferences.getString(key, "5"));
     }
 
-    public void setSeenTimestamp(long createdAtUtc) {
-        Timber.d("Setting timestamp: " + createdAtUtc);
-        mSharedPreferences.edit()
-                .putLong(mResources.getString(R.string.prefs_key_created_utc), createdAtUtc)
-                .apply();
-    }
-
-    @Override public void clearTimestamp() {
-        mSharedPreferences.edit()
-                .remove(mResources.getString(R.string.prefs_key_created_utc))
-                .apply();
-    }
-
     @Override public String getSortType() {
         return mSharedPreferences.getString(mResources.getString(R.string.prefs_key_sort_order),
                 "new");
@@ -62,8 +47,9 @@ class SharedPreferencesUserStorage implements UserStorage {
                 "15");
     }
 
-    @Override public long getTimestamp() {
-        return mSharedPreferences.getLong(mResources.getString(R.string.prefs_key_created_utc), 0);
+    @Override public boolean refreshOnUnmeteredNetworkOnly() {
+        return mSharedPreferences.getBoolean(mResources.getString(R.string.prefs_key_unmetered_only),
+                false);
     }
 
     @Override public boolean messagesEnabled() {
@@ -4,6 +4,9 @@ import android.content.SharedPreferences;
 import android.content.res.Resources;
 
 import com.emmaguy.todayilearned.R;
+import com.google.gson.Gson;
+
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -15,6 +18,10 @@ import dagger.Provides;
  * Contains all the injectable storage classes
  */
 @Module public class StorageModule {
+    private static final int SEEN_POSTS_MIN_ENTRIES = 1000;
+    private static final long SEEN_POSTS_MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+    private static final long LISTING_CURSOR_MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
     @Provides @Singleton @Named("state")
     public UniqueIdentifierStorage provideUniqueIdentifierStorage(SharedPreferences preferences,
                                                                   Resources resources) {
@@ -27,6 +34,37 @@ import dagger.Provides;
         return new SharedPreferencesUserStorage(preferences, resources);
     }
 
+    @Provides @Singleton
+    public SeenPostStorage provideSeenPostStorage(SharedPreferences preferences,
+                                                  Resources resources) {
+        return new SharedPreferencesSeenPostStorage(preferences,
+                resources.getString(R.string.prefs_key_seen_posts),
+                SEEN_POSTS_MIN_ENTRIES,
+                SEEN_POSTS_MAX_AGE_MILLIS);
+    }
+
+    @Provides @Singleton
+    public ListingCursorStorage provideListingCursorStorage(SharedPreferences preferences,
+                                                            Resources resources) {
+        return new SharedPreferencesListingCursorStorage(preferences,
+                resources,
+                LISTING_CURSOR_MAX_AGE_MILLIS);
+    }
+
+    @Provides @Singleton
+    public RefreshStatsStorage provideRefreshStatsStorage(SharedPreferences preferences,
+                                                          Resources resources) {
+        return new SharedPreferencesRefreshStatsStorage(preferences, resources);
+    }
+
+    @Provides @Singleton
+    public PendingActionStorage providePendingActionStorage(SharedPreferences preferences,
+                                                            Resources resources, Gson gson) {
+        return new SharedPreferencesPendingActionStorage(preferences,
+                resources.getString(R.string.prefs_key_pending_actions),
+                gson);
+    }
+
     @Provides @Singleton
     public TokenStorage provideTokenStorage(SharedPreferences preferences, Resources resources) {
         return new SharedPreferencesTokenStorage(preferences, resources);
@@ -14,4 +14,5 @@ public interface TokenStorage {
 
     String getRefreshToken();
     String getAccessToken();
+    long getExpiryTimeMillis();
 }
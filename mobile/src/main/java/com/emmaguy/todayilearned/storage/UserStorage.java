@@ -5,15 +5,11 @@ import java.util.Set;
 public interface UserStorage {
     int getNumberToRequest();
 
-    void setSeenTimestamp(long timestamp);
-    void clearTimestamp();
-
-    long getTimestamp();
-
     String getSortType();
     String getSubreddits();
     Set<String> getSubredditCollection();
     String getRefreshInterval();
+    boolean refreshOnUnmeteredNetworkOnly();
 
     boolean messagesEnabled();
     boolean downloadFullSizedImages();
@@ -0,0 +1,305 @@
+package com.emmaguy.todayilearned.refresh;
+
+import com.emmaguy.todayilearned.common.Clock;
+import com.emmaguy.todayilearned.storage.PendingAction;
+import com.emmaguy.todayilearned.storage.PendingActionStorage;
+
+import org.hamcrest.FeatureMatcher;
+import org.hamcrest.Matcher;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import retrofit.RetrofitError;
+import retrofit.client.Header;
+import retrofit.client.Response;
+import rx.Observable;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class ActionOutboxTest {
+    private static final int BATCH_SIZE = 2;
+    private static final int MAX_PENDING = 3;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long NOW_MILLIS = 1_000_000L;
+    private static final String URL = "https://oauth.reddit.com/api/vote";
+
+    @Mock PendingActionStorage mPendingActionStorage;
+    @Mock RedditService mRedditService;
+    @Mock DroppedActionNotifier mDroppedActionNotifier;
+    @Mock Clock mClock;
+
+    private List<PendingAction> mStoredActions = new ArrayList<>();
+
+    private ActionOutbox mOutbox;
+
+    @Before public void before() {
+        initMocks(this);
+
+        // Hand out copies, like the real storage does
+        when(mPendingActionStorage.getPendingActions()).thenAnswer(
+                invocation -> new ArrayList<>(mStoredActions));
+        doAnswer(invocation -> {
+            mStoredActions = new ArrayList<>((List<PendingAction>) invocation.getArguments()[0]);
+            return null;
+        }).when(mPendingActionStorage).setPendingActions(anyListOf(PendingAction.class));
+
+        when(mClock.currentTimeMillis()).thenReturn(NOW_MILLIS);
+
+        mOutbox = new ActionOutbox(mPendingActionStorage,
+                mRedditService,
+                mDroppedActionNotifier,
+                BATCH_SIZE,
+                MAX_PENDING,
+                MAX_ATTEMPTS,
+                mClock);
+    }
+
+    private void givenTimeHasPassed(long millis) {
+        when(mClock.currentTimeMillis()).thenReturn(NOW_MILLIS + millis);
+    }
+
+    private static RetrofitError networkError() {
+        return networkError(new IOException("No network"));
+    }
+
+    private static RetrofitError networkError(IOException cause) {
+        return RetrofitError.networkError(URL, cause);
+    }
+
+    private static RetrofitError httpError(int status) {
+        return RetrofitError.httpError(URL,
+                new Response(URL, status, "", Collections.<Header>emptyList(), null),
+                null,
+                null);
+    }
+
+    private Matcher<PendingAction> hasFullname(String fullname) {
+        return new FeatureMatcher<PendingAction, String>(equalTo(fullname), "Fullname",
+                "Unexpected fullname") {
+            @Override protected String featureValueOf(PendingAction actual) {
+                return actual.getFullname();
+            }
+        };
+    }
+
+    @Test public void isRetryable_voteWithNetworkOrServerError_returnsTrue() {
+        final PendingAction vote = PendingAction.vote("t3_a", 1);
+
+        assertThat(ActionOutbox.isRetryable(vote, networkError()), equalTo(true));
+        assertThat(ActionOutbox.isRetryable(vote, networkError(new SocketTimeoutException())),
+                equalTo(true));
+        assertThat(ActionOutbox.isRetryable(vote, httpError(503)), equalTo(true));
+        assertThat(ActionOutbox.isRetryable(vote, httpError(429)), equalTo(true));
+        assertThat(ActionOutbox.isRetryable(vote, new RejectedExecutionException()), equalTo(true));
+    }
+
+    @Test public void isRetryable_voteRejected_returnsFalse() {
+        final PendingAction vote = PendingAction.vote("t3_a", 1);
+
+        assertThat(ActionOutbox.isRetryable(vote, httpError(403)), equalTo(false));
+        assertThat(ActionOutbox.isRetryable(vote, new RuntimeException("Failed to vote")),
+                equalTo(false));
+    }
+
+    @Test public void isRetryable_replyThatNeverReachedReddit_returnsTrue() {
+        final PendingAction reply = PendingAction.replyToPost("t3_a", "message");
+
+        assertThat(ActionOutbox.isRetryable(reply, networkError(new ConnectException())),
+                equalTo(true));
+        assertThat(ActionOutbox.isRetryable(reply, networkError(new UnknownHostException())),
+                equalTo(true));
+        assertThat(ActionOutbox.isRetryable(reply, httpError(429)), equalTo(true));
+        assertThat(ActionOutbox.isRetryable(reply, new RejectedExecutionException()), equalTo(true));
+    }
+
+    @Test public void isRetryable_replyThatMayHaveReachedReddit_returnsFalse() {
+        final PendingAction reply = PendingAction.replyToDirectMessage("re: hi", "message", "user");
+
+        assertThat(ActionOutbox.isRetryable(reply, networkError(new SocketTimeoutException())),
+                equalTo(false));
+        assertThat(ActionOutbox.isRetryable(reply, httpError(503)), equalTo(false));
+        assertThat(ActionOutbox.isRetryable(reply, httpError(403)), equalTo(false));
+        assertThat(ActionOutbox.isRetryable(reply, new RuntimeException("Failed to comment on post")),
+                equalTo(false));
+    }
+
+    @Test public void add_votesOnSamePost_keepsOnlyLatest() {
+        mOutbox.add(PendingAction.vote("t3_a", 1));
+        mOutbox.add(PendingAction.vote("t3_b", 1));
+        mOutbox.add(PendingAction.vote("t3_a", -1));
+
+        assertThat(mStoredActions.size(), equalTo(2));
+        assertThat(mStoredActions.get(0).getFullname(), equalTo("t3_b"));
+        assertThat(mStoredActions.get(1).getFullname(), equalTo("t3_a"));
+        assertThat(mStoredActions.get(1).getVoteDirection(), equalTo(-1));
+    }
+
+    @Test public void add_replies_areNotCoalesced() {
+        mOutbox.add(PendingAction.replyToPost("t3_a", "first"));
+        mOutbox.add(PendingAction.replyToPost("t3_a", "second"));
+
+        assertThat(mStoredActions.size(), equalTo(2));
+    }
+
+    @Test public void add_whenFull_dropsOldest() {
+        mOutbox.add(PendingAction.vote("t3_a", 1));
+        mOutbox.add(PendingAction.vote("t3_b", 1));
+        mOutbox.add(PendingAction.vote("t3_c", 1));
+        mOutbox.add(PendingAction.vote("t3_d", 1));
+
+        assertThat(mStoredActions.size(), equalTo(MAX_PENDING));
+        assertThat(mStoredActions.get(0).getFullname(), equalTo("t3_b"));
+        verify(mDroppedActionNotifier).onDropped(argThat(hasFullname("t3_a")));
+    }
+
+    @Test public void removeVotes_removesPendingVoteOnPost() {
+        mOutbox.add(PendingAction.vote("t3_a", 1));
+
+        mOutbox.removeVotes("t3_a");
+
+        assertThat(mOutbox.hasPending(), equalTo(false));
+    }
+
+    @Test public void getNextAttemptDelayMillis_isInitialBackoff() {
+        assertThat(mOutbox.getNextAttemptDelayMillis(), equalTo(-1L));
+
+        mOutbox.add(PendingAction.vote("t3_a", 1));
+
+        assertThat(mOutbox.getNextAttemptDelayMillis(),
+                equalTo(ActionOutbox.INITIAL_BACKOFF_MILLIS));
+    }
+
+    @Test public void drain_beforeBackoff_sendsNothing() {
+        mOutbox.add(PendingAction.vote("t3_a", 1));
+
+        assertThat(mOutbox.drain(), equalTo(true));
+
+        verify(mRedditService, never()).vote(anyString(), anyInt());
+    }
+
+    @Test public void drain_sendsDueActionsAndRemovesThem() {
+        when(mRedditService.vote("t3_a", 1)).thenReturn(Observable.<Void>just(null));
+        mOutbox.add(PendingAction.vote("t3_a", 1));
+        givenTimeHasPassed(ActionOutbox.INITIAL_BACKOFF_MILLIS);
+
+        assertThat(mOutbox.drain(), equalTo(false));
+
+        verify(mRedditService).vote("t3_a", 1);
+        assertThat(mStoredActions.isEmpty(), equalTo(true));
+    }
+
+    @Test public void drain_sendsABatchAtATime() {
+        when(mRedditService.vote(anyString(), anyInt())).thenReturn(Observable.<Void>just(null));
+        mOutbox.add(PendingAction.vote("t3_a", 1));
+        mOutbox.add(PendingAction.vote("t3_b", 1));
+        mOutbox.add(PendingAction.vote("t3_c", 1));
+        givenTimeHasPassed(ActionOutbox.INITIAL_BACKOFF_MILLIS);
+
+        assertThat(mOutbox.drain(), equalTo(true));
+
+        verify(mRedditService, times(BATCH_SIZE)).vote(anyString(), anyInt());
+        assertThat(mStoredActions.size(), equalTo(1));
+        assertThat(mStoredActions.get(0).getFullname(), equalTo("t3_c"));
+    }
+
+    @Test public void drain_networkError_backsOffExponentially() {
+        when(mRedditService.vote("t3_a", 1)).thenReturn(Observable.<Void>error(networkError()));
+        mOutbox.add(PendingAction.vote("t3_a", 1));
+        givenTimeHasPassed(ActionOutbox.INITIAL_BACKOFF_MILLIS);
+
+        assertThat(mOutbox.drain(), equalTo(true));
+
+        assertThat(mStoredActions.get(0).getAttempts(), equalTo(2));
+        assertThat(mOutbox.getNextAttemptDelayMillis(),
+                equalTo(ActionOutbox.INITIAL_BACKOFF_MILLIS * 2));
+        verify(mDroppedActionNotifier, never()).onDropped(any(PendingAction.class));
+    }
+
+    @Test public void drain_afterMaxAttempts_dropsAction() {
+        when(mRedditService.vote("t3_a", 1)).thenReturn(Observable.<Void>error(networkError()));
+        mOutbox.add(PendingAction.vote("t3_a", 1));
+
+        for (int i = 0; i < MAX_ATTEMPTS; i++) {
+            givenTimeHasPassed(ActionOutbox.MAX_BACKOFF_MILLIS * (i + 1));
+            mOutbox.drain();
+        }
+
+        // The first attempt was the one made straight from the watch
+        verify(mRedditService, times(MAX_ATTEMPTS - 1)).vote("t3_a", 1);
+        assertThat(mOutbox.hasPending(), equalTo(false));
+        verify(mDroppedActionNotifier).onDropped(argThat(hasFullname("t3_a")));
+    }
+
+    @Test public void drain_replyWithServerError_dropsAction() {
+        when(mRedditService.commentOnPost("message", "t3_a")).thenReturn(
+                Observable.<RedditResponse>error(httpError(503)));
+        mOutbox.add(PendingAction.replyToPost("t3_a", "message"));
+        givenTimeHasPassed(ActionOutbox.INITIAL_BACKOFF_MILLIS);
+
+        assertThat(mOutbox.drain(), equalTo(false));
+    }
+
+    @Test public void drain_rejectedByReddit_dropsAction() {
+        when(mRedditService.commentOnPost("message", "t3_a")).thenReturn(
+                Observable.<RedditResponse>error(httpError(403)));
+        mOutbox.add(PendingAction.replyToPost("t3_a", "message"));
+        givenTimeHasPassed(ActionOutbox.INITIAL_BACKOFF_MILLIS);
+
+        assertThat(mOutbox.drain(), equalTo(false));
+
+        verify(mRedditService).commentOnPost("message", "t3_a");
+        verify(mDroppedActionNotifier).onDropped(any(PendingAction.class));
+    }
+
+    @Test public void drain_whenInterrupted_leavesOutboxUnchanged() throws Exception {
+        final CountDownLatch sending = new CountDownLatch(1);
+        when(mRedditService.vote(anyString(), anyInt())).thenReturn(
+                Observable.<Void>never().doOnSubscribe(sending::countDown));
+        mOutbox.add(PendingAction.vote("t3_a", 1));
+        mOutbox.add(PendingAction.vote("t3_b", 1));
+        givenTimeHasPassed(ActionOutbox.INITIAL_BACKOFF_MILLIS);
+
+        final AtomicBoolean hasPending = new AtomicBoolean();
+        final Thread drain = new Thread(() -> hasPending.set(mOutbox.drain()));
+        drain.start();
+        assertThat(sending.await(5, TimeUnit.SECONDS), equalTo(true));
+        drain.interrupt();
+        drain.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertThat(drain.isAlive(), equalTo(false));
+        assertThat(hasPending.get(), equalTo(true));
+        verify(mRedditService, never()).vote("t3_b", 1);
+        assertThat(mStoredActions.size(), equalTo(2));
+        for (PendingAction action : mStoredActions) {
+            assertThat(action.getAttempts(), equalTo(1));
+            assertThat(action.getNextAttemptMillis(),
+                    equalTo(NOW_MILLIS + ActionOutbox.INITIAL_BACKOFF_MILLIS));
+        }
+        verify(mDroppedActionNotifier, never()).onDropped(any(PendingAction.class));
+    }
+}
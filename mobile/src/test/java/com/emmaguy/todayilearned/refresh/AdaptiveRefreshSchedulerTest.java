@@ -0,0 +1,191 @@
+package com.emmaguy.todayilearned.refresh;
+
+import android.support.annotation.NonNull;
+
+import com.emmaguy.todayilearned.common.Clock;
+import com.emmaguy.todayilearned.sharedlib.Post;
+import com.emmaguy.todayilearned.storage.RefreshStatsStorage;
+import com.emmaguy.todayilearned.storage.UserStorage;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class AdaptiveRefreshSchedulerTest {
+    private static final long NOW_MILLIS = TimeUnit.DAYS.toMillis(100);
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long BASE_INTERVAL_MILLIS = HOUR_MILLIS;
+    private static final int NUMBER_TO_REQUEST = 5;
+
+    @Mock RefreshStatsStorage mRefreshStatsStorage;
+    @Mock UserStorage mUserStorage;
+    @Mock Clock mClock;
+
+    private AdaptiveRefreshScheduler mScheduler;
+
+    @Before public void before() {
+        initMocks(this);
+
+        when(mUserStorage.getSubredditCollection()).thenReturn(new LinkedHashSet<>(Arrays.asList(
+                "TodayILearned",
+                "AskReddit")));
+        when(mUserStorage.getNumberToRequest()).thenReturn(NUMBER_TO_REQUEST);
+
+        when(mRefreshStatsStorage.getPostRates()).thenReturn(Collections.<String, Double>emptyMap());
+        when(mRefreshStatsStorage.getLastRefreshMillis()).thenReturn(NOW_MILLIS - HOUR_MILLIS);
+
+        when(mClock.currentTimeMillis()).thenReturn(NOW_MILLIS);
+
+        mScheduler = new AdaptiveRefreshScheduler(mRefreshStatsStorage, mUserStorage, mClock);
+    }
+
+    @NonNull private Post mockPost(String subreddit) {
+        final Post post = mock(Post.class);
+        when(post.getSubreddit()).thenReturn(subreddit);
+        return post;
+    }
+
+    private void givenRates(double todayILearnedPerHour, double askRedditPerHour) {
+        final Map<String, Double> rates = new HashMap<>();
+        rates.put("todayilearned", todayILearnedPerHour);
+        rates.put("askreddit", askRedditPerHour);
+        when(mRefreshStatsStorage.getPostRates()).thenReturn(rates);
+    }
+
+    @Test public void onRefreshed_firstSample_savesRatePerSubreddit() {
+        mScheduler.onRefreshed(Arrays.asList(mockPost("todayilearned"), mockPost("TodayILearned")));
+
+        final Map<String, Double> expected = new HashMap<>();
+        expected.put("todayilearned", 2.0);
+        expected.put("askreddit", 0.0);
+        verify(mRefreshStatsStorage).save(expected, NOW_MILLIS, 0);
+    }
+
+    @Test public void onRefreshed_smoothsWithPreviousRate() {
+        givenRates(10, 0);
+
+        mScheduler.onRefreshed(Collections.singletonList(mockPost("askreddit")));
+
+        final Map<String, Double> expected = new HashMap<>();
+        expected.put("todayilearned", 10 + AdaptiveRefreshScheduler.RATE_SMOOTHING * (0 - 10));
+        expected.put("askreddit", 0 + AdaptiveRefreshScheduler.RATE_SMOOTHING * (1 - 0));
+        verify(mRefreshStatsStorage).save(expected, NOW_MILLIS, 0);
+    }
+
+    @Test public void onRefreshed_dropsSubredditsNoLongerSelected() {
+        final Map<String, Double> rates = new HashMap<>();
+        rates.put("pics", 4.0);
+        when(mRefreshStatsStorage.getPostRates()).thenReturn(rates);
+        when(mRefreshStatsStorage.getLastRefreshMillis()).thenReturn(0L);
+
+        mScheduler.onRefreshed(Collections.<Post>emptyList());
+
+        verify(mRefreshStatsStorage).save(Collections.<String, Double>emptyMap(), NOW_MILLIS, 1);
+    }
+
+    @Test public void onRefreshed_afterLongGap_keepsPreviousRates() {
+        givenRates(3, 1);
+        when(mRefreshStatsStorage.getLastRefreshMillis()).thenReturn(NOW_MILLIS - TimeUnit.DAYS.toMillis(3));
+
+        mScheduler.onRefreshed(Collections.<Post>emptyList());
+
+        final Map<String, Double> expected = new HashMap<>();
+        expected.put("todayilearned", 3.0);
+        expected.put("askreddit", 1.0);
+        verify(mRefreshStatsStorage).save(expected, NOW_MILLIS, 1);
+    }
+
+    @Test public void onRefreshed_countsConsecutiveEmptyRefreshes() {
+        when(mRefreshStatsStorage.getConsecutiveEmptyRefreshes()).thenReturn(2);
+
+        mScheduler.onRefreshed(Collections.<Post>emptyList());
+
+        final Map<String, Double> expected = new HashMap<>();
+        expected.put("todayilearned", 0.0);
+        expected.put("askreddit", 0.0);
+        verify(mRefreshStatsStorage).save(expected, NOW_MILLIS, 3);
+    }
+
+    @Test public void noStats_usesUsersInterval() {
+        assertThat(mScheduler.getIntervalMillis(BASE_INTERVAL_MILLIS), equalTo(BASE_INTERVAL_MILLIS));
+    }
+
+    @Test public void consecutiveEmptyRefreshes_doubleIntervalUpTo4x() {
+        when(mRefreshStatsStorage.getConsecutiveEmptyRefreshes()).thenReturn(1);
+        assertThat(mScheduler.getIntervalMillis(BASE_INTERVAL_MILLIS), equalTo(BASE_INTERVAL_MILLIS * 2));
+
+        when(mRefreshStatsStorage.getConsecutiveEmptyRefreshes()).thenReturn(10);
+        assertThat(mScheduler.getIntervalMillis(BASE_INTERVAL_MILLIS), equalTo(BASE_INTERVAL_MILLIS * 4));
+    }
+
+    @Test public void consecutiveEmptyRefreshes_doNotStretchPastExpectedTimeToNextPost() {
+        // 0.5 posts an hour, so we'd expect one every 2 hours
+        givenRates(0.25, 0.25);
+        when(mRefreshStatsStorage.getConsecutiveEmptyRefreshes()).thenReturn(10);
+
+        assertThat(mScheduler.getIntervalMillis(BASE_INTERVAL_MILLIS), equalTo(2 * HOUR_MILLIS));
+    }
+
+    @Test public void busySubreddits_shrinkIntervalToFillAPage() {
+        // 8 posts an hour fills a page of 5 in 37.5 minutes
+        givenRates(6, 2);
+
+        assertThat(mScheduler.getIntervalMillis(BASE_INTERVAL_MILLIS),
+                equalTo(TimeUnit.SECONDS.toMillis(37 * 60 + 30)));
+    }
+
+    @Test public void veryBusySubreddits_neverShrinkBelowHalfUsersInterval() {
+        givenRates(1000, 1000);
+
+        assertThat(mScheduler.getIntervalMillis(BASE_INTERVAL_MILLIS), equalTo(BASE_INTERVAL_MILLIS / 2));
+    }
+
+    @Test public void veryBusySubreddits_neverShrinkBelowMinimum() {
+        givenRates(1000, 1000);
+
+        final long userInterval = TimeUnit.MINUTES.toMillis(20);
+        assertThat(mScheduler.getIntervalMillis(userInterval),
+                equalTo(AdaptiveRefreshScheduler.MIN_INTERVAL_MILLIS));
+    }
+
+    @Test public void nextRefreshDelay_isIntervalMinusTimeSinceLastRefresh() {
+        when(mRefreshStatsStorage.getLastRefreshMillis()).thenReturn(NOW_MILLIS - TimeUnit.MINUTES.toMillis(
+                20));
+
+        assertThat(mScheduler.getNextRefreshDelayMillis(BASE_INTERVAL_MILLIS),
+                equalTo(TimeUnit.MINUTES.toMillis(40)));
+    }
+
+    @Test public void nextRefreshDelay_whenOverdue_isAlmostImmediate() {
+        when(mRefreshStatsStorage.getLastRefreshMillis()).thenReturn(NOW_MILLIS - 3 * HOUR_MILLIS);
+
+        assertThat(mScheduler.getNextRefreshDelayMillis(BASE_INTERVAL_MILLIS),
+                equalTo(TimeUnit.SECONDS.toMillis(1)));
+    }
+
+    @Test public void nextRefreshDelay_whenClockWentBackwards_isWholeInterval() {
+        when(mRefreshStatsStorage.getLastRefreshMillis()).thenReturn(NOW_MILLIS + HOUR_MILLIS);
+
+        assertThat(mScheduler.getNextRefreshDelayMillis(BASE_INTERVAL_MILLIS), equalTo(BASE_INTERVAL_MILLIS));
+    }
+
+    @Test public void reset_clearsStats() {
+        mScheduler.reset();
+
+        verify(mRefreshStatsStorage).clear();
+    }
+}
@@ -0,0 +1,87 @@
+package com.emmaguy.todayilearned.refresh;
+
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.Protocol;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.RequestBody;
+import com.squareup.okhttp.Response;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.net.HttpURLConnection;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class CacheHeadersInterceptorTest {
+    private static final String LISTING_URL = "https://oauth.reddit.com/r/todayilearned/new.json";
+    private static final String UNREAD_URL = "https://oauth.reddit.com/message/unread.json";
+
+    @Mock private Interceptor.Chain mChain;
+
+    private CacheHeadersInterceptor mInterceptor;
+
+    @Before public void before() throws Exception {
+        initMocks(this);
+
+        mInterceptor = new CacheHeadersInterceptor();
+    }
+
+    private Response uncacheableResponse(Request request, int code) {
+        return new Response.Builder().request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .header("Cache-Control", "no-cache")
+                .header("Pragma", "no-cache")
+                .header("ETag", "\"abc\"")
+                .build();
+    }
+
+    @Test public void listingResponse_isMadeCacheableButRevalidated() throws Exception {
+        final Request request = new Request.Builder().url(LISTING_URL).build();
+        when(mChain.request()).thenReturn(request);
+        when(mChain.proceed(request)).thenReturn(uncacheableResponse(request,
+                HttpURLConnection.HTTP_OK));
+
+        final Response response = mInterceptor.intercept(mChain);
+
+        assertThat(response.header("Cache-Control"), equalTo("private, max-age=0"));
+        assertThat(response.header("Pragma"), nullValue());
+        assertThat(response.header("ETag"), equalTo("\"abc\""));
+    }
+
+    @Test public void unreadMessagesResponse_isUnchanged() throws Exception {
+        final Request request = new Request.Builder().url(UNREAD_URL).build();
+        final Response original = uncacheableResponse(request, HttpURLConnection.HTTP_OK);
+        when(mChain.request()).thenReturn(request);
+        when(mChain.proceed(request)).thenReturn(original);
+
+        assertThat(mInterceptor.intercept(mChain), sameInstance(original));
+    }
+
+    @Test public void postRequest_isUnchanged() throws Exception {
+        final Request request = new Request.Builder().url(LISTING_URL)
+                .post(RequestBody.create(null, new byte[0]))
+                .build();
+        final Response original = uncacheableResponse(request, HttpURLConnection.HTTP_OK);
+        when(mChain.request()).thenReturn(request);
+        when(mChain.proceed(request)).thenReturn(original);
+
+        assertThat(mInterceptor.intercept(mChain), sameInstance(original));
+    }
+
+    @Test public void errorResponse_isUnchanged() throws Exception {
+        final Request request = new Request.Builder().url(LISTING_URL).build();
+        final Response original = uncacheableResponse(request, HttpURLConnection.HTTP_INTERNAL_ERROR);
+        when(mChain.request()).thenReturn(request);
+        when(mChain.proceed(request)).thenReturn(original);
+
+        assertThat(mInterceptor.intercept(mChain), sameInstance(original));
+    }
+}
@@ -0,0 +1,113 @@
+package com.emmaguy.todayilearned.refresh;
+
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.Protocol;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+
+import org.hamcrest.FeatureMatcher;
+import org.hamcrest.Matcher;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.net.HttpURLConnection;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class CachePolicyInterceptorTest {
+    private static final String LISTING_URL = "https://oauth.reddit.com/r/todayilearned/new.json";
+    private static final String COMMENTS_URL = "https://oauth.reddit.com/r/todayilearned/comments/3ekx1l/title/.json";
+    private static final int MAX_STALE_SECONDS = 300;
+    private static final MediaType JSON = MediaType.parse("application/json");
+    // OkHttp strips the Content-Length when it unzips a response, so our bodies don't have one
+    private static final String BODY = "{\"kind\": \"Listing\"}";
+
+    @Mock private Interceptor.Chain mChain;
+
+    private HttpCacheStats mHttpCacheStats;
+    private CachePolicyInterceptor mInterceptor;
+
+    @Before public void before() throws Exception {
+        initMocks(this);
+
+        mHttpCacheStats = new HttpCacheStats();
+        mInterceptor = new CachePolicyInterceptor(mHttpCacheStats, MAX_STALE_SECONDS);
+    }
+
+    private Response.Builder responseBuilder(Request request, int code) {
+        return new Response.Builder().request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(code);
+    }
+
+    private static Matcher<Request> hasMaxStale(int maxStaleSeconds) {
+        return new FeatureMatcher<Request, Integer>(equalTo(maxStaleSeconds), "max stale", "max stale") {
+            @Override protected Integer featureValueOf(Request actual) {
+                return actual.cacheControl().maxStaleSeconds();
+            }
+        };
+    }
+
+    @Test public void commentsRequest_allowsStaleResponse() throws Exception {
+        final Request request = new Request.Builder().url(COMMENTS_URL).build();
+        when(mChain.request()).thenReturn(request);
+        when(mChain.proceed(any(Request.class))).thenReturn(responseBuilder(request,
+                HttpURLConnection.HTTP_OK).build());
+
+        mInterceptor.intercept(mChain);
+
+        verify(mChain).proceed(argThat(hasMaxStale(MAX_STALE_SECONDS)));
+    }
+
+    @Test public void listingRequest_doesNotAllowStaleResponse() throws Exception {
+        final Request request = new Request.Builder().url(LISTING_URL).build();
+        when(mChain.request()).thenReturn(request);
+        when(mChain.proceed(any(Request.class))).thenReturn(responseBuilder(request,
+                HttpURLConnection.HTTP_OK).build());
+
+        mInterceptor.intercept(mChain);
+
+        verify(mChain).proceed(argThat(hasMaxStale(-1)));
+    }
+
+    @Test public void responsesFromCacheAndNetwork_areCounted() throws Exception {
+        final Request request = new Request.Builder().url(LISTING_URL).build();
+        final Response cached = responseBuilder(request, HttpURLConnection.HTTP_OK).build();
+        final Response notModified = responseBuilder(request,
+                HttpURLConnection.HTTP_NOT_MODIFIED).build();
+        final Response network = responseBuilder(request, HttpURLConnection.HTTP_OK).build();
+
+        when(mChain.request()).thenReturn(request);
+        when(mChain.proceed(any(Request.class))).thenReturn(
+                responseBuilder(request, HttpURLConnection.HTTP_OK).cacheResponse(cached)
+                        .body(ResponseBody.create(JSON, BODY))
+                        .build(),
+                responseBuilder(request, HttpURLConnection.HTTP_OK).cacheResponse(cached)
+                        .networkResponse(notModified)
+                        .body(ResponseBody.create(JSON, BODY))
+                        .build(),
+                responseBuilder(request, HttpURLConnection.HTTP_OK).networkResponse(network)
+                        .body(ResponseBody.create(JSON, BODY))
+                        .build());
+
+        mInterceptor.intercept(mChain).body().string();
+        mInterceptor.intercept(mChain).body().string();
+        mInterceptor.intercept(mChain).body().string();
+
+        final HttpCacheStats.Snapshot stats = mHttpCacheStats.getAndReset();
+        assertThat(stats.getHits(), equalTo(1));
+        assertThat(stats.getConditionalHits(), equalTo(1));
+        assertThat(stats.getMisses(), equalTo(1));
+        assertThat(stats.getBytesFromCache(), equalTo(2L * BODY.length()));
+        assertThat(mHttpCacheStats.getAndReset().getRequests(), equalTo(0));
+    }
+}
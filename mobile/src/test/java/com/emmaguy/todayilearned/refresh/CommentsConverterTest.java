@@ -14,6 +14,7 @@ import org.mockito.Mock;
 import java.io.IOException;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Arrays;
 import java.util.List;
 
 import retrofit.converter.ConversionException;
@@ -66,14 +67,80 @@ public class CommentsConverterTest {
         assertThat(comment.getReplies().size(), equalTo(1));
     }
 
+    @Test public void repliesBeyondMaxDepth_areReplacedWithMorePlaceholder() throws Exception {
+        List<Comment> comments = convertComments("comment-default.json",
+                new CommentsConverter(mGsonConverter, mResources, mUserStorage, 25, 1, 100));
+
+        assertThat(comments.size(), equalTo(2));
+        assertThat(comments.get(0).getReplies().size(), equalTo(1));
+
+        Comment more = comments.get(0).getReplies().get(0);
+        assertThat(more.isMore(), equalTo(true));
+        assertThat(more.getMoreChildIds(), equalTo(Arrays.asList("ctfvpy0")));
+        assertThat(more.getLinkFullname(), equalTo("t3_3ekx1l"));
+        assertThat(more.getReplyLevel(), equalTo(2));
+        assertThat(comments.get(1).getPostContents(), equalTo("second reply"));
+    }
+
+    @Test public void commentsBeyondMaxCount_areReplacedWithMorePlaceholder() throws Exception {
+        List<Comment> comments = convertComments("comment-default.json",
+                new CommentsConverter(mGsonConverter, mResources, mUserStorage, 25, 10, 2));
+
+        assertThat(comments.size(), equalTo(2));
+        assertThat(comments.get(0).getReplies().size(), equalTo(1));
+        assertThat(comments.get(0).getReplies().get(0).getPostContents(),
+                equalTo("reply to first reply"));
+        assertThat(comments.get(1).isMore(), equalTo(true));
+        assertThat(comments.get(1).getMoreChildIds(), equalTo(Arrays.asList("ctfvq2v")));
+        assertThat(comments.get(1).getReplyLevel(), equalTo(1));
+    }
+
+    @Test public void rootCommentsBeyondMaxRootCount_areReplacedWithMorePlaceholder() throws Exception {
+        List<Comment> comments = convertComments("comment-default.json",
+                new CommentsConverter(mGsonConverter, mResources, mUserStorage, 1, 10, 100));
+
+        assertThat(comments.size(), equalTo(2));
+        assertThat(comments.get(0).getPostContents(), equalTo("first reply lol"));
+        assertThat(comments.get(1).isMore(), equalTo(true));
+        assertThat(comments.get(1).getMoreChildIds(), equalTo(Arrays.asList("ctfvq2v")));
+    }
+
+    @Test public void moreNodes_areKeptAsPlaceholders() throws Exception {
+        List<Comment> comments = convertComments("comment-more.json");
+
+        assertThat(comments.size(), equalTo(2));
+        assertThat(comments.get(0).isMore(), equalTo(false));
+        assertThat(comments.get(1).isMore(), equalTo(true));
+        assertThat(comments.get(1).getMoreChildIds(), equalTo(Arrays.asList("d1", "d2", "d3")));
+        assertThat(comments.get(1).getLinkFullname(), equalTo("t3_abc"));
+        assertThat(comments.get(1).getReplyLevel(), equalTo(1));
+    }
+
+    @Test public void dataBeforeKind_isStillReadAsTheRightKind() throws Exception {
+        List<Comment> comments = convertComments("comment-data-before-kind.json");
+
+        assertThat(comments.size(), equalTo(2));
+        assertThat(comments.get(0).isMore(), equalTo(false));
+        assertThat(comments.get(0).getPostContents(), equalTo("the only loaded comment"));
+        assertThat(comments.get(0).getScore(), equalTo(5));
+        assertThat(comments.get(0).getReplies().size(), equalTo(1));
+        assertThat(comments.get(0).getReplies().get(0).getPostContents(), equalTo("a reply"));
+        assertThat(comments.get(0).getReplies().get(0).getReplyLevel(), equalTo(2));
+        assertThat(comments.get(1).isMore(), equalTo(true));
+        assertThat(comments.get(1).getMoreChildIds(), equalTo(Arrays.asList("d1", "d2", "d3")));
+    }
+
     private List<Comment> convertComments(String filename) throws IOException, ConversionException {
+        return convertComments(filename,
+                new CommentsConverter(mGsonConverter, mResources, mUserStorage));
+    }
+
+    private List<Comment> convertComments(String filename,
+                                          CommentsConverter commentsConverter) throws IOException,
+            ConversionException {
         final TypedInput body = mock(TypedInput.class);
         when(body.in()).thenReturn(TestUtils.loadFileFromStream(filename));
 
-        final CommentsConverter commentsConverter = new CommentsConverter(mGson,
-                mGsonConverter,
-                mResources,
-                mUserStorage);
         final List<Comment> comments = (List<Comment>) commentsConverter.fromBody(body,
                 new ParameterizedType() {
                     @Override public Type[] getActualTypeArguments() {
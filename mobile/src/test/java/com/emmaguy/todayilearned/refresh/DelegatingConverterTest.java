@@ -25,7 +25,7 @@ import static org.mockito.MockitoAnnotations.initMocks;
 
 public class DelegatingConverterTest {
     @Mock SubscriptionConverter mSubscriptionConverter;
-    @Mock MarkAsReadConverter mMarkAsReadConverter;
+    @Mock MoreCommentsConverter mMoreCommentsConverter;
     @Mock CommentsConverter mCommentsConverter;
     @Mock TokenConverter mTokenConverter;
     @Mock PostConverter mPostConverter;
@@ -58,7 +58,6 @@ public class DelegatingConverterTest {
         convertResponse("post-default.json", listOfPostsType);
 
         verifyZeroInteractions(mSubscriptionConverter);
-        verifyZeroInteractions(mMarkAsReadConverter);
         verifyZeroInteractions(mCommentsConverter);
         verifyZeroInteractions(mTokenConverter);
         verifyZeroInteractions(mConverter);
@@ -71,7 +70,6 @@ public class DelegatingConverterTest {
         convertResponse("comments-default.json", listOfPostsType);
 
         verifyZeroInteractions(mSubscriptionConverter);
-        verifyZeroInteractions(mMarkAsReadConverter);
         verifyZeroInteractions(mTokenConverter);
         verifyZeroInteractions(mPostConverter);
         verifyZeroInteractions(mConverter);
@@ -79,30 +77,29 @@ public class DelegatingConverterTest {
         verify(mCommentsConverter).fromBody(mTypedInput, listOfPostsType);
     }
 
-    @Test public void usesPostConverter_whenParsingDirectMessages() throws Exception {
-        final Type listOfPostsType = getListOfType(Post.class);
-        convertResponse("post-direct-message.json", listOfPostsType);
+    @Test public void usesMoreCommentsConverter_whenParsingMoreComments() throws Exception {
+        final Type type = MoreComments.class;
+        convertResponse("more-comments.json", type);
 
         verifyZeroInteractions(mSubscriptionConverter);
-        verifyZeroInteractions(mMarkAsReadConverter);
         verifyZeroInteractions(mCommentsConverter);
         verifyZeroInteractions(mTokenConverter);
+        verifyZeroInteractions(mPostConverter);
         verifyZeroInteractions(mConverter);
 
-        verify(mPostConverter).fromBody(mTypedInput, listOfPostsType);
+        verify(mMoreCommentsConverter).fromBody(mTypedInput, type);
     }
 
-    @Test public void usesPostConverter_whenParsingMarkAsRead() throws Exception {
-        final Type type = MarkAllRead.class;
-        convertResponse("markasread", type);
+    @Test public void usesPostConverter_whenParsingDirectMessages() throws Exception {
+        final Type listOfPostsType = getListOfType(Post.class);
+        convertResponse("post-direct-message.json", listOfPostsType);
 
         verifyZeroInteractions(mSubscriptionConverter);
         verifyZeroInteractions(mCommentsConverter);
         verifyZeroInteractions(mTokenConverter);
-        verifyZeroInteractions(mPostConverter);
         verifyZeroInteractions(mConverter);
 
-        verify(mMarkAsReadConverter).fromBody(mTypedInput, type);
+        verify(mPostConverter).fromBody(mTypedInput, listOfPostsType);
     }
 
     @Test public void usesPostConverter_whenParsingTokenRetrieve() throws Exception {
@@ -110,7 +107,6 @@ public class DelegatingConverterTest {
         convertResponse("token-retrieve.json", type);
 
         verifyZeroInteractions(mSubscriptionConverter);
-        verifyZeroInteractions(mMarkAsReadConverter);
         verifyZeroInteractions(mCommentsConverter);
         verifyZeroInteractions(mPostConverter);
         verifyZeroInteractions(mConverter);
@@ -123,7 +119,6 @@ public class DelegatingConverterTest {
         convertResponse("token-refresh.json", type);
 
         verifyZeroInteractions(mSubscriptionConverter);
-        verifyZeroInteractions(mMarkAsReadConverter);
         verifyZeroInteractions(mCommentsConverter);
         verifyZeroInteractions(mPostConverter);
         verifyZeroInteractions(mConverter);
@@ -135,7 +130,6 @@ public class DelegatingConverterTest {
         final Type type = SubscriptionResponse.class;
         convertResponse("subscriptions-sync.json", type);
 
-        verifyZeroInteractions(mMarkAsReadConverter);
         verifyZeroInteractions(mCommentsConverter);
         verifyZeroInteractions(mTokenConverter);
         verifyZeroInteractions(mPostConverter);
@@ -151,8 +145,8 @@ public class DelegatingConverterTest {
         new DelegatingConverter(mConverter,
                 mTokenConverter,
                 mPostConverter,
-                mMarkAsReadConverter,
                 mSubscriptionConverter,
-                mCommentsConverter).fromBody(mTypedInput, type);
+                mCommentsConverter,
+                mMoreCommentsConverter).fromBody(mTypedInput, type);
     }
 }
@@ -0,0 +1,102 @@
+package com.emmaguy.todayilearned.refresh;
+
+import com.emmaguy.todayilearned.common.Clock;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+
+import java.io.File;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class ImageCacheTest {
+    private static final long NOW_MILLIS = 1_000_000L;
+    private static final long MAX_AGE_MILLIS = 60_000L;
+    private static final int SIZE = 400;
+
+    @Rule public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Mock Clock mClock;
+
+    private File mDirectory;
+    private ImageCache mCache;
+
+    @Before public void before() {
+        initMocks(this);
+
+        when(mClock.currentTimeMillis()).thenReturn(NOW_MILLIS);
+
+        mDirectory = new File(mFolder.getRoot(), "images");
+        mCache = new ImageCache(mDirectory, 10, MAX_AGE_MILLIS, mClock);
+    }
+
+    @Test public void get_returnsWhatWasPut() {
+        mCache.put("http://i.redd.it/a.jpg", SIZE, new byte[]{1, 2, 3});
+
+        assertThat(mCache.get("http://i.redd.it/a.jpg", SIZE), equalTo(new byte[]{1, 2, 3}));
+    }
+
+    @Test public void get_isKeyedByTargetSize() {
+        mCache.put("http://i.redd.it/a.jpg", SIZE, new byte[]{1, 2, 3});
+
+        assertThat(mCache.get("http://i.redd.it/a.jpg", SIZE * 2), nullValue());
+    }
+
+    @Test public void put_overMaxBytes_evictsLeastRecentlyUsed() {
+        mCache.put("a", SIZE, new byte[4]);
+        mCache.put("b", SIZE, new byte[4]);
+        mCache.get("a", SIZE);
+
+        mCache.put("c", SIZE, new byte[4]);
+
+        assertThat(mCache.get("a", SIZE), equalTo(new byte[4]));
+        assertThat(mCache.get("b", SIZE), nullValue());
+        assertThat(mCache.get("c", SIZE), equalTo(new byte[4]));
+        assertThat(mDirectory.list().length, equalTo(2));
+    }
+
+    @Test public void put_largerThanMaxBytes_isNotCached() {
+        mCache.put("a", SIZE, new byte[11]);
+
+        assertThat(mCache.get("a", SIZE), nullValue());
+    }
+
+    @Test public void get_olderThanMaxAge_isEvicted() {
+        mCache.put("a", SIZE, new byte[]{1});
+        when(mClock.currentTimeMillis()).thenReturn(NOW_MILLIS + MAX_AGE_MILLIS + 1);
+
+        assertThat(mCache.get("a", SIZE), nullValue());
+        assertThat(mDirectory.list().length, equalTo(0));
+    }
+
+    @Test public void entriesSurviveRestart() {
+        mCache.put("a", SIZE, new byte[]{1, 2});
+
+        final ImageCache cache = new ImageCache(mDirectory, 10, MAX_AGE_MILLIS, mClock);
+
+        assertThat(cache.get("a", SIZE), equalTo(new byte[]{1, 2}));
+    }
+
+    @Test public void getAndResetStats_countsHitsAndMisses() {
+        mCache.put("a", SIZE, new byte[]{1});
+        mCache.get("a", SIZE);
+        mCache.get("a", SIZE);
+        mCache.get("a", SIZE);
+        mCache.get("b", SIZE);
+
+        final ImageCache.Stats stats = mCache.getAndResetStats();
+
+        assertThat(stats.getHits(), equalTo(3));
+        assertThat(stats.getMisses(), equalTo(1));
+        assertThat(stats.getHitRatio(), equalTo(0.75f));
+        assertThat(stats.getSizeBytes(), equalTo(1L));
+        assertThat(mCache.getAndResetStats().getHits(), equalTo(0));
+    }
+}
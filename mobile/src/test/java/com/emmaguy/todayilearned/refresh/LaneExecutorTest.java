@@ -0,0 +1,122 @@
+package com.emmaguy.todayilearned.refresh;
+
+import com.emmaguy.todayilearned.common.Clock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class LaneExecutorTest {
+    private static final long NOW_MILLIS = 1_000_000L;
+    private static final int QUEUE_CAPACITY = 1;
+
+    @Mock Clock mClock;
+
+    private LaneExecutor mLane;
+
+    @Before public void before() {
+        initMocks(this);
+
+        when(mClock.elapsedRealtime()).thenReturn(NOW_MILLIS);
+
+        mLane = new LaneExecutor("test", 1, QUEUE_CAPACITY, 0, mClock);
+    }
+
+    @Test public void execute_runsTask() throws Exception {
+        final CountDownLatch ran = new CountDownLatch(1);
+
+        mLane.execute(ran::countDown);
+
+        assertThat(ran.await(1, TimeUnit.SECONDS), equalTo(true));
+    }
+
+    @Test public void stats_recordHowLongTasksWaitedForAThread() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(2);
+
+        // Hold the only thread, so the next task queues behind it
+        mLane.execute(() -> {
+            started.countDown();
+            awaitQuietly(release);
+            done.countDown();
+        });
+        mLane.execute(done::countDown);
+        assertThat(started.await(1, TimeUnit.SECONDS), equalTo(true));
+
+        when(mClock.elapsedRealtime()).thenReturn(NOW_MILLIS + 300);
+        release.countDown();
+
+        assertThat(done.await(1, TimeUnit.SECONDS), equalTo(true));
+
+        final LaneExecutor.Stats stats = mLane.getAndResetStats();
+        assertThat(stats.getName(), equalTo("test"));
+        assertThat(stats.getTasks(), equalTo(2));
+        assertThat(stats.getMaxWaitMillis(), equalTo(300L));
+        assertThat(stats.getAverageWaitMillis(), equalTo(150L));
+    }
+
+    @Test public void getAndResetStats_resetsStats() throws Exception {
+        final CountDownLatch ran = new CountDownLatch(1);
+        mLane.execute(ran::countDown);
+        assertThat(ran.await(1, TimeUnit.SECONDS), equalTo(true));
+
+        mLane.getAndResetStats();
+        final LaneExecutor.Stats stats = mLane.getAndResetStats();
+
+        assertThat(stats.getTasks(), equalTo(0));
+        assertThat(stats.getAverageWaitMillis(), equalTo(0L));
+    }
+
+    @Test public void execute_reusesThread() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            final CountDownLatch ran = new CountDownLatch(1);
+            mLane.execute(ran::countDown);
+            assertThat(ran.await(1, TimeUnit.SECONDS), equalTo(true));
+        }
+
+        assertThat(mLane.getAndResetStats().getThreadsCreated(), equalTo(1));
+    }
+
+    @Test public void execute_whenQueueIsFull_rejectsTask() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        mLane.execute(() -> {
+            started.countDown();
+            awaitQuietly(release);
+        });
+        assertThat(started.await(1, TimeUnit.SECONDS), equalTo(true));
+        mLane.execute(() -> {
+        });
+
+        boolean isRejected = false;
+        try {
+            mLane.execute(() -> {
+            });
+        } catch (RejectedExecutionException e) {
+            isRejected = true;
+        } finally {
+            release.countDown();
+        }
+
+        assertThat(isRejected, equalTo(true));
+        assertThat(mLane.getAndResetStats().getRejected(), equalTo(1));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
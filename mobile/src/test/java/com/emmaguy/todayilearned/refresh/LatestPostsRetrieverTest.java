@@ -3,6 +3,8 @@ package com.emmaguy.todayilearned.refresh;
 import android.support.annotation.NonNull;
 
 import com.emmaguy.todayilearned.sharedlib.Post;
+import com.emmaguy.todayilearned.storage.ListingCursorStorage;
+import com.emmaguy.todayilearned.storage.SeenPostStorage;
 import com.emmaguy.todayilearned.storage.TokenStorage;
 import com.emmaguy.todayilearned.storage.UserStorage;
 
@@ -12,18 +14,27 @@ import org.mockito.Mock;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import rx.Observable;
 import rx.schedulers.Schedulers;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -37,20 +48,28 @@ public class LatestPostsRetrieverTest {
     private static final String DEFAULT_IMAGE_URL = "http://anyurl.jpg";
 
     private static final String DEFAULT_SUBREDDIT = "todayilearned";
+    private static final String OTHER_SUBREDDIT = "AskReddit";
     private static final String DEFAULT_SORT = "hot";
+    private static final String SORT_NEW = "new";
+    private static final String LISTING_NEW = DEFAULT_SUBREDDIT + "/" + SORT_NEW;
+    private static final String CURSOR = "t3_cursor";
     private static final int DEFAULT_NUMBER = 5;
 
-    private static final long DEFAULT_TIMESTAMP_NEWER = 110;
-    private static final long DEFAULT_TIMESTAMP_NEW = 101;
-    private static final long DEFAULT_TIMESTAMP = 100;
-    private static final long DEFAULT_TIMESTAMP_OLD = 90;
+    private static final int MAX_CONCURRENT_LISTINGS = 4;
+    private static final int MAX_CONCURRENT_DOWNLOADS = 4;
+    private static final long IMAGE_TIMEOUT_MILLIS = 1000;
 
     @Mock RedditService mRedditService;
 
     @Mock ImageDownloader mImageDownloader;
+    @Mock ListingCursorStorage mListingCursorStorage;
+    @Mock SeenPostStorage mSeenPostStorage;
     @Mock TokenStorage mTokenStorage;
     @Mock UserStorage mUserStorage;
 
+    private final Set<String> mSeenFullnames = new HashSet<>();
+    private int mPostCount;
+
     private Post mPost;
 
     private LatestPostsRetriever mRetriever;
@@ -62,98 +81,155 @@ public class LatestPostsRetrieverTest {
         when(mTokenStorage.isLoggedIn()).thenReturn(false);
 
         when(mUserStorage.getNumberToRequest()).thenReturn(DEFAULT_NUMBER);
-        when(mUserStorage.getSubreddits()).thenReturn(DEFAULT_SUBREDDIT);
-        when(mUserStorage.getTimestamp()).thenReturn(DEFAULT_TIMESTAMP);
+        when(mUserStorage.getSubredditCollection()).thenReturn(Collections.singleton(DEFAULT_SUBREDDIT));
         when(mUserStorage.getSortType()).thenReturn(DEFAULT_SORT);
 
-        // If we ever set the timestamp, we need mockito to return that new value
-        updateTimestampWhenSet(DEFAULT_TIMESTAMP_NEWER);
-        updateTimestampWhenSet(DEFAULT_TIMESTAMP_NEW);
-        updateTimestampWhenSet(DEFAULT_TIMESTAMP_OLD);
-        updateTimestampWhenSet(DEFAULT_TIMESTAMP);
+        // Back the seen post storage with a set, so marking a post seen is remembered
+        when(mSeenPostStorage.hasSeen(anyString())).thenAnswer(invocation -> mSeenFullnames.contains(
+                invocation.getArguments()[0]));
+        doAnswer(invocation -> {
+            mSeenFullnames.addAll((Collection<String>) invocation.getArguments()[0]);
+            return null;
+        }).when(mSeenPostStorage).markSeen(anyCollectionOf(String.class), anyInt());
 
         when(mUserStorage.downloadFullSizedImages()).thenReturn(false);
 
-        mPost = mockPost(DEFAULT_TIMESTAMP_NEWER);
+        mPost = mockPost();
         when(mRedditService.latestPosts(DEFAULT_SUBREDDIT,
                 DEFAULT_SORT,
-                DEFAULT_NUMBER)).thenReturn(Observable.just(Arrays.asList(mPost)));
+                DEFAULT_NUMBER,
+                null)).thenReturn(Observable.just(Arrays.asList(mPost)));
 
-        mRetriever = new LatestPostsRetriever(mImageDownloader, mUserStorage, mRedditService);
+        mRetriever = createRetriever(MAX_CONCURRENT_LISTINGS);
     }
 
-    private void updateTimestampWhenSet(final long timestamp) {
-        doAnswer(invocation -> {
-            when(mUserStorage.getTimestamp()).thenReturn(timestamp);
-            return null;
-        }).when(mUserStorage).setSeenTimestamp(timestamp);
+    private LatestPostsRetriever createRetriever(int maxConcurrentListings) {
+        return new LatestPostsRetriever(mImageDownloader,
+                mListingCursorStorage,
+                mSeenPostStorage,
+                mUserStorage,
+                mRedditService,
+                Schedulers.immediate(),
+                maxConcurrentListings,
+                MAX_CONCURRENT_DOWNLOADS,
+                IMAGE_TIMEOUT_MILLIS);
+    }
+
+    private void givenSubreddits(String... subreddits) {
+        when(mUserStorage.getSubredditCollection()).thenReturn(new LinkedHashSet<>(Arrays.asList(
+                subreddits)));
+    }
+
+    private void givenListing(String subreddits, String sort, List<Post> posts) {
+        when(mRedditService.latestPosts(subreddits, sort, DEFAULT_NUMBER, null)).thenReturn(
+                Observable.just(posts));
+    }
+
+    private List<LatestPostsRetriever.PostAndImage> retrieve(LatestPostsRetriever retriever) {
+        return retriever.retrieve().toBlocking().single().getPostAndImages();
+    }
+
+    private List<LatestPostsRetriever.PostAndImage> retrieveAndDeliver(LatestPostsRetriever retriever) {
+        final LatestPostsRetriever.LatestPosts latestPosts = retriever.retrieve().toBlocking().single();
+        retriever.markDelivered(latestPosts);
+        return latestPosts.getPostAndImages();
+    }
+
+    private List<Post> getPosts(List<LatestPostsRetriever.PostAndImage> postAndImages) {
+        final List<Post> posts = new ArrayList<>(postAndImages.size());
+        for (LatestPostsRetriever.PostAndImage postAndImage : postAndImages) {
+            posts.add(postAndImage.getPost());
+        }
+        return posts;
+    }
+
+    @NonNull private Post mockPost(int score) {
+        final Post post = mockPost();
+        when(post.getScore()).thenReturn(score);
+        return post;
+    }
+
+    @NonNull private Post mockPost() {
+        return mockPost("t3_" + mPostCount++);
     }
 
-    @NonNull private Post mockPost(long timestamp) {
+    @NonNull private Post mockPost(String fullname) {
         final Post post = mock(Post.class);
         when(post.hasImageUrl()).thenReturn(false);
-        when(post.getCreatedUtc()).thenReturn(timestamp);
+        when(post.getFullname()).thenReturn(fullname);
         return post;
     }
 
-    @Test public void latestPostsWith2ThatAreNew_savesOnlyTheNewestTimestamp() {
-        final List<Post> posts = Arrays.asList(mockPost(DEFAULT_TIMESTAMP_OLD),
-                mockPost(DEFAULT_TIMESTAMP_NEW),
-                mockPost(DEFAULT_TIMESTAMP_NEWER));
+    @Test public void latestPostsWith1AlreadySeen_emitsOnlyTheUnseenPosts() {
+        final Post seenPost = mockPost();
+        final Post newPost = mockPost();
+        final Post newerPost = mockPost();
+        mSeenFullnames.add(seenPost.getFullname());
+
+        final List<Post> posts = Arrays.asList(seenPost, newPost, newerPost);
         when(mRedditService.latestPosts(DEFAULT_SUBREDDIT,
                 DEFAULT_SORT,
-                DEFAULT_NUMBER)).thenReturn(Observable.just(posts));
+                DEFAULT_NUMBER,
+                null)).thenReturn(Observable.just(posts));
 
-        final List<LatestPostsRetriever.PostAndImage> emittedElements = new ArrayList<>();
-        mRetriever.retrieve()
-                .observeOn(Schedulers.immediate())
-                .subscribeOn(Schedulers.immediate())
-                .subscribe(emittedElements::addAll);
+        final List<LatestPostsRetriever.PostAndImage> emittedElements = retrieve(mRetriever);
 
         assertThat(emittedElements.size(), equalTo(2));
-        verify(mRedditService).latestPosts(DEFAULT_SUBREDDIT, DEFAULT_SORT, DEFAULT_NUMBER);
+        assertThat(emittedElements.get(0).getPost(), equalTo(newPost));
+        assertThat(emittedElements.get(1).getPost(), equalTo(newerPost));
+        verify(mRedditService).latestPosts(DEFAULT_SUBREDDIT, DEFAULT_SORT, DEFAULT_NUMBER, null);
 
         verifyZeroInteractions(mImageDownloader);
         verifyZeroInteractions(mRedditService);
 
-        verify(mUserStorage).getSubreddits();
+        verify(mUserStorage).getSubredditCollection();
         verify(mUserStorage).getNumberToRequest();
         verify(mUserStorage).getSortType();
-
-        verify(mUserStorage).setSeenTimestamp(DEFAULT_TIMESTAMP_NEWER);
-        verify(mUserStorage, times(0)).setSeenTimestamp(DEFAULT_TIMESTAMP_NEW);
-        verify(mUserStorage, times(0)).setSeenTimestamp(DEFAULT_TIMESTAMP);
-        verify(mUserStorage, times(0)).setSeenTimestamp(DEFAULT_TIMESTAMP_OLD);
     }
 
-    @Test public void latestPostsWith2ThatAreNewButNewestComeFirst_savesOnlyTheNewestTimestamp() {
-        final List<Post> posts = Arrays.asList(mockPost(DEFAULT_TIMESTAMP_NEWER),
-                mockPost(DEFAULT_TIMESTAMP_NEW),
-                mockPost(DEFAULT_TIMESTAMP_OLD));
+    @Test public void latestPosts_marksWholeListingAsSeen() {
+        final Post seenPost = mockPost();
+        final Post newPost = mockPost();
+        mSeenFullnames.add(seenPost.getFullname());
+
         when(mRedditService.latestPosts(DEFAULT_SUBREDDIT,
                 DEFAULT_SORT,
-                DEFAULT_NUMBER)).thenReturn(Observable.just(posts));
+                DEFAULT_NUMBER,
+                null)).thenReturn(Observable.just(Arrays.asList(seenPost, newPost)));
 
-        final List<LatestPostsRetriever.PostAndImage> emittedElements = new ArrayList<>();
-        mRetriever.retrieve()
-                .observeOn(Schedulers.immediate())
-                .subscribeOn(Schedulers.immediate())
-                .subscribe(emittedElements::addAll);
+        retrieveAndDeliver(mRetriever);
 
-        assertThat(emittedElements.size(), equalTo(2));
-        verify(mRedditService).latestPosts(DEFAULT_SUBREDDIT, DEFAULT_SORT, DEFAULT_NUMBER);
+        verify(mSeenPostStorage).markSeen(eq(Arrays.asList(seenPost.getFullname(), newPost.getFullname())),
+                anyInt());
+    }
 
-        verifyZeroInteractions(mImageDownloader);
-        verifyZeroInteractions(mRedditService);
+    @Test public void postsNotDelivered_areNotMarkedSeen() {
+        final List<LatestPostsRetriever.PostAndImage> elementsFirstTime = retrieve(mRetriever);
 
-        verify(mUserStorage).getSubreddits();
-        verify(mUserStorage).getNumberToRequest();
-        verify(mUserStorage).getSortType();
+        final List<LatestPostsRetriever.PostAndImage> elementsSecondTime = retrieve(mRetriever);
+
+        verify(mSeenPostStorage, never()).markSeen(anyCollectionOf(String.class), anyInt());
+        assertThat(getPosts(elementsFirstTime), equalTo(Collections.singletonList(mPost)));
+        assertThat(getPosts(elementsSecondTime), equalTo(Collections.singletonList(mPost)));
+    }
+
+    @Test public void olderPostNotSeenBefore_isStillEmitted() {
+        // With sort=hot/top a post we've never sent can be older than one we have
+        final Post olderPost = mockPost();
+        when(olderPost.getCreatedUtc()).thenReturn(90L);
+        final Post newerSeenPost = mockPost();
+        when(newerSeenPost.getCreatedUtc()).thenReturn(110L);
+        mSeenFullnames.add(newerSeenPost.getFullname());
+
+        when(mRedditService.latestPosts(DEFAULT_SUBREDDIT,
+                DEFAULT_SORT,
+                DEFAULT_NUMBER,
+                null)).thenReturn(Observable.just(Arrays.asList(newerSeenPost, olderPost)));
+
+        final List<LatestPostsRetriever.PostAndImage> emittedElements = retrieve(mRetriever);
 
-        verify(mUserStorage).setSeenTimestamp(DEFAULT_TIMESTAMP_NEWER);
-        verify(mUserStorage, times(0)).setSeenTimestamp(DEFAULT_TIMESTAMP_NEW);
-        verify(mUserStorage, times(0)).setSeenTimestamp(DEFAULT_TIMESTAMP);
-        verify(mUserStorage, times(0)).setSeenTimestamp(DEFAULT_TIMESTAMP_OLD);
+        assertThat(emittedElements.size(), equalTo(1));
+        assertThat(emittedElements.get(0).getPost(), equalTo(olderPost));
     }
 
     @Test public void latestPostsWithThumbnail_triesToDownloadThumbnail() {
@@ -195,69 +271,338 @@ public class LatestPostsRetrieverTest {
     }
 
     @Test public void imageDownloadFailsOnOnePost_stillEmitsTheOthers() throws Exception {
-        final Post post0 = mockPost(DEFAULT_TIMESTAMP_NEWER);
+        final Post post0 = mockPost();
         when(post0.hasImageUrl()).thenReturn(true);
         when(post0.getImageUrl()).thenReturn(DEFAULT_IMAGE_URL);
 
         final Throwable error = mock(RuntimeException.class);
         when(mImageDownloader.downloadImage(DEFAULT_IMAGE_URL)).thenThrow(error);
 
-        final Post post1 = mockPost(DEFAULT_TIMESTAMP_NEWER);
-        final Post post2 = mockPost(DEFAULT_TIMESTAMP_NEWER);
+        final Post post1 = mockPost();
+        final Post post2 = mockPost();
 
         final List<Post> posts = Arrays.asList(post0, post1, post2);
         when(mRedditService.latestPosts(DEFAULT_SUBREDDIT,
                 DEFAULT_SORT,
-                DEFAULT_NUMBER)).thenReturn(Observable.just(posts));
+                DEFAULT_NUMBER,
+                null)).thenReturn(Observable.just(posts));
 
-        final List<LatestPostsRetriever.PostAndImage> emittedElements = new ArrayList<>();
-        mRetriever.retrieve()
-                .observeOn(Schedulers.immediate())
-                .subscribeOn(Schedulers.immediate())
-                .subscribe(emittedElements::addAll);
+        final List<LatestPostsRetriever.PostAndImage> emittedElements = retrieve(mRetriever);
 
         assertThat(emittedElements.size(), equalTo(2));
         assertThat(emittedElements.get(0).getPost(), equalTo(post1));
         assertThat(emittedElements.get(1).getPost(), equalTo(post2));
     }
 
-    @Test public void retrievingSame5PostsTwice_onlyEmitsThemThemFirstTime() {
-        updateTimestampWhenSet(1004);
+    @Test public void imageDownloadFails_postIsNotMarkedSeen() {
+        final Post post0 = mockPost();
+        when(post0.hasImageUrl()).thenReturn(true);
+        when(post0.getImageUrl()).thenReturn(DEFAULT_IMAGE_URL);
+        when(mImageDownloader.downloadImage(DEFAULT_IMAGE_URL)).thenThrow(new RuntimeException());
+        final Post post1 = mockPost();
+        givenListing(DEFAULT_SUBREDDIT, DEFAULT_SORT, Arrays.asList(post0, post1));
 
-        final List<Post> posts = Arrays.asList(mockPost(1000),
-                mockPost(1001),
-                mockPost(1002),
-                mockPost(1003),
-                mockPost(1004));
+        retrieveAndDeliver(mRetriever);
+
+        assertThat(mSeenFullnames.contains(post0.getFullname()), equalTo(false));
+        assertThat(mSeenFullnames.contains(post1.getFullname()), equalTo(true));
+    }
+
+    @Test public void latestPostsFails_emitsError() {
+        final RuntimeException error = new RuntimeException("Network error");
         when(mRedditService.latestPosts(DEFAULT_SUBREDDIT,
                 DEFAULT_SORT,
-                DEFAULT_NUMBER)).thenReturn(Observable.just(posts));
+                DEFAULT_NUMBER,
+                null)).thenReturn(Observable.<List<Post>>error(error));
 
-        final List<LatestPostsRetriever.PostAndImage> elementsFirstTime = new ArrayList<>();
-        mRetriever.retrieve()
-                .observeOn(Schedulers.immediate())
-                .subscribeOn(Schedulers.immediate())
-                .subscribe(elementsFirstTime::addAll);
+        final List<Throwable> errors = new ArrayList<>();
+        mRetriever.retrieve().subscribe(postAndImages -> {
+        }, errors::add);
 
-        verify(mUserStorage).setSeenTimestamp(1004);
+        assertThat(errors, equalTo(Collections.<Throwable>singletonList(error)));
+        verify(mSeenPostStorage, never()).markSeen(anyCollectionOf(String.class), anyInt());
+    }
 
-        final List<LatestPostsRetriever.PostAndImage> elementsSecondTime = new ArrayList<>();
-        mRetriever.retrieve()
-                .observeOn(Schedulers.immediate())
-                .subscribeOn(Schedulers.immediate())
-                .subscribe(elementsSecondTime::addAll);
+    @Test public void retrievingSame5PostsTwice_onlyEmitsThemThemFirstTime() {
+        final List<Post> posts = Arrays.asList(mockPost(),
+                mockPost(),
+                mockPost(),
+                mockPost(),
+                mockPost());
+        when(mRedditService.latestPosts(DEFAULT_SUBREDDIT,
+                DEFAULT_SORT,
+                DEFAULT_NUMBER,
+                null)).thenReturn(Observable.just(posts));
+
+        final List<LatestPostsRetriever.PostAndImage> elementsFirstTime = retrieveAndDeliver(mRetriever);
 
-        verify(mUserStorage, times(0)).setSeenTimestamp(anyInt());
+        final List<LatestPostsRetriever.PostAndImage> elementsSecondTime = retrieveAndDeliver(mRetriever);
 
         assertThat(elementsFirstTime.size(), equalTo(5));
         assertThat(elementsSecondTime.size(), equalTo(0));
     }
 
+    @Test public void sortedByHot_doesNotUseCursor() {
+        mRetriever.retrieve().subscribe();
+
+        verify(mRedditService).latestPosts(DEFAULT_SUBREDDIT, DEFAULT_SORT, DEFAULT_NUMBER, null);
+        verifyZeroInteractions(mListingCursorStorage);
+    }
+
+    @Test public void sortedByNew_requestsPostsBeforeCursor() {
+        when(mUserStorage.getSortType()).thenReturn(SORT_NEW);
+        when(mListingCursorStorage.getCursor(LISTING_NEW)).thenReturn(CURSOR);
+        when(mRedditService.latestPosts(DEFAULT_SUBREDDIT, SORT_NEW, DEFAULT_NUMBER, CURSOR)).thenReturn(
+                Observable.just(Arrays.asList(mPost)));
+
+        final List<LatestPostsRetriever.PostAndImage> emittedElements = retrieve(mRetriever);
+
+        verify(mRedditService).latestPosts(DEFAULT_SUBREDDIT, SORT_NEW, DEFAULT_NUMBER, CURSOR);
+        assertThat(emittedElements.size(), equalTo(1));
+    }
+
+    @Test public void sortedByNew_movesCursorToNewestPost() {
+        final Post newestPost = mockPost();
+        when(mUserStorage.getSortType()).thenReturn(SORT_NEW);
+        when(mRedditService.latestPosts(DEFAULT_SUBREDDIT, SORT_NEW, DEFAULT_NUMBER, null)).thenReturn(
+                Observable.just(Arrays.asList(newestPost, mPost)));
+
+        retrieveAndDeliver(mRetriever);
+
+        verify(mListingCursorStorage).setCursor(LISTING_NEW, newestPost.getFullname());
+    }
+
+    @Test public void sortedByNew_postsNotDelivered_keepsCursor() {
+        when(mUserStorage.getSortType()).thenReturn(SORT_NEW);
+        when(mRedditService.latestPosts(DEFAULT_SUBREDDIT, SORT_NEW, DEFAULT_NUMBER, null)).thenReturn(
+                Observable.just(Arrays.asList(mPost)));
+
+        retrieve(mRetriever);
+
+        verify(mListingCursorStorage, never()).setCursor(anyString(), anyString());
+    }
+
+    @Test public void sortedByNewWithNothingNew_keepsCursor() {
+        when(mUserStorage.getSortType()).thenReturn(SORT_NEW);
+        when(mListingCursorStorage.getCursor(LISTING_NEW)).thenReturn(CURSOR);
+        when(mRedditService.latestPosts(DEFAULT_SUBREDDIT, SORT_NEW, DEFAULT_NUMBER, CURSOR)).thenReturn(
+                Observable.just(Collections.<Post>emptyList()));
+
+        retrieveAndDeliver(mRetriever);
+
+        verify(mListingCursorStorage, never()).setCursor(anyString(), anyString());
+    }
+
     @Test public void noSubredditsSelected_usesDefault() {
-        when(mUserStorage.getSubreddits()).thenReturn("");
+        when(mUserStorage.getSubredditCollection()).thenReturn(Collections.<String>emptySet());
+        givenListing(OTHER_SUBREDDIT, DEFAULT_SORT, Collections.<Post>emptyList());
 
         mRetriever.retrieve().subscribe();
 
-        verify(mRedditService).latestPosts("todayilearned+AskReddit", DEFAULT_SORT, DEFAULT_NUMBER);
+        verify(mRedditService).latestPosts(DEFAULT_SUBREDDIT, DEFAULT_SORT, DEFAULT_NUMBER, null);
+        verify(mRedditService).latestPosts(OTHER_SUBREDDIT, DEFAULT_SORT, DEFAULT_NUMBER, null);
+    }
+
+    @Test public void oneListingAtATime_joinsSubredditsIntoMultireddit() {
+        givenSubreddits(DEFAULT_SUBREDDIT, OTHER_SUBREDDIT);
+        givenListing(DEFAULT_SUBREDDIT + "+" + OTHER_SUBREDDIT, DEFAULT_SORT, Arrays.asList(mPost));
+
+        final List<LatestPostsRetriever.PostAndImage> emittedElements = retrieve(createRetriever(1));
+
+        assertThat(emittedElements.size(), equalTo(1));
+        verify(mRedditService).latestPosts(DEFAULT_SUBREDDIT + "+" + OTHER_SUBREDDIT,
+                DEFAULT_SORT,
+                DEFAULT_NUMBER,
+                null);
+        verifyNoMoreInteractions(mRedditService);
+    }
+
+    @Test public void busySubreddit_doesNotCrowdOutQuieterOne() {
+        givenSubreddits(DEFAULT_SUBREDDIT, OTHER_SUBREDDIT);
+        final List<Post> busyPosts = Arrays.asList(mockPost(100),
+                mockPost(90),
+                mockPost(80),
+                mockPost(70),
+                mockPost(60));
+        final List<Post> quietPosts = Arrays.asList(mockPost(5), mockPost(1));
+        givenListing(DEFAULT_SUBREDDIT, DEFAULT_SORT, busyPosts);
+        givenListing(OTHER_SUBREDDIT, DEFAULT_SORT, quietPosts);
+
+        final List<LatestPostsRetriever.PostAndImage> emittedElements = retrieve(mRetriever);
+
+        assertThat(getPosts(emittedElements), equalTo(Arrays.asList(busyPosts.get(0),
+                quietPosts.get(0),
+                busyPosts.get(1),
+                quietPosts.get(1),
+                busyPosts.get(2))));
+    }
+
+    @Test public void manySubreddits_eachAsksForItsShareOfTheLimit() {
+        // 5 posts between 5 subreddits is 1 each, plus the margin for the quieter ones
+        final List<String> subreddits = Arrays.asList("a", "b", "c", "d", "e");
+        givenSubreddits(subreddits.toArray(new String[subreddits.size()]));
+        final List<Post> posts = new ArrayList<>();
+        for (String subreddit : subreddits) {
+            final Post post = mockPost();
+            posts.add(post);
+            when(mRedditService.latestPosts(subreddit, DEFAULT_SORT, 3, null)).thenReturn(
+                    Observable.just(Collections.singletonList(post)));
+        }
+
+        final List<LatestPostsRetriever.PostAndImage> emittedElements = retrieve(mRetriever);
+
+        assertThat(getPosts(emittedElements), equalTo(posts));
+        for (String subreddit : subreddits) {
+            verify(mRedditService).latestPosts(subreddit, DEFAULT_SORT, 3, null);
+        }
+    }
+
+    @Test public void manySubreddits_seenIndexIsScaledWithTheirShare() {
+        final List<String> subreddits = Arrays.asList("a", "b", "c", "d", "e");
+        givenSubreddits(subreddits.toArray(new String[subreddits.size()]));
+        for (String subreddit : subreddits) {
+            when(mRedditService.latestPosts(subreddit, DEFAULT_SORT, 3, null)).thenReturn(
+                    Observable.just(Collections.singletonList(mockPost())));
+        }
+
+        retrieveAndDeliver(mRetriever);
+
+        // 4 refreshes' worth of 5 listings of 3
+        verify(mSeenPostStorage).markSeen(anyCollectionOf(String.class), eq(60));
+    }
+
+    @Test public void eachRound_isRankedByScore() {
+        givenSubreddits(DEFAULT_SUBREDDIT, OTHER_SUBREDDIT);
+        final Post lowScore = mockPost(1);
+        final Post highScore = mockPost(10);
+        givenListing(DEFAULT_SUBREDDIT, DEFAULT_SORT, Collections.singletonList(lowScore));
+        givenListing(OTHER_SUBREDDIT, DEFAULT_SORT, Collections.singletonList(highScore));
+
+        final List<LatestPostsRetriever.PostAndImage> emittedElements = retrieve(mRetriever);
+
+        assertThat(getPosts(emittedElements), equalTo(Arrays.asList(highScore, lowScore)));
+    }
+
+    @Test public void sortedByNew_eachRoundIsRankedByTime() {
+        when(mUserStorage.getSortType()).thenReturn(SORT_NEW);
+        givenSubreddits(DEFAULT_SUBREDDIT, OTHER_SUBREDDIT);
+        final Post older = mockPost();
+        when(older.getCreatedUtc()).thenReturn(100L);
+        final Post newer = mockPost();
+        when(newer.getCreatedUtc()).thenReturn(200L);
+        givenListing(DEFAULT_SUBREDDIT, SORT_NEW, Collections.singletonList(older));
+        givenListing(OTHER_SUBREDDIT, SORT_NEW, Collections.singletonList(newer));
+
+        final List<LatestPostsRetriever.PostAndImage> emittedElements = retrieve(mRetriever);
+
+        assertThat(getPosts(emittedElements), equalTo(Arrays.asList(newer, older)));
+    }
+
+    @Test public void oneSubredditFails_stillEmitsTheOthers() {
+        givenSubreddits(DEFAULT_SUBREDDIT, OTHER_SUBREDDIT);
+        when(mRedditService.latestPosts(OTHER_SUBREDDIT, DEFAULT_SORT, DEFAULT_NUMBER, null)).thenReturn(
+                Observable.<List<Post>>error(new RuntimeException("Network error")));
+
+        final List<LatestPostsRetriever.PostAndImage> emittedElements = retrieve(mRetriever);
+
+        assertThat(getPosts(emittedElements), equalTo(Collections.singletonList(mPost)));
+    }
+
+    @Test public void everySubredditFails_emitsError() {
+        givenSubreddits(DEFAULT_SUBREDDIT, OTHER_SUBREDDIT);
+        final RuntimeException error = new RuntimeException("Network error");
+        when(mRedditService.latestPosts(DEFAULT_SUBREDDIT, DEFAULT_SORT, DEFAULT_NUMBER, null)).thenReturn(
+                Observable.<List<Post>>error(error));
+        when(mRedditService.latestPosts(OTHER_SUBREDDIT, DEFAULT_SORT, DEFAULT_NUMBER, null)).thenReturn(
+                Observable.<List<Post>>error(error));
+
+        final List<Throwable> errors = new ArrayList<>();
+        mRetriever.retrieve().subscribe(postAndImages -> {
+        }, errors::add);
+
+        assertThat(errors, equalTo(Collections.<Throwable>singletonList(error)));
+    }
+
+    @Test public void postsLeftOutOfPage_areNotMarkedSeenOrSkippedByCursor() {
+        when(mUserStorage.getSortType()).thenReturn(SORT_NEW);
+        when(mUserStorage.getNumberToRequest()).thenReturn(2);
+        givenSubreddits(DEFAULT_SUBREDDIT, OTHER_SUBREDDIT);
+        final Post busyNewest = mockPost();
+        final Post busyOldest = mockPost();
+        final Post quiet = mockPost();
+        when(mRedditService.latestPosts(DEFAULT_SUBREDDIT, SORT_NEW, 2, null)).thenReturn(Observable.just(
+                Arrays.asList(busyNewest, busyOldest)));
+        when(mRedditService.latestPosts(OTHER_SUBREDDIT, SORT_NEW, 2, null)).thenReturn(Observable.just(
+                Collections.singletonList(quiet)));
+
+        final List<LatestPostsRetriever.PostAndImage> emittedElements = retrieveAndDeliver(mRetriever);
+
+        assertThat(emittedElements.size(), equalTo(2));
+        assertThat(mSeenFullnames.contains(busyOldest.getFullname()), equalTo(false));
+        assertThat(mSeenFullnames.contains(busyNewest.getFullname()), equalTo(true));
+        assertThat(mSeenFullnames.contains(quiet.getFullname()), equalTo(true));
+        verify(mListingCursorStorage, never()).setCursor(eq(LISTING_NEW), anyString());
+        verify(mListingCursorStorage).setCursor(OTHER_SUBREDDIT + "/" + SORT_NEW, quiet.getFullname());
+    }
+
+    @Test public void imagesDownloadedInParallel_keepListingOrder() {
+        final List<Post> posts = new ArrayList<>();
+        for (int i = 0; i < DEFAULT_NUMBER; i++) {
+            final Post post = mockPost();
+            final String url = DEFAULT_IMAGE_URL + i;
+            final long delayMillis = (DEFAULT_NUMBER - i) * 20;
+            when(post.hasImageUrl()).thenReturn(true);
+            when(post.getImageUrl()).thenReturn(url);
+            // Earlier posts take longer, so they finish last
+            when(mImageDownloader.downloadImage(url)).thenAnswer(invocation -> {
+                Thread.sleep(delayMillis);
+                return null;
+            });
+            posts.add(post);
+        }
+        when(mRedditService.latestPosts(DEFAULT_SUBREDDIT,
+                DEFAULT_SORT,
+                DEFAULT_NUMBER,
+                null)).thenReturn(Observable.just(posts));
+
+        final List<LatestPostsRetriever.PostAndImage> emittedElements = new LatestPostsRetriever(
+                mImageDownloader,
+                mListingCursorStorage,
+                mSeenPostStorage,
+                mUserStorage,
+                mRedditService,
+                Schedulers.io(),
+                MAX_CONCURRENT_LISTINGS,
+                MAX_CONCURRENT_DOWNLOADS,
+                IMAGE_TIMEOUT_MILLIS).retrieve().toBlocking().single().getPostAndImages();
+
+        assertThat(emittedElements.size(), equalTo(DEFAULT_NUMBER));
+        for (int i = 0; i < DEFAULT_NUMBER; i++) {
+            assertThat(emittedElements.get(i).getPost(), equalTo(posts.get(i)));
+        }
+    }
+
+    @Test public void imageDownloadTimesOut_stillEmitsPostWithoutImage() {
+        when(mPost.hasImageUrl()).thenReturn(true);
+        when(mPost.getImageUrl()).thenReturn(DEFAULT_IMAGE_URL);
+        when(mImageDownloader.downloadImage(DEFAULT_IMAGE_URL)).thenAnswer(invocation -> {
+            Thread.sleep(IMAGE_TIMEOUT_MILLIS * 5);
+            return null;
+        });
+
+        final List<LatestPostsRetriever.PostAndImage> emittedElements = new LatestPostsRetriever(
+                mImageDownloader,
+                mListingCursorStorage,
+                mSeenPostStorage,
+                mUserStorage,
+                mRedditService,
+                Schedulers.io(),
+                MAX_CONCURRENT_LISTINGS,
+                MAX_CONCURRENT_DOWNLOADS,
+                IMAGE_TIMEOUT_MILLIS).retrieve().toBlocking().single().getPostAndImages();
+
+        assertThat(emittedElements.size(), equalTo(1));
+        assertThat(emittedElements.get(0).getPost(), equalTo(mPost));
+        assertThat(emittedElements.get(0).getImage(), equalTo(null));
     }
 }
@@ -0,0 +1,62 @@
+package com.emmaguy.todayilearned.refresh;
+
+import com.emmaguy.todayilearned.TestUtils;
+import com.emmaguy.todayilearned.sharedlib.Comment;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import retrofit.converter.ConversionException;
+import retrofit.mime.TypedInput;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MoreCommentsConverterTest {
+    @Test public void buildsTreeFromParentIds() throws Exception {
+        List<Comment> comments = convertMoreComments("more-comments.json");
+
+        assertThat(comments.size(), equalTo(2));
+
+        assertThat(comments.get(0).getPostContents(), equalTo("a root comment"));
+        assertThat(comments.get(0).getAuthor(), equalTo("first"));
+        assertThat(comments.get(0).getScore(), equalTo(3));
+        assertThat(comments.get(0).getGilded(), equalTo(1));
+        assertThat(comments.get(0).getReplyLevel(), equalTo(1));
+        assertThat(comments.get(0).getReplies().size(), equalTo(2));
+
+        Comment reply = comments.get(0).getReplies().get(0);
+        assertThat(reply.getPostContents(), equalTo("a reply to the root comment"));
+        assertThat(reply.isScoreHidden(), equalTo(true));
+        assertThat(reply.getReplyLevel(), equalTo(2));
+        assertThat(reply.getReplies(), nullValue());
+
+        assertThat(comments.get(1).getPostContents(), equalTo("another root comment"));
+        assertThat(comments.get(1).getReplyLevel(), equalTo(1));
+    }
+
+    @Test public void moreThings_areKeptAsPlaceholders() throws Exception {
+        List<Comment> comments = convertMoreComments("more-comments.json");
+
+        Comment more = comments.get(0).getReplies().get(1);
+        assertThat(more.isMore(), equalTo(true));
+        assertThat(more.getMoreChildIds(), equalTo(Arrays.asList("e2", "e3")));
+        assertThat(more.getLinkFullname(), equalTo("t3_abc"));
+        assertThat(more.getReplyLevel(), equalTo(2));
+    }
+
+    private List<Comment> convertMoreComments(String filename) throws IOException,
+            ConversionException {
+        final TypedInput body = mock(TypedInput.class);
+        when(body.in()).thenReturn(TestUtils.loadFileFromStream(filename));
+
+        return ((MoreComments) new MoreCommentsConverter().fromBody(body,
+                MoreComments.class)).getComments();
+    }
+}
@@ -0,0 +1,68 @@
+package com.emmaguy.todayilearned.refresh;
+
+import com.emmaguy.todayilearned.sharedlib.Comment;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import rx.Observable;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class MoreCommentsRetrieverTest {
+    private static final String LINK_FULLNAME = "t3_abc";
+
+    @Mock RedditService mRedditService;
+
+    private MoreCommentsRetriever mRetriever;
+
+    @Before public void before() {
+        initMocks(this);
+
+        when(mRedditService.moreComments(anyString(), anyString(), anyString())).thenReturn(
+                Observable.just(new MoreComments(Collections.singletonList(new Comment.Builder().setPostContents(
+                        "loaded").setReplyLevel(2).build()))));
+
+        mRetriever = new MoreCommentsRetriever(mRedditService, 2);
+    }
+
+    @Test public void requestsFirstSliceOfIds() {
+        mRetriever.retrieve(LINK_FULLNAME, Arrays.asList("a", "b", "c"), 2)
+                .toBlocking()
+                .single();
+
+        verify(mRedditService).moreComments(LINK_FULLNAME, "a,b", "best");
+    }
+
+    @Test public void remainingIds_areReturnedAsPlaceholder() {
+        final List<Comment> comments = mRetriever.retrieve(LINK_FULLNAME,
+                Arrays.asList("a", "b", "c"),
+                2).toBlocking().single();
+
+        assertThat(comments.size(), equalTo(2));
+        assertThat(comments.get(0).getPostContents(), equalTo("loaded"));
+        assertThat(comments.get(1).isMore(), equalTo(true));
+        assertThat(comments.get(1).getMoreChildIds(), equalTo(Collections.singletonList("c")));
+        assertThat(comments.get(1).getLinkFullname(), equalTo(LINK_FULLNAME));
+        assertThat(comments.get(1).getReplyLevel(), equalTo(2));
+    }
+
+    @Test public void allIdsFitInOneSlice_noPlaceholderIsAdded() {
+        final List<Comment> comments = mRetriever.retrieve(LINK_FULLNAME,
+                Arrays.asList("a", "b"),
+                2).toBlocking().single();
+
+        assertThat(comments.size(), equalTo(1));
+        assertThat(comments.get(0).isMore(), equalTo(false));
+    }
+}
@@ -109,7 +109,28 @@ public class PostConverterTest {
         assertThat(post.getImageUrl(), equalTo("https://smallestres"));
     }
 
+    @Test public void skipsStickiedPosts_andKeepsListingOrder() throws Exception {
+        List<Post> posts = convertPostsResponse("post-listing-stickied.json");
+
+        assertThat(posts.size(), equalTo(2));
+        assertThat(posts.get(0).getFullname(), equalTo("t3_3eibbb"));
+        assertThat(posts.get(0).getCreatedUtc(), equalTo(1437791472l));
+        assertThat(posts.get(0).getGilded(), equalTo(2));
+        assertThat(posts.get(0).getImageUrl(), equalTo("http://oembed-thumbnail"));
+        assertThat(posts.get(1).getFullname(), equalTo("t3_3eiccc"));
+        assertThat(posts.get(1).getCreatedUtc(), equalTo(1437791500l));
+        assertThat(posts.get(1).hasImageUrl(), equalTo(false));
+    }
+
     private Post convertPostResponse(String filename) throws IOException, ConversionException {
+        final List<Post> posts = convertPostsResponse(filename);
+
+        assertThat(posts.size(), equalTo(1));
+        return posts.get(0);
+    }
+
+    private List<Post> convertPostsResponse(String filename) throws IOException,
+            ConversionException {
         final TypedInput body = mock(TypedInput.class);
         when(body.in()).thenReturn(TestUtils.loadFileFromStream(filename));
 
@@ -131,7 +152,6 @@ public class PostConverterTest {
             }
         });
 
-        assertThat(posts.size(), equalTo(1));
-        return posts.get(0);
+        return posts;
     }
 }
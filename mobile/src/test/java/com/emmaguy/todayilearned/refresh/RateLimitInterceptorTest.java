@@ -0,0 +1,105 @@
+package com.emmaguy.todayilearned.refresh;
+
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.Protocol;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.net.HttpURLConnection;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class RateLimitInterceptorTest {
+    private static final String LISTING_URL = "https://oauth.reddit.com/r/todayilearned/new.json";
+    private static final String COMMENTS_URL = "https://oauth.reddit.com/r/todayilearned/comments/3ekx1l/title/.json";
+    private static final String UNREAD_URL = "https://oauth.reddit.com/message/unread.json";
+    private static final String READ_MESSAGE_URL = "https://oauth.reddit.com/api/read_message?id=t4_a";
+    private static final String VOTE_URL = "https://oauth.reddit.com/api/vote?id=t3_a&dir=1";
+
+    @Mock private Interceptor.Chain mChain;
+    @Mock private RateLimiter mRateLimiter;
+
+    private RateLimitInterceptor mInterceptor;
+
+    @Before public void before() throws Exception {
+        initMocks(this);
+
+        mInterceptor = new RateLimitInterceptor(mRateLimiter);
+    }
+
+    private Request givenRequest(String url) throws Exception {
+        final Request request = new Request.Builder().url(url).build();
+        when(mChain.request()).thenReturn(request);
+        return request;
+    }
+
+    private void givenResponse(Response.Builder responseBuilder) throws Exception {
+        when(mChain.proceed(any(Request.class))).thenReturn(responseBuilder.build());
+    }
+
+    private Response.Builder responseBuilder(Request request, int code) {
+        return new Response.Builder().request(request).protocol(Protocol.HTTP_1_1).code(code);
+    }
+
+    @Test public void backgroundRequests_areNotInteractive() throws Exception {
+        assertThat(RateLimitInterceptor.isInteractive(givenRequest(LISTING_URL)), equalTo(false));
+        assertThat(RateLimitInterceptor.isInteractive(givenRequest(UNREAD_URL)), equalTo(false));
+        assertThat(RateLimitInterceptor.isInteractive(givenRequest(READ_MESSAGE_URL)), equalTo(false));
+    }
+
+    @Test public void watchRequests_areInteractive() throws Exception {
+        assertThat(RateLimitInterceptor.isInteractive(givenRequest(COMMENTS_URL)), equalTo(true));
+        assertThat(RateLimitInterceptor.isInteractive(givenRequest(VOTE_URL)), equalTo(true));
+    }
+
+    @Test public void request_acquiresTokenBeforeProceeding() throws Exception {
+        final Request request = givenRequest(VOTE_URL);
+        givenResponse(responseBuilder(request, HttpURLConnection.HTTP_OK));
+
+        mInterceptor.intercept(mChain);
+
+        verify(mRateLimiter).acquire(true);
+    }
+
+    @Test public void rateLimitHeaders_updateBudget() throws Exception {
+        final Request request = givenRequest(LISTING_URL);
+        givenResponse(responseBuilder(request, HttpURLConnection.HTTP_OK).header("X-Ratelimit-Remaining",
+                "598.0").header("X-Ratelimit-Reset", "412"));
+
+        mInterceptor.intercept(mChain);
+
+        verify(mRateLimiter).acquire(false);
+        verify(mRateLimiter).update(598.0, 412);
+    }
+
+    @Test public void tooManyRequestsWithoutHeaders_usesRetryAfter() throws Exception {
+        final Request request = givenRequest(LISTING_URL);
+        givenResponse(responseBuilder(request, 429).header("Retry-After", "30"));
+
+        mInterceptor.intercept(mChain);
+
+        verify(mRateLimiter).update(0, 30);
+    }
+
+    @Test public void malformedHeaders_areIgnored() throws Exception {
+        final Request request = givenRequest(LISTING_URL);
+        givenResponse(responseBuilder(request, HttpURLConnection.HTTP_OK).header("X-Ratelimit-Remaining",
+                "lots").header("X-Ratelimit-Reset", "412"));
+
+        mInterceptor.intercept(mChain);
+
+        verify(mRateLimiter, never()).update(anyDouble(), anyLong());
+    }
+}
@@ -0,0 +1,87 @@
+package com.emmaguy.todayilearned.refresh;
+
+import com.emmaguy.todayilearned.common.Clock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class RateLimiterTest {
+    private static final int INTERACTIVE_RESERVE = 2;
+    private static final long MAX_WAIT_MILLIS = 5000;
+    private static final long NOW_MILLIS = 1_000_000L;
+
+    @Mock Clock mClock;
+
+    private RateLimiter mRateLimiter;
+
+    @Before public void before() {
+        initMocks(this);
+
+        when(mClock.elapsedRealtime()).thenReturn(NOW_MILLIS);
+
+        mRateLimiter = new RateLimiter(INTERACTIVE_RESERVE, MAX_WAIT_MILLIS, mClock);
+    }
+
+    @Test public void budgetUnknown_letsBackgroundRequestsThrough() throws Exception {
+        mRateLimiter.acquire(false);
+    }
+
+    @Test public void eachRequest_takesATokenUntilRedditUpdatesBudget() throws Exception {
+        mRateLimiter.update(10, 60);
+
+        mRateLimiter.acquire(false);
+        mRateLimiter.acquire(true);
+
+        assertThat(mRateLimiter.getRemaining(), equalTo(8.0));
+    }
+
+    @Test public void budgetLow_stillLetsInteractiveRequestsThrough() throws Exception {
+        mRateLimiter.update(0, 600);
+
+        mRateLimiter.acquire(true);
+    }
+
+    @Test(expected = IOException.class)
+    public void budgetLowAndResetTooFarAway_failsBackgroundRequest() throws Exception {
+        mRateLimiter.update(INTERACTIVE_RESERVE, 600);
+
+        mRateLimiter.acquire(false);
+    }
+
+    @Test public void budgetLowButWindowHasReset_letsBackgroundRequestsThrough() throws Exception {
+        mRateLimiter.update(0, 600);
+        when(mClock.elapsedRealtime()).thenReturn(NOW_MILLIS + TimeUnit.SECONDS.toMillis(600));
+
+        mRateLimiter.acquire(false);
+    }
+
+    @Test public void budgetLow_backgroundRequestWaitsUntilBudgetIsRefilled() throws Exception {
+        mRateLimiter.update(0, 1);
+
+        final CountDownLatch acquired = new CountDownLatch(1);
+        new Thread(() -> {
+            try {
+                mRateLimiter.acquire(false);
+                acquired.countDown();
+            } catch (IOException e) {
+                // Fails the test by never counting down
+            }
+        }).start();
+
+        assertThat(acquired.await(100, TimeUnit.MILLISECONDS), equalTo(false));
+
+        mRateLimiter.update(100, 600);
+
+        assertThat(acquired.await(1, TimeUnit.SECONDS), equalTo(true));
+    }
+}
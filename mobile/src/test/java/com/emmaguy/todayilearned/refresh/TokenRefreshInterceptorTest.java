@@ -15,6 +15,13 @@ import org.mockito.Mock;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import retrofit.RequestInterceptor;
 import retrofit.RetrofitError;
@@ -27,6 +34,8 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -161,6 +170,86 @@ public class TokenRefreshInterceptorTest {
         verify(mTokenStorage).forceExpireToken();
     }
 
+    @Test public void concurrentRequestsWithExpiredToken_shareSingleRenewalThenProceedInParallel()
+            throws Exception {
+        final AtomicBoolean hasExpired = new AtomicBoolean(true);
+        final CountDownLatch sawExpired = new CountDownLatch(3);
+        final CountDownLatch renewalStarted = new CountDownLatch(1);
+        final CountDownLatch releaseRenewal = new CountDownLatch(1);
+        final CountDownLatch releaseFirstRequest = new CountDownLatch(1);
+        final AtomicInteger requests = new AtomicInteger();
+
+        when(mTokenStorage.hasNoToken()).thenReturn(false);
+        when(mTokenStorage.hasTokenExpired()).thenAnswer(invocation -> {
+            final boolean isExpired = hasExpired.get();
+            if (isExpired) {
+                sawExpired.countDown();
+            }
+            return isExpired;
+        });
+        doAnswer(invocation -> {
+            hasExpired.set(false);
+            return null;
+        }).when(mTokenStorage).updateToken(mToken);
+        when(mTokenStorage.getAccessToken()).thenReturn(DEFAULT_ACCESS_TOKEN);
+        when(mTokenStorage.getRefreshToken()).thenReturn(DEFAULT_REFRESH_TOKEN);
+        when(mRedditService.refreshToken(anyString(), anyString())).thenAnswer(invocation -> {
+            renewalStarted.countDown();
+            releaseRenewal.await(5, TimeUnit.SECONDS);
+            return mToken;
+        });
+        when(mChain.request()).thenReturn(mOriginalRequest);
+        // The first request to go out is slow
+        when(mChain.proceed(argThat(allOf(hasUrl(DEFAULT_URL),
+                hasAuthorisationHeader(BEARER_ + DEFAULT_ACCESS_TOKEN))))).thenAnswer(invocation -> {
+            if (requests.incrementAndGet() == 1) {
+                releaseFirstRequest.await(5, TimeUnit.SECONDS);
+            }
+            return mSuccessfulResponse;
+        });
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final Future<Response> first = executor.submit(() -> mRefreshTokenInterceptor.intercept(mChain));
+        assertThat(renewalStarted.await(5, TimeUnit.SECONDS), equalTo(true));
+        final Future<Response> second = executor.submit(() -> mRefreshTokenInterceptor.intercept(mChain));
+
+        // Both requests have found the token expired, and the first is still renewing it
+        assertThat(sawExpired.await(5, TimeUnit.SECONDS), equalTo(true));
+        releaseRenewal.countDown();
+
+        // Only the renewal is serialised, so the second request doesn't wait for the first's response
+        assertThat(second.get(1, TimeUnit.SECONDS), sameInstance(mSuccessfulResponse));
+        assertThat(first.isDone(), equalTo(false));
+
+        releaseFirstRequest.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS), sameInstance(mSuccessfulResponse));
+        executor.shutdown();
+
+        verify(mRedditService, times(1)).refreshToken(Constants.GRANT_TYPE_REFRESH_TOKEN,
+                DEFAULT_REFRESH_TOKEN);
+    }
+
+    @Test public void tokenExpiresWithinWindow_renewsAhead() throws Exception {
+        when(mTokenStorage.hasNoToken()).thenReturn(false);
+        when(mTokenStorage.getExpiryTimeMillis()).thenReturn(System.currentTimeMillis() + 1000);
+        when(mTokenStorage.getRefreshToken()).thenReturn(DEFAULT_REFRESH_TOKEN);
+
+        mRefreshTokenInterceptor.renewTokenAhead(TimeUnit.MINUTES.toMillis(5));
+
+        verify(mRedditService).refreshToken(Constants.GRANT_TYPE_REFRESH_TOKEN, DEFAULT_REFRESH_TOKEN);
+        verify(mTokenStorage).updateToken(mToken);
+    }
+
+    @Test public void tokenExpiresAfterWindow_doesNotRenewAhead() throws Exception {
+        when(mTokenStorage.hasNoToken()).thenReturn(false);
+        when(mTokenStorage.getExpiryTimeMillis()).thenReturn(
+                System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+
+        mRefreshTokenInterceptor.renewTokenAhead(TimeUnit.MINUTES.toMillis(5));
+
+        verify(mRedditService, never()).refreshToken(anyString(), anyString());
+    }
+
     private Matcher<Request> hasAuthorisationHeader(String authHeader) {
         return new FeatureMatcher<Request, String>(equalTo(authHeader),
                 "Authorisation header",
@@ -0,0 +1,83 @@
+package com.emmaguy.todayilearned.refresh;
+
+import com.emmaguy.todayilearned.storage.TokenStorage;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import rx.schedulers.TestScheduler;
+
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class TokenRenewalSchedulerTest {
+    private static final long WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long EXPIRY_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    @Mock TokenRefreshInterceptor mTokenRefreshInterceptor;
+    @Mock TokenStorage mTokenStorage;
+
+    private TestScheduler mScheduler;
+    private TokenRenewalScheduler mRenewalScheduler;
+
+    @Before public void before() throws Exception {
+        initMocks(this);
+
+        when(mTokenStorage.isLoggedIn()).thenReturn(true);
+        when(mTokenStorage.getExpiryTimeMillis()).thenReturn(EXPIRY_MILLIS);
+
+        mScheduler = new TestScheduler();
+        mRenewalScheduler = new TokenRenewalScheduler(mTokenRefreshInterceptor,
+                mTokenStorage,
+                mScheduler,
+                WINDOW_MILLIS);
+    }
+
+    @Test public void renewsWhenTokenEntersWindow() throws Exception {
+        mRenewalScheduler.schedule();
+
+        mScheduler.advanceTimeTo(EXPIRY_MILLIS - WINDOW_MILLIS - 1, TimeUnit.MILLISECONDS);
+        verify(mTokenRefreshInterceptor, never()).renewTokenAhead(anyLong());
+
+        mScheduler.advanceTimeTo(EXPIRY_MILLIS - WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        verify(mTokenRefreshInterceptor).renewTokenAhead(WINDOW_MILLIS);
+    }
+
+    @Test public void notLoggedIn_doesNotRenew() throws Exception {
+        when(mTokenStorage.isLoggedIn()).thenReturn(false);
+
+        mRenewalScheduler.schedule();
+        mScheduler.advanceTimeBy(1, TimeUnit.DAYS);
+
+        verify(mTokenRefreshInterceptor, never()).renewTokenAhead(anyLong());
+    }
+
+    @Test public void cancelled_doesNotRenew() throws Exception {
+        mRenewalScheduler.schedule();
+        mRenewalScheduler.cancel();
+        mScheduler.advanceTimeTo(EXPIRY_MILLIS, TimeUnit.MILLISECONDS);
+
+        verify(mTokenRefreshInterceptor, never()).renewTokenAhead(anyLong());
+    }
+
+    @Test public void failedRenewal_isRetriedAfterDelay() throws Exception {
+        doThrow(new RuntimeException("Failed to renew token")).when(mTokenRefreshInterceptor)
+                .renewTokenAhead(anyLong());
+
+        mRenewalScheduler.schedule();
+        mScheduler.advanceTimeTo(EXPIRY_MILLIS - WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        verify(mTokenRefreshInterceptor, times(1)).renewTokenAhead(WINDOW_MILLIS);
+
+        mScheduler.advanceTimeBy(1, TimeUnit.MINUTES);
+        verify(mTokenRefreshInterceptor, times(2)).renewTokenAhead(WINDOW_MILLIS);
+    }
+}
@@ -13,6 +13,7 @@ import org.mockito.Mock;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import retrofit.RetrofitError;
@@ -22,10 +23,13 @@ import rx.schedulers.Schedulers;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -51,8 +55,13 @@ public class UnreadDirectMessageRetrieverTest {
     }
 
     @NonNull private Post mockDirectMessage() {
+        return mockDirectMessage("t4_abc");
+    }
+
+    @NonNull private Post mockDirectMessage(String fullname) {
         final Post post = mock(Post.class);
         when(post.isDirectMessage()).thenReturn(true);
+        when(post.getFullname()).thenReturn(fullname);
         return post;
     }
 
@@ -90,7 +99,7 @@ public class UnreadDirectMessageRetrieverTest {
         assertThat(emittedElements.size(), equalTo(0));
     }
 
-    @Test public void loggedInAndMessagesEnabled_retrievesMessagesAndMarksAsRead() {
+    @Test public void loggedInAndMessagesEnabled_retrievesMessagesWithoutMarkingAsRead() {
         when(mTokenStorage.isLoggedIn()).thenReturn(true);
         when(mUserStorage.messagesEnabled()).thenReturn(true);
 
@@ -98,10 +107,6 @@ public class UnreadDirectMessageRetrieverTest {
         final Observable<List<Post>> observable = Observable.just(Arrays.asList(directMessage));
         when(mAuthenticatedRedditService.unreadMessages()).thenReturn(observable);
 
-        final MarkAllRead markAllRead = mock(MarkAllRead.class);
-        when(markAllRead.hasErrors()).thenReturn(false);
-        when(mAuthenticatedRedditService.markAllMessagesRead()).thenReturn(markAllRead);
-
         final List<Post> emittedElements = new ArrayList<>();
         mRetriever.retrieve()
                 .observeOn(Schedulers.immediate())
@@ -116,33 +121,52 @@ public class UnreadDirectMessageRetrieverTest {
         assertThat(emittedElements.get(0), equalTo(directMessage));
 
         verify(mAuthenticatedRedditService).unreadMessages();
-        verify(mAuthenticatedRedditService).markAllMessagesRead();
+        verify(mAuthenticatedRedditService, never()).markMessagesRead(anyString());
     }
 
-    @Test public void markAsReadFailsDueToNetworkError_emitsNothing() throws Exception {
-        when(mTokenStorage.isLoggedIn()).thenReturn(true);
-        when(mUserStorage.messagesEnabled()).thenReturn(true);
+    @Test public void markAsRead_sendsFullnamesInOneRequest() {
+        when(mAuthenticatedRedditService.markMessagesRead("t4_a,t4_b")).thenReturn(
+                Observable.<Void>empty());
 
-        final Observable<List<Post>> observable = Observable.just(Arrays.asList(mockDirectMessage()));
-        when(mAuthenticatedRedditService.unreadMessages()).thenReturn(observable);
+        mRetriever.markAsRead(Arrays.asList(mockDirectMessage("t4_a"), mockDirectMessage("t4_b")))
+                .toBlocking()
+                .lastOrDefault(null);
 
-        final RetrofitError networkError = RetrofitError.networkError("Network error",
-                mock(IOException.class));
-        when(mAuthenticatedRedditService.markAllMessagesRead()).thenThrow(networkError);
+        verify(mAuthenticatedRedditService).markMessagesRead("t4_a,t4_b");
+        verifyNoMoreInteractions(mAuthenticatedRedditService);
+    }
 
-        final List<Post> emittedElements = new ArrayList<>();
-        mRetriever.retrieve()
-                .observeOn(Schedulers.immediate())
-                .subscribeOn(Schedulers.immediate())
-                .subscribe(new Action1<List<Post>>() {
-                    @Override public void call(List<Post> posts) {
-                        emittedElements.addAll(posts);
-                    }
-                });
+    @Test public void markAsRead_withMoreThanOneBatch_splitsIntoBatches() {
+        when(mAuthenticatedRedditService.markMessagesRead(anyString())).thenReturn(
+                Observable.<Void>empty());
 
-        verify(mAuthenticatedRedditService).unreadMessages();
+        final List<Post> messages = new ArrayList<>();
+        for (int i = 0; i < UnreadDirectMessageRetriever.MARK_AS_READ_BATCH_SIZE + 1; i++) {
+            messages.add(mockDirectMessage("t4_" + i));
+        }
 
-        assertThat(emittedElements.size(), equalTo(0));
+        mRetriever.markAsRead(messages).toBlocking().lastOrDefault(null);
+
+        verify(mAuthenticatedRedditService, times(2)).markMessagesRead(anyString());
+        verify(mAuthenticatedRedditService).markMessagesRead(
+                "t4_" + UnreadDirectMessageRetriever.MARK_AS_READ_BATCH_SIZE);
+    }
+
+    @Test public void markAsRead_withNoMessages_makesNoRequests() {
+        mRetriever.markAsRead(Collections.<Post>emptyList()).toBlocking().lastOrDefault(null);
+
+        verifyZeroInteractions(mAuthenticatedRedditService);
+    }
+
+    @Test(expected = RuntimeException.class) public void markAsReadFailsDueToNetworkError_errors() {
+        final RetrofitError networkError = RetrofitError.networkError("Network error",
+                mock(IOException.class));
+        when(mAuthenticatedRedditService.markMessagesRead("t4_a")).thenReturn(Observable.<Void>error(
+                networkError));
+
+        mRetriever.markAsRead(Arrays.asList(mockDirectMessage("t4_a")))
+                .toBlocking()
+                .lastOrDefault(null);
     }
 
     @Test public void retrievingMessageFailsDueToNetworkError_returnsEmptyList() {
@@ -166,7 +190,7 @@ public class UnreadDirectMessageRetrieverTest {
         verify(mAuthenticatedRedditService).unreadMessages();
         verifyNoMoreInteractions(mAuthenticatedRedditService);
 
-        verify(mAuthenticatedRedditService, never()).markAllMessagesRead();
+        verify(mAuthenticatedRedditService, never()).markMessagesRead(anyString());
 
         assertThat(emittedElements.size(), equalTo(0));
     }
@@ -0,0 +1,87 @@
+package com.emmaguy.todayilearned.refresh;
+
+import com.google.android.gms.common.api.GoogleApiClient;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.schedulers.TestScheduler;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class WearableConnectionTest {
+    private static final long IDLE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    @Mock GoogleApiClient mGoogleApiClient;
+
+    private TestScheduler mScheduler;
+    private WearableConnection mConnection;
+
+    @Before public void before() {
+        initMocks(this);
+
+        mScheduler = new TestScheduler();
+        mConnection = new WearableConnection(mGoogleApiClient, mScheduler, IDLE_TIMEOUT_MILLIS);
+    }
+
+    @Test public void acquire_connectsOnce() {
+        assertThat(mConnection.acquire(), equalTo(mGoogleApiClient));
+        when(mGoogleApiClient.isConnecting()).thenReturn(true);
+        mConnection.acquire();
+
+        verify(mGoogleApiClient, times(1)).connect();
+    }
+
+    @Test public void release_disconnectsAfterIdleTimeout() {
+        mConnection.acquire();
+        when(mGoogleApiClient.isConnected()).thenReturn(true);
+        mConnection.release();
+
+        mScheduler.advanceTimeBy(IDLE_TIMEOUT_MILLIS - 1, TimeUnit.MILLISECONDS);
+        verify(mGoogleApiClient, never()).disconnect();
+
+        mScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        verify(mGoogleApiClient).disconnect();
+    }
+
+    @Test public void release_whilstStillHeld_staysConnected() {
+        mConnection.acquire();
+        mConnection.acquire();
+        when(mGoogleApiClient.isConnected()).thenReturn(true);
+        mConnection.release();
+
+        mScheduler.advanceTimeBy(IDLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        verify(mGoogleApiClient, never()).disconnect();
+    }
+
+    @Test public void acquire_withinIdleTimeout_reusesConnection() {
+        mConnection.acquire();
+        when(mGoogleApiClient.isConnected()).thenReturn(true);
+        mConnection.release();
+
+        mScheduler.advanceTimeBy(IDLE_TIMEOUT_MILLIS / 2, TimeUnit.MILLISECONDS);
+        mConnection.acquire();
+        mScheduler.advanceTimeBy(IDLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        verify(mGoogleApiClient, times(1)).connect();
+        verify(mGoogleApiClient, never()).disconnect();
+    }
+
+    @Test public void release_withoutAcquire_isIgnored() {
+        mConnection.release();
+
+        mScheduler.advanceTimeBy(IDLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        verify(mGoogleApiClient, never()).disconnect();
+    }
+}
@@ -0,0 +1,102 @@
+package com.emmaguy.todayilearned.refresh;
+
+import com.emmaguy.todayilearned.common.Clock;
+import com.emmaguy.todayilearned.sharedlib.BinaryCodec;
+import com.emmaguy.todayilearned.sharedlib.Constants;
+import com.emmaguy.todayilearned.sharedlib.Post;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class WearablePostSyncTest {
+    private static final long NOW_MILLIS = 1_000_000L;
+    private static final long MAX_AGE_MILLIS = 60_000L;
+
+    @Mock Clock mClock;
+
+    private WearablePostSync mSync;
+
+    @Before public void before() {
+        initMocks(this);
+
+        when(mClock.currentTimeMillis()).thenReturn(NOW_MILLIS);
+
+        mSync = new WearablePostSync(new WearPayloadCompressor(1024), MAX_AGE_MILLIS, mClock);
+    }
+
+    @Test public void diff_newPost_isPut() {
+        final Post post = post("t3_a", "title");
+
+        final WearablePostSync.Delta delta = mSync.diff(Collections.emptyList(),
+                Collections.singletonList(post));
+
+        assertThat(delta.getPostsToPut(), equalTo(Collections.singletonList(post)));
+        assertThat(delta.getPathsToDelete().isEmpty(), equalTo(true));
+    }
+
+    @Test public void diff_unchangedPost_isNotPut() {
+        final Post post = post("t3_a", "title");
+
+        final WearablePostSync.Delta delta = mSync.diff(Collections.singletonList(sent(post, NOW_MILLIS)),
+                Collections.singletonList(post));
+
+        assertThat(delta.getPostsToPut().isEmpty(), equalTo(true));
+    }
+
+    @Test public void diff_changedPost_isPut() {
+        final Post changed = post("t3_a", "new title");
+
+        final WearablePostSync.Delta delta = mSync.diff(Collections.singletonList(sent(post("t3_a", "title"),
+                NOW_MILLIS)), Collections.singletonList(changed));
+
+        assertThat(delta.getPostsToPut(), equalTo(Collections.singletonList(changed)));
+    }
+
+    @Test public void diff_expiredItems_areDeleted() {
+        final WearablePostSync.Delta delta = mSync.diff(Arrays.asList(sent(post("t3_old", "title"),
+                NOW_MILLIS - MAX_AGE_MILLIS - 1), sent(post("t3_recent", "title"), NOW_MILLIS - 1)),
+                Collections.emptyList());
+
+        assertThat(delta.getPathsToDelete(),
+                equalTo(Collections.singletonList(Constants.PATH_REDDIT_POST_PREFIX + "t3_old")));
+    }
+
+    @Test public void diff_expiredItemStillInListing_isKept() {
+        final Post post = post("t3_a", "title");
+
+        final WearablePostSync.Delta delta = mSync.diff(Collections.singletonList(sent(post,
+                NOW_MILLIS - MAX_AGE_MILLIS - 1)), Collections.singletonList(post));
+
+        assertThat(delta.getPostsToPut().isEmpty(), equalTo(true));
+        assertThat(delta.getPathsToDelete().isEmpty(), equalTo(true));
+    }
+
+    @Test public void diff_singlePostsItem_isDeleted() {
+        final WearablePostSync.Delta delta = mSync.diff(Collections.singletonList(new WearablePostSync.SentItem(
+                Constants.PATH_REDDIT_POSTS,
+                null,
+                NOW_MILLIS)), Collections.emptyList());
+
+        assertThat(delta.getPathsToDelete(),
+                equalTo(Collections.singletonList(Constants.PATH_REDDIT_POSTS)));
+    }
+
+    private WearablePostSync.SentItem sent(Post post, long sentTimestamp) {
+        return new WearablePostSync.SentItem(Constants.PATH_REDDIT_POST_PREFIX + post.getFullname(),
+                BinaryCodec.encodePost(post),
+                sentTimestamp);
+    }
+
+    private Post post(String fullname, String title) {
+        return new Post.Builder().setFullname(fullname).setTitle(title).build();
+    }
+}
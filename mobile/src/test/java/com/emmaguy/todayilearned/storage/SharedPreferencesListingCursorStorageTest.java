@@ -0,0 +1,145 @@
+package com.emmaguy.todayilearned.storage;
+
+import android.content.SharedPreferences;
+import android.content.res.Resources;
+
+import com.emmaguy.todayilearned.R;
+import com.emmaguy.todayilearned.common.Clock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class SharedPreferencesListingCursorStorageTest {
+    private static final String PREFS_KEY = "prefs_key_listing_cursors";
+
+    private static final String LISTING = "todayilearned/new";
+    private static final String OTHER_LISTING = "AskReddit/new";
+    private static final String FULLNAME = "t3_abc";
+
+    private static final long MAX_AGE_MILLIS = 1000;
+    private static final long NOW_MILLIS = 1_000_000L;
+
+    @Mock SharedPreferences.Editor mEditor;
+    @Mock SharedPreferences mSharedPrefs;
+    @Mock Resources mResources;
+    @Mock Clock mClock;
+
+    private Set<String> mStoredValues = Collections.emptySet();
+
+    private SharedPreferencesListingCursorStorage mStorage;
+
+    @Before public void before() {
+        initMocks(this);
+
+        when(mResources.getString(R.string.prefs_key_listing_cursors)).thenReturn(PREFS_KEY);
+
+        // Keep whatever is saved, so it can be read back
+        when(mSharedPrefs.getStringSet(eq(PREFS_KEY), anySetOf(String.class))).thenAnswer(
+                invocation -> mStoredValues);
+        when(mSharedPrefs.edit()).thenReturn(mEditor);
+        when(mEditor.putStringSet(eq(PREFS_KEY), anySetOf(String.class))).thenAnswer(invocation -> {
+            mStoredValues = new HashSet<>((Set<String>) invocation.getArguments()[1]);
+            return mEditor;
+        });
+        doAnswer(invocation -> {
+            mStoredValues = Collections.emptySet();
+            return mEditor;
+        }).when(mEditor).remove(anyString());
+
+        when(mClock.currentTimeMillis()).thenReturn(NOW_MILLIS);
+
+        mStorage = new SharedPreferencesListingCursorStorage(mSharedPrefs,
+                mResources,
+                MAX_AGE_MILLIS,
+                mClock);
+    }
+
+    @Test public void getCursor_forSavedListing_returnsFullname() {
+        mStorage.setCursor(LISTING, FULLNAME);
+
+        assertThat(mStorage.getCursor(LISTING), equalTo(FULLNAME));
+    }
+
+    @Test public void getCursor_forDifferentListing_returnsNull() {
+        mStorage.setCursor(LISTING, FULLNAME);
+
+        assertThat(mStorage.getCursor(OTHER_LISTING), nullValue());
+    }
+
+    @Test public void getCursor_keepsACursorPerListing() {
+        mStorage.setCursor(LISTING, FULLNAME);
+        mStorage.setCursor(OTHER_LISTING, "t3_def");
+
+        assertThat(mStorage.getCursor(LISTING), equalTo(FULLNAME));
+        assertThat(mStorage.getCursor(OTHER_LISTING), equalTo("t3_def"));
+    }
+
+    @Test public void setCursor_replacesListingsPreviousCursor() {
+        mStorage.setCursor(LISTING, FULLNAME);
+        mStorage.setCursor(LISTING, "t3_def");
+
+        assertThat(mStorage.getCursor(LISTING), equalTo("t3_def"));
+        assertThat(mStoredValues.size(), equalTo(1));
+    }
+
+    @Test public void getCursor_olderThanMaxAge_returnsNull() {
+        mStorage.setCursor(LISTING, FULLNAME);
+
+        when(mClock.currentTimeMillis()).thenReturn(NOW_MILLIS + MAX_AGE_MILLIS + 1);
+
+        assertThat(mStorage.getCursor(LISTING), nullValue());
+    }
+
+    @Test public void getCursor_whenClockHasGoneBackwards_returnsNull() {
+        mStorage.setCursor(LISTING, FULLNAME);
+
+        when(mClock.currentTimeMillis()).thenReturn(NOW_MILLIS - 1);
+
+        assertThat(mStorage.getCursor(LISTING), nullValue());
+    }
+
+    @Test public void setCursor_dropsExpiredCursors() {
+        mStorage.setCursor(LISTING, FULLNAME);
+
+        when(mClock.currentTimeMillis()).thenReturn(NOW_MILLIS + MAX_AGE_MILLIS + 1);
+        mStorage.setCursor(OTHER_LISTING, "t3_def");
+
+        assertThat(mStoredValues, equalTo(Collections.singleton(
+                OTHER_LISTING + "@t3_def@" + (NOW_MILLIS + MAX_AGE_MILLIS + 1))));
+    }
+
+    @Test public void malformedValues_areIgnored() {
+        mStoredValues = new HashSet<>(Arrays.asList(LISTING,
+                LISTING + "@" + FULLNAME,
+                LISTING + "@@" + NOW_MILLIS,
+                LISTING + "@" + FULLNAME + "@abc"));
+
+        assertThat(mStorage.getCursor(LISTING), nullValue());
+    }
+
+    @Test public void clear_removesCursors() {
+        mStorage.setCursor(LISTING, FULLNAME);
+
+        mStorage.clear();
+
+        verify(mEditor).remove(PREFS_KEY);
+        assertThat(mStorage.getCursor(LISTING), nullValue());
+    }
+}
@@ -0,0 +1,90 @@
+package com.emmaguy.todayilearned.storage;
+
+import android.content.SharedPreferences;
+
+import com.google.gson.Gson;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class SharedPreferencesPendingActionStorageTest {
+    private static final String PREFS_KEY = "prefs_key_pending_actions";
+
+    @Mock SharedPreferences.Editor mEditor;
+    @Mock SharedPreferences mSharedPrefs;
+
+    private String mStoredValue;
+
+    private SharedPreferencesPendingActionStorage mStorage;
+
+    @Before public void before() {
+        initMocks(this);
+
+        // Keep whatever is saved, so it can be read back
+        when(mSharedPrefs.getString(PREFS_KEY, null)).thenAnswer(invocation -> mStoredValue);
+        when(mSharedPrefs.edit()).thenReturn(mEditor);
+        when(mEditor.putString(eq(PREFS_KEY), anyString())).thenAnswer(invocation -> {
+            mStoredValue = (String) invocation.getArguments()[1];
+            return mEditor;
+        });
+        doAnswer(invocation -> {
+            mStoredValue = null;
+            return mEditor;
+        }).when(mEditor).remove(anyString());
+
+        mStorage = new SharedPreferencesPendingActionStorage(mSharedPrefs, PREFS_KEY, new Gson());
+    }
+
+    @Test public void getPendingActions_whenNothingSaved_returnsEmptyList() {
+        assertThat(mStorage.getPendingActions().isEmpty(), equalTo(true));
+    }
+
+    @Test public void getPendingActions_returnsSavedActionsInOrder() {
+        final PendingAction vote = PendingAction.vote("t3_a", -1);
+        vote.setNextAttempt(2, 1234L);
+        final PendingAction reply = PendingAction.replyToDirectMessage("re: hi", "hello @ you", "user");
+
+        mStorage.setPendingActions(Arrays.asList(vote, reply));
+        final List<PendingAction> actions = mStorage.getPendingActions();
+
+        assertThat(actions.size(), equalTo(2));
+        assertThat(actions.get(0).getId(), equalTo(vote.getId()));
+        assertThat(actions.get(0).isVoteOn("t3_a"), equalTo(true));
+        assertThat(actions.get(0).getVoteDirection(), equalTo(-1));
+        assertThat(actions.get(0).getAttempts(), equalTo(2));
+        assertThat(actions.get(0).getNextAttemptMillis(), equalTo(1234L));
+        assertThat(actions.get(1).getType(), equalTo(PendingAction.TYPE_REPLY_TO_DIRECT_MESSAGE));
+        assertThat(actions.get(1).getSubject(), equalTo("re: hi"));
+        assertThat(actions.get(1).getMessage(), equalTo("hello @ you"));
+        assertThat(actions.get(1).getToUser(), equalTo("user"));
+    }
+
+    @Test public void setPendingActions_withNoActions_removesKey() {
+        mStorage.setPendingActions(Collections.singletonList(PendingAction.vote("t3_a", 1)));
+
+        mStorage.setPendingActions(Collections.<PendingAction>emptyList());
+
+        verify(mEditor).remove(PREFS_KEY);
+        assertThat(mStorage.getPendingActions().isEmpty(), equalTo(true));
+    }
+
+    @Test public void malformedValue_isIgnored() {
+        mStoredValue = "[{\"type\": ";
+
+        assertThat(mStorage.getPendingActions().isEmpty(), equalTo(true));
+    }
+}
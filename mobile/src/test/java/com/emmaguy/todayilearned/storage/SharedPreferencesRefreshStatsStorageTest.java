@@ -0,0 +1,104 @@
+package com.emmaguy.todayilearned.storage;
+
+import android.content.SharedPreferences;
+import android.content.res.Resources;
+
+import com.emmaguy.todayilearned.R;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class SharedPreferencesRefreshStatsStorageTest {
+    private static final String PREFS_KEY_POST_RATES = "prefs_key_refresh_post_rates";
+    private static final String PREFS_KEY_LAST_MILLIS = "prefs_key_refresh_last_millis";
+    private static final String PREFS_KEY_CONSECUTIVE_EMPTY = "prefs_key_refresh_consecutive_empty";
+
+    @Mock SharedPreferences.Editor mEditor;
+    @Mock SharedPreferences mSharedPrefs;
+    @Mock Resources mResources;
+
+    private SharedPreferencesRefreshStatsStorage mStorage;
+
+    @Before public void before() {
+        initMocks(this);
+
+        when(mResources.getString(R.string.prefs_key_refresh_post_rates)).thenReturn(PREFS_KEY_POST_RATES);
+        when(mResources.getString(R.string.prefs_key_refresh_last_millis)).thenReturn(PREFS_KEY_LAST_MILLIS);
+        when(mResources.getString(R.string.prefs_key_refresh_consecutive_empty)).thenReturn(
+                PREFS_KEY_CONSECUTIVE_EMPTY);
+
+        when(mSharedPrefs.edit()).thenReturn(mEditor);
+        when(mEditor.putStringSet(anyString(), anySetOf(String.class))).thenReturn(mEditor);
+        when(mEditor.putLong(anyString(), anyLong())).thenReturn(mEditor);
+        when(mEditor.putInt(anyString(), anyInt())).thenReturn(mEditor);
+        when(mEditor.remove(anyString())).thenReturn(mEditor);
+
+        mStorage = new SharedPreferencesRefreshStatsStorage(mSharedPrefs, mResources);
+    }
+
+    @Test public void getPostRates_parsesSavedRates() {
+        when(mSharedPrefs.getStringSet(eq(PREFS_KEY_POST_RATES), anySetOf(String.class))).thenReturn(
+                new HashSet<>(Arrays.asList("todayilearned@2.5", "askreddit@0.0")));
+
+        final Map<String, Double> expected = new HashMap<>();
+        expected.put("todayilearned", 2.5);
+        expected.put("askreddit", 0.0);
+        assertThat(mStorage.getPostRates(), equalTo(expected));
+    }
+
+    @Test public void getPostRates_ignoresMalformedValues() {
+        when(mSharedPrefs.getStringSet(eq(PREFS_KEY_POST_RATES), anySetOf(String.class))).thenReturn(
+                new HashSet<>(Arrays.asList("todayilearned@2.5", "askreddit", "@1.0", "pics@abc")));
+
+        assertThat(mStorage.getPostRates(), equalTo(Collections.singletonMap("todayilearned", 2.5)));
+    }
+
+    @Test public void getPostRates_nothingSaved_returnsEmpty() {
+        when(mSharedPrefs.getStringSet(eq(PREFS_KEY_POST_RATES), anySetOf(String.class))).thenReturn(
+                Collections.<String>emptySet());
+
+        assertThat(mStorage.getPostRates().isEmpty(), equalTo(true));
+    }
+
+    @Test public void save_storesRatesAndRefreshStats() {
+        final Map<String, Double> rates = new HashMap<>();
+        rates.put("todayilearned", 2.5);
+        rates.put("askreddit", 0.0);
+
+        mStorage.save(rates, 1234L, 2);
+
+        final Set<String> expected = new HashSet<>(Arrays.asList("todayilearned@2.5", "askreddit@0.0"));
+        verify(mEditor).putStringSet(PREFS_KEY_POST_RATES, expected);
+        verify(mEditor).putLong(PREFS_KEY_LAST_MILLIS, 1234L);
+        verify(mEditor).putInt(PREFS_KEY_CONSECUTIVE_EMPTY, 2);
+        verify(mEditor).apply();
+    }
+
+    @Test public void clear_keepsLastRefreshTime() {
+        mStorage.clear();
+
+        verify(mEditor).remove(PREFS_KEY_POST_RATES);
+        verify(mEditor).remove(PREFS_KEY_CONSECUTIVE_EMPTY);
+        verify(mEditor, never()).remove(PREFS_KEY_LAST_MILLIS);
+    }
+}
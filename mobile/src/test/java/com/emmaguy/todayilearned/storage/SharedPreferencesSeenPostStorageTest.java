@@ -0,0 +1,191 @@
+package com.emmaguy.todayilearned.storage;
+
+import android.content.SharedPreferences;
+
+import com.emmaguy.todayilearned.common.Clock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class SharedPreferencesSeenPostStorageTest {
+    private static final String PREFS_KEY = "seen_posts";
+
+    private static final int MIN_ENTRIES = 3;
+    private static final long MAX_AGE_MILLIS = 1000;
+    private static final long NOW_MILLIS = 1_000_000L;
+
+    @Mock SharedPreferences.Editor mEditor;
+    @Mock SharedPreferences mSharedPrefs;
+    @Mock Clock mClock;
+
+    private Set<String> mStoredValues = Collections.emptySet();
+
+    @Before public void before() {
+        initMocks(this);
+
+        // Keep whatever is saved, so a new instance can load it back
+        when(mSharedPrefs.getStringSet(eq(PREFS_KEY), anySetOf(String.class))).thenAnswer(
+                invocation -> mStoredValues);
+        when(mSharedPrefs.edit()).thenReturn(mEditor);
+        when(mEditor.putStringSet(eq(PREFS_KEY), anySetOf(String.class))).thenAnswer(invocation -> {
+            mStoredValues = new HashSet<>((Set<String>) invocation.getArguments()[1]);
+            return mEditor;
+        });
+        doAnswer(invocation -> {
+            mStoredValues = Collections.emptySet();
+            return mEditor;
+        }).when(mEditor).remove(anyString());
+
+        when(mClock.currentTimeMillis()).thenReturn(NOW_MILLIS);
+    }
+
+    private SharedPreferencesSeenPostStorage createStorage() {
+        return new SharedPreferencesSeenPostStorage(mSharedPrefs,
+                PREFS_KEY,
+                MIN_ENTRIES,
+                MAX_AGE_MILLIS,
+                mClock);
+    }
+
+    @Test public void markSeen_thenHasSeen() {
+        final SharedPreferencesSeenPostStorage storage = createStorage();
+
+        storage.markSeen(Arrays.asList("t3_a", "t3_b"), MIN_ENTRIES);
+
+        assertThat(storage.hasSeen("t3_a"), equalTo(true));
+        assertThat(storage.hasSeen("t3_b"), equalTo(true));
+        assertThat(storage.hasSeen("t3_c"), equalTo(false));
+    }
+
+    @Test public void markSeen_ignoresEmptyFullnames() {
+        final SharedPreferencesSeenPostStorage storage = createStorage();
+
+        storage.markSeen(Arrays.asList("t3_a", "", null), MIN_ENTRIES);
+
+        assertThat(storage.size(), equalTo(1));
+    }
+
+    @Test public void seenPosts_survivesRestart() {
+        createStorage().markSeen(Arrays.asList("t3_a", "t3_b"), MIN_ENTRIES);
+
+        final SharedPreferencesSeenPostStorage storage = createStorage();
+
+        assertThat(storage.hasSeen("t3_a"), equalTo(true));
+        assertThat(storage.hasSeen("t3_b"), equalTo(true));
+        assertThat(storage.size(), equalTo(2));
+    }
+
+    @Test public void overMaxEntries_evictsLeastRecentlySeen() {
+        final SharedPreferencesSeenPostStorage storage = createStorage();
+        storage.markSeen(Arrays.asList("t3_a", "t3_b"), MIN_ENTRIES);
+
+        when(mClock.currentTimeMillis()).thenReturn(NOW_MILLIS + 10);
+        storage.markSeen(Collections.singletonList("t3_c"), MIN_ENTRIES);
+
+        // Seeing t3_a again makes t3_b the least recently seen
+        when(mClock.currentTimeMillis()).thenReturn(NOW_MILLIS + 20);
+        storage.markSeen(Arrays.asList("t3_a", "t3_d"), MIN_ENTRIES);
+
+        assertThat(storage.size(), equalTo(MIN_ENTRIES));
+        assertThat(storage.hasSeen("t3_b"), equalTo(false));
+        assertThat(storage.hasSeen("t3_a"), equalTo(true));
+        assertThat(storage.hasSeen("t3_c"), equalTo(true));
+        assertThat(storage.hasSeen("t3_d"), equalTo(true));
+    }
+
+    @Test public void leastRecentlySeen_isStillEvictedFirstAfterRestart() {
+        final SharedPreferencesSeenPostStorage storage = createStorage();
+        storage.markSeen(Collections.singletonList("t3_a"), MIN_ENTRIES);
+        when(mClock.currentTimeMillis()).thenReturn(NOW_MILLIS + 10);
+        storage.markSeen(Collections.singletonList("t3_b"), MIN_ENTRIES);
+        when(mClock.currentTimeMillis()).thenReturn(NOW_MILLIS + 20);
+        storage.markSeen(Collections.singletonList("t3_c"), MIN_ENTRIES);
+
+        final SharedPreferencesSeenPostStorage restarted = createStorage();
+        restarted.markSeen(Collections.singletonList("t3_d"), MIN_ENTRIES);
+
+        assertThat(restarted.hasSeen("t3_a"), equalTo(false));
+        assertThat(restarted.hasSeen("t3_b"), equalTo(true));
+    }
+
+    @Test public void largerMaxEntries_keepsMore() {
+        final SharedPreferencesSeenPostStorage storage = createStorage();
+
+        storage.markSeen(Arrays.asList("t3_a", "t3_b", "t3_c", "t3_d", "t3_e"), 5);
+
+        assertThat(storage.size(), equalTo(5));
+        assertThat(storage.hasSeen("t3_a"), equalTo(true));
+    }
+
+    @Test public void smallerMaxEntries_stillKeepsMinEntries() {
+        final SharedPreferencesSeenPostStorage storage = createStorage();
+
+        storage.markSeen(Arrays.asList("t3_a", "t3_b", "t3_c"), 1);
+
+        assertThat(storage.size(), equalTo(MIN_ENTRIES));
+    }
+
+    @Test public void restart_doesNotShrinkIndexBeforeNextMark() {
+        createStorage().markSeen(Arrays.asList("t3_a", "t3_b", "t3_c", "t3_d", "t3_e"), 5);
+
+        final SharedPreferencesSeenPostStorage storage = createStorage();
+
+        assertThat(storage.size(), equalTo(5));
+        assertThat(storage.hasSeen("t3_a"), equalTo(true));
+    }
+
+    @Test public void olderThanMaxAge_isEvicted() {
+        final SharedPreferencesSeenPostStorage storage = createStorage();
+        storage.markSeen(Collections.singletonList("t3_a"), MIN_ENTRIES);
+
+        when(mClock.currentTimeMillis()).thenReturn(NOW_MILLIS + MAX_AGE_MILLIS + 1);
+        storage.markSeen(Collections.singletonList("t3_b"), MIN_ENTRIES);
+
+        assertThat(storage.hasSeen("t3_a"), equalTo(false));
+        assertThat(storage.hasSeen("t3_b"), equalTo(true));
+    }
+
+    @Test public void olderThanMaxAge_isNotLoaded() {
+        createStorage().markSeen(Collections.singletonList("t3_a"), MIN_ENTRIES);
+
+        when(mClock.currentTimeMillis()).thenReturn(NOW_MILLIS + MAX_AGE_MILLIS + 1);
+
+        assertThat(createStorage().hasSeen("t3_a"), equalTo(false));
+    }
+
+    @Test public void malformedValues_areIgnored() {
+        mStoredValues = new HashSet<>(Arrays.asList("t3_a@" + NOW_MILLIS, "t3_b", "t3_c@abc"));
+
+        final SharedPreferencesSeenPostStorage storage = createStorage();
+
+        assertThat(storage.size(), equalTo(1));
+        assertThat(storage.hasSeen("t3_a"), equalTo(true));
+    }
+
+    @Test public void clear_removesEverything() {
+        final SharedPreferencesSeenPostStorage storage = createStorage();
+        storage.markSeen(Arrays.asList("t3_a", "t3_b"), MIN_ENTRIES);
+
+        storage.clear();
+
+        verify(mEditor).remove(PREFS_KEY);
+        assertThat(storage.hasSeen("t3_a"), equalTo(false));
+        assertThat(createStorage().size(), equalTo(0));
+    }
+}
@@ -0,0 +1,117 @@
+package com.emmaguy.todayilearned.storage;
+
+import android.content.SharedPreferences;
+import android.content.res.Resources;
+
+import com.emmaguy.todayilearned.R;
+import com.emmaguy.todayilearned.common.Clock;
+import com.emmaguy.todayilearned.refresh.Token;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class SharedPreferencesTokenStorageTest {
+    private static final String PREFS_KEY_EXPIRY = "prefs_key_token_expiry_millis";
+    private static final String PREFS_KEY_ACCESS_TOKEN = "prefs_key_token_access_token";
+    private static final String PREFS_KEY_REFRESH_TOKEN = "prefs_key_token_refresh_token";
+
+    private static final long NOW_MILLIS = 1_000_000L;
+    private static final long NOW_ELAPSED = 5_000L;
+
+    @Mock SharedPreferences.Editor mEditor;
+    @Mock SharedPreferences mSharedPrefs;
+    @Mock Resources mResources;
+    @Mock Clock mClock;
+    @Mock Token mToken;
+
+    private SharedPreferencesTokenStorage mStorage;
+
+    @Before public void before() {
+        initMocks(this);
+
+        when(mResources.getString(R.string.prefs_key_token_expiry_millis)).thenReturn(PREFS_KEY_EXPIRY);
+        when(mResources.getString(R.string.prefs_key_token_access_token)).thenReturn(
+                PREFS_KEY_ACCESS_TOKEN);
+        when(mResources.getString(R.string.prefs_key_token_refresh_token)).thenReturn(
+                PREFS_KEY_REFRESH_TOKEN);
+
+        when(mSharedPrefs.getLong(PREFS_KEY_EXPIRY, -1)).thenReturn(NOW_MILLIS + 1000);
+        when(mSharedPrefs.getString(PREFS_KEY_ACCESS_TOKEN, "")).thenReturn("access");
+        when(mSharedPrefs.getString(PREFS_KEY_REFRESH_TOKEN, "")).thenReturn("refresh");
+
+        when(mSharedPrefs.edit()).thenReturn(mEditor);
+        when(mEditor.putLong(anyString(), anyLong())).thenReturn(mEditor);
+        when(mEditor.putString(anyString(), anyString())).thenReturn(mEditor);
+        when(mEditor.remove(anyString())).thenReturn(mEditor);
+
+        when(mClock.currentTimeMillis()).thenReturn(NOW_MILLIS);
+        when(mClock.elapsedRealtime()).thenReturn(NOW_ELAPSED);
+
+        mStorage = new SharedPreferencesTokenStorage(mSharedPrefs, mResources, mClock);
+    }
+
+    @Test public void loadsTokenFromPreferences() {
+        assertThat(mStorage.isLoggedIn(), equalTo(true));
+        assertThat(mStorage.getAccessToken(), equalTo("access"));
+        assertThat(mStorage.getRefreshToken(), equalTo("refresh"));
+        assertThat(mStorage.getExpiryTimeMillis(), equalTo(NOW_MILLIS + 1000));
+        assertThat(mStorage.hasTokenExpired(), equalTo(false));
+    }
+
+    @Test public void readsDoNotGoBackToPreferences() {
+        mStorage.hasNoToken();
+        mStorage.hasTokenExpired();
+        mStorage.getAccessToken();
+
+        verify(mSharedPrefs, times(1)).getString(PREFS_KEY_ACCESS_TOKEN, "");
+        verify(mResources, times(1)).getString(R.string.prefs_key_token_access_token);
+    }
+
+    @Test public void expiry_usesMonotonicClock() {
+        // Moving the wall clock back doesn't extend the token's life
+        when(mClock.currentTimeMillis()).thenReturn(0L);
+        when(mClock.elapsedRealtime()).thenReturn(NOW_ELAPSED + 1001);
+
+        assertThat(mStorage.hasTokenExpired(), equalTo(true));
+    }
+
+    @Test public void updateToken_keepsRefreshTokenAndWritesThrough() {
+        when(mToken.getAccessToken()).thenReturn("new_access");
+        when(mToken.getExpiryTimeMillis()).thenReturn(NOW_MILLIS + 3600_000);
+
+        mStorage.updateToken(mToken);
+
+        assertThat(mStorage.getAccessToken(), equalTo("new_access"));
+        assertThat(mStorage.getRefreshToken(), equalTo("refresh"));
+        assertThat(mStorage.getExpiryTimeMillis(), equalTo(NOW_MILLIS + 3600_000));
+        verify(mEditor).putString(PREFS_KEY_ACCESS_TOKEN, "new_access");
+        verify(mEditor).putLong(PREFS_KEY_EXPIRY, NOW_MILLIS + 3600_000);
+        verify(mEditor).apply();
+    }
+
+    @Test public void forceExpireToken_expiresImmediately() {
+        mStorage.forceExpireToken();
+
+        assertThat(mStorage.hasTokenExpired(), equalTo(true));
+        assertThat(mStorage.isLoggedIn(), equalTo(true));
+        verify(mEditor).putLong(PREFS_KEY_EXPIRY, NOW_MILLIS - 1);
+    }
+
+    @Test public void clearToken_logsOut() {
+        mStorage.clearToken();
+
+        assertThat(mStorage.isLoggedIn(), equalTo(false));
+        assertThat(mStorage.hasTokenExpired(), equalTo(true));
+        verify(mEditor).remove(PREFS_KEY_REFRESH_TOKEN);
+    }
+}
@@ -0,0 +1,310 @@
+package com.emmaguy.todayilearned.sharedlib;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of {@link Post}s and {@link Comment}s for sending between the phone and the watch,
+ * which is much smaller than json and quicker to parse as it needs no reflection.
+ * <p>
+ * The format is a version byte, then a string table, then the object itself. Every string is written once
+ * in the table and referred to by its index, so repeated subreddits and authors only cost a byte or two.
+ * Ints and longs are zigzag varints and strings and lists are prefixed with their length.
+ * <p>
+ * Bump {@link #VERSION} whenever the format changes - a phone and watch running different versions of the
+ * app will then fail to decode rather than read garbage
+ */
+public class BinaryCodec {
+    static final int VERSION = 1;
+
+    private static final String CHARSET = "UTF-8";
+
+    private static final int POST_FLAG_DIRECT_MESSAGE = 1;
+    private static final int POST_FLAG_HAS_IMAGE_URL = 1 << 1;
+
+    private static final int COMMENT_FLAG_SCORE_HIDDEN = 1;
+    private static final int COMMENT_FLAG_HAS_REPLIES = 1 << 1;
+    private static final int COMMENT_FLAG_HAS_MORE_CHILD_IDS = 1 << 2;
+
+    public static byte[] encodePost(Post post) {
+        final Writer writer = new Writer();
+        writePost(writer, post);
+        return writer.toByteArray();
+    }
+
+    public static Post decodePost(byte[] bytes) throws IOException {
+        return readPost(new Reader(bytes));
+    }
+
+    public static byte[] encodeComments(List<Comment> comments) {
+        final Writer writer = new Writer();
+        writeComments(writer, comments);
+        return writer.toByteArray();
+    }
+
+    public static List<Comment> decodeComments(byte[] bytes) throws IOException {
+        return readComments(new Reader(bytes));
+    }
+
+    private static void writePost(Writer writer, Post post) {
+        int flags = 0;
+        if (post.isDirectMessage()) {
+            flags |= POST_FLAG_DIRECT_MESSAGE;
+        }
+        if (post.hasImageUrl()) {
+            flags |= POST_FLAG_HAS_IMAGE_URL;
+        }
+
+        writer.writeVarint(flags);
+        writer.writeString(post.getShortTitle());
+        writer.writeString(post.getPostContents());
+        writer.writeString(post.getSubreddit());
+        writer.writeString(post.getPermalink());
+        writer.writeString(post.getFullname());
+        writer.writeString(post.getImageUrl());
+        writer.writeString(post.getAuthor());
+        writer.writeString(post.getTitle());
+        writer.writeString(post.getUrl());
+        writer.writeString(post.getId());
+        writer.writeSignedVarint(post.getCreatedUtc());
+        writer.writeSignedVarint(post.getScore());
+        writer.writeSignedVarint(post.getGilded());
+    }
+
+    private static Post readPost(Reader reader) throws IOException {
+        final int flags = (int) reader.readVarint();
+
+        return new Post.Builder().setIsDirectMessage((flags & POST_FLAG_DIRECT_MESSAGE) != 0)
+                .hasImageUrl((flags & POST_FLAG_HAS_IMAGE_URL) != 0)
+                .setShortTitle(reader.readString())
+                .setPostContents(reader.readString())
+                .setSubreddit(reader.readString())
+                .setPermalink(reader.readString())
+                .setFullname(reader.readString())
+                .setImageUrl(reader.readString())
+                .setAuthor(reader.readString())
+                .setTitle(reader.readString())
+                .setUrl(reader.readString())
+                .setId(reader.readString())
+                .setCreatedUtc(reader.readSignedVarint())
+                .setScore((int) reader.readSignedVarint())
+                .setGilded((int) reader.readSignedVarint())
+                .build();
+    }
+
+    private static void writeComments(Writer writer, List<Comment> comments) {
+        writer.writeVarint(comments.size());
+        for (Comment comment : comments) {
+            writeComment(writer, comment);
+        }
+    }
+
+    private static List<Comment> readComments(Reader reader) throws IOException {
+        final int count = reader.readLength();
+        final List<Comment> comments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            comments.add(readComment(reader));
+        }
+        return comments;
+    }
+
+    private static void writeComment(Writer writer, Comment comment) {
+        int flags = 0;
+        if (comment.isScoreHidden()) {
+            flags |= COMMENT_FLAG_SCORE_HIDDEN;
+        }
+        if (comment.getReplies() != null) {
+            flags |= COMMENT_FLAG_HAS_REPLIES;
+        }
+        if (comment.getMoreChildIds() != null) {
+            flags |= COMMENT_FLAG_HAS_MORE_CHILD_IDS;
+        }
+
+        writer.writeVarint(flags);
+        writer.writeString(comment.getPostContents());
+        writer.writeString(comment.getAuthor());
+        writer.writeString(comment.getTitle());
+        writer.writeString(comment.getLinkFullname());
+        writer.writeSignedVarint(comment.getReplyLevel());
+        writer.writeSignedVarint(comment.getGilded());
+        writer.writeSignedVarint(comment.getScore());
+
+        if (comment.getReplies() != null) {
+            writeComments(writer, comment.getReplies());
+        }
+
+        if (comment.getMoreChildIds() != null) {
+            writer.writeVarint(comment.getMoreChildIds().size());
+            for (String id : comment.getMoreChildIds()) {
+                writer.writeString(id);
+            }
+        }
+    }
+
+    private static Comment readComment(Reader reader) throws IOException {
+        final int flags = (int) reader.readVarint();
+
+        final Comment.Builder builder = new Comment.Builder().setIsScoreHidden(
+                (flags & COMMENT_FLAG_SCORE_HIDDEN) != 0)
+                .setPostContents(reader.readString())
+                .setAuthor(reader.readString())
+                .setTitle(reader.readString())
+                .setLinkFullname(reader.readString())
+                .setReplyLevel((int) reader.readSignedVarint())
+                .setGilded((int) reader.readSignedVarint())
+                .setScore((int) reader.readSignedVarint());
+
+        if ((flags & COMMENT_FLAG_HAS_REPLIES) != 0) {
+            builder.setComments(readComments(reader));
+        }
+
+        if ((flags & COMMENT_FLAG_HAS_MORE_CHILD_IDS) != 0) {
+            final int count = reader.readLength();
+            final List<String> ids = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                ids.add(reader.readString());
+            }
+            builder.setMoreChildIds(ids);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Writes the object into a body whilst collecting its strings, then puts the header and string table
+     * in front of it
+     */
+    private static class Writer {
+        private final ByteArrayOutputStream mBody = new ByteArrayOutputStream();
+        private final Map<String, Integer> mStringIndexes = new HashMap<>();
+        private final List<String> mStrings = new ArrayList<>();
+
+        // 0 is null, anything else is 1 + the string's index in the table
+        void writeString(String string) {
+            if (string == null) {
+                writeVarint(0);
+                return;
+            }
+
+            Integer index = mStringIndexes.get(string);
+            if (index == null) {
+                index = mStrings.size();
+                mStrings.add(string);
+                mStringIndexes.put(string, index);
+            }
+            writeVarint(index + 1);
+        }
+
+        void writeSignedVarint(long value) {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        void writeVarint(long value) {
+            writeVarint(mBody, value);
+        }
+
+        byte[] toByteArray() {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(mBody.size() + 64);
+            out.write(VERSION);
+
+            writeVarint(out, mStrings.size());
+            for (String string : mStrings) {
+                final byte[] bytes = getBytes(string);
+                writeVarint(out, bytes.length);
+                out.write(bytes, 0, bytes.length);
+            }
+
+            final byte[] body = mBody.toByteArray();
+            out.write(body, 0, body.length);
+            return out.toByteArray();
+        }
+
+        private static void writeVarint(ByteArrayOutputStream out, long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        private static byte[] getBytes(String string) {
+            try {
+                return string.getBytes(CHARSET);
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static class Reader {
+        private final byte[] mBytes;
+        private final String[] mStrings;
+        private int mPosition;
+
+        Reader(byte[] bytes) throws IOException {
+            mBytes = bytes;
+
+            final int version = readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported format version: " + version);
+            }
+
+            mStrings = new String[readLength()];
+            for (int i = 0; i < mStrings.length; i++) {
+                final int length = readLength();
+                mStrings[i] = new String(mBytes, mPosition, length, CHARSET);
+                mPosition += length;
+            }
+        }
+
+        String readString() throws IOException {
+            final long index = readVarint();
+            if (index == 0) {
+                return null;
+            }
+            if (index > mStrings.length) {
+                throw new IOException("String index out of range: " + index);
+            }
+            return mStrings[(int) index - 1];
+        }
+
+        long readSignedVarint() throws IOException {
+            final long value = readVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                final int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        // A length that must fit in what's left, so corrupt data can't make us allocate a huge array
+        int readLength() throws IOException {
+            final long length = readVarint();
+            if (length < 0 || length > mBytes.length - mPosition) {
+                throw new IOException("Invalid length: " + length);
+            }
+            return (int) length;
+        }
+
+        private int readByte() throws IOException {
+            if (mPosition >= mBytes.length) {
+                throw new EOFException();
+            }
+            return mBytes[mPosition++] & 0xFF;
+        }
+    }
+}
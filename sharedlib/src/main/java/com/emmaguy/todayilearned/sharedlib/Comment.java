@@ -15,6 +15,10 @@ public class Comment {
 
     private final List<Comment> mReplies;
 
+    // Only set on placeholders for comments which haven't been loaded yet
+    private final List<String> mMoreChildIds;
+    private final String mLinkFullname;
+
     public Comment(Builder builder) {
         mScore = builder.mScore;
         mTitle = builder.mTitle;
@@ -24,6 +28,8 @@ public class Comment {
         mReplyLevel = builder.mReplyLevel;
         mPostContents = builder.mPostContents;
         mScoreHidden = builder.mIsScoreHidden;
+        mMoreChildIds = builder.mMoreChildIds;
+        mLinkFullname = builder.mLinkFullname;
     }
 
     public String getTitle() {
@@ -58,6 +64,22 @@ public class Comment {
         return mReplies;
     }
 
+    /**
+     * @return true if this is a placeholder for comments the server hasn't sent us yet, which can be
+     * requested using {@link #getLinkFullname()} and {@link #getMoreChildIds()}
+     */
+    public boolean isMore() {
+        return mMoreChildIds != null && !mMoreChildIds.isEmpty();
+    }
+
+    public List<String> getMoreChildIds() {
+        return mMoreChildIds;
+    }
+
+    public String getLinkFullname() {
+        return mLinkFullname;
+    }
+
     public static final class Builder {
         private boolean mIsScoreHidden;
 
@@ -65,6 +87,8 @@ public class Comment {
         private String mAuthor;
         private String mTitle;
         private List<Comment> mReplies;
+        private List<String> mMoreChildIds;
+        private String mLinkFullname;
 
         private int mGilded;
         private int mScore;
@@ -113,5 +137,15 @@ public class Comment {
             mIsScoreHidden = scoreHidden;
             return this;
         }
+
+        public Builder setMoreChildIds(List<String> moreChildIds) {
+            mMoreChildIds = moreChildIds;
+            return this;
+        }
+
+        public Builder setLinkFullname(String linkFullname) {
+            mLinkFullname = linkFullname;
+            return this;
+        }
     }
 }
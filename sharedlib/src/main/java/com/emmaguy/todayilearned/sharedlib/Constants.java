@@ -20,17 +20,26 @@ public class Constants {
     public static final String GRANT_TYPE_INSTALLED_CLIENT = "https://oauth.reddit.com/grants/installed_client";
 
     public static final String PATH_REDDIT_POSTS = "/redditwear";
+    // Each post is its own DataItem under this prefix, followed by the post's fullname
+    public static final String PATH_REDDIT_POST_PREFIX = PATH_REDDIT_POSTS + "/post/";
     public static final String PATH_REFRESH = "/refresh";
     public static final String PATH_OPEN_ON_PHONE = "/openonphone";
     public static final String PATH_REPLY = "/replytopost";
     public static final String PATH_SAVE_TO_POCKET = "/send_to_pocket";
     public static final String PATH_VOTE = "/vote";
     public static final String PATH_COMMENTS = "/comments";
+    public static final String PATH_MORE_COMMENTS = "/more_comments";
     public static final String PATH_NO_NEW_POSTS = "/no_new_posts";
     public static final String PATH_LOGGING = "/logging";
 
     public static final String KEY_REDDIT_POSTS = "posts";
+    public static final String KEY_REDDIT_POST = "post";
+    public static final String KEY_REDDIT_POST_IMAGE = "post_image";
+    public static final String KEY_SENT_TIMESTAMP = "sent_timestamp";
     public static final String KEY_POST_PERMALINK = "post_permalink";
+    public static final String KEY_LINK_FULLNAME = "link_fullname";
+    public static final String KEY_MORE_CHILD_IDS = "more_child_ids";
+    public static final String KEY_REPLY_LEVEL = "reply_level";
 
     public static final String PATH_POST_REPLY_RESULT_SUCCESS = "/post_reply_success";
     public static final String PATH_POST_REPLY_RESULT_FAILURE = "/post_reply_failure";
@@ -0,0 +1,87 @@
+package com.emmaguy.todayilearned.sharedlib;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Optionally gzips payloads sent over the Wear link. The first byte says whether the rest is compressed,
+ * so the receiver can always call {@link #decompress(byte[])} whichever the sender chose.
+ * <p>
+ * Small payloads aren't worth the cpu on either end, so are only compressed once they're at least the
+ * threshold, and are sent as they are if compressing didn't make them smaller
+ */
+public class PayloadCompression {
+    static final int FLAG_RAW = 0;
+    static final int FLAG_GZIP = 1;
+
+    private static final int BUFFER_SIZE = 4096;
+
+    public static byte[] compress(byte[] payload, int thresholdBytes) {
+        if (payload.length >= thresholdBytes) {
+            final byte[] compressed = gzip(payload);
+            if (compressed.length < payload.length) {
+                return withFlag(FLAG_GZIP, compressed);
+            }
+        }
+        return withFlag(FLAG_RAW, payload);
+    }
+
+    public static byte[] decompress(byte[] bytes) throws IOException {
+        if (bytes == null || bytes.length == 0) {
+            throw new IOException("Empty payload");
+        }
+
+        final int flag = bytes[0];
+        if (flag == FLAG_RAW) {
+            return Arrays.copyOfRange(bytes, 1, bytes.length);
+        } else if (flag == FLAG_GZIP) {
+            return gunzip(bytes);
+        }
+        throw new IOException("Unknown payload flag: " + flag);
+    }
+
+    public static boolean isCompressed(byte[] bytes) {
+        return bytes != null && bytes.length > 0 && bytes[0] == FLAG_GZIP;
+    }
+
+    private static byte[] withFlag(int flag, byte[] payload) {
+        final byte[] bytes = new byte[payload.length + 1];
+        bytes[0] = (byte) flag;
+        System.arraycopy(payload, 0, bytes, 1, payload.length);
+        return bytes;
+    }
+
+    private static byte[] gzip(byte[] payload) {
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length / 2);
+            final GZIPOutputStream gzip = new GZIPOutputStream(out);
+            gzip.write(payload);
+            gzip.close();
+            return out.toByteArray();
+        } catch (IOException e) {
+            // Only writing to memory, so can't happen
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        final GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes,
+                1,
+                bytes.length - 1));
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 4);
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = gzip.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            gzip.close();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.emmaguy.todayilearned.sharedlib;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class BinaryCodecTest {
+    @Test public void post_roundTrips() throws IOException {
+        final Post post = new Post.Builder().setTitle("todayilearned")
+                .setShortTitle("TIL that...")
+                .setPostContents("TIL that the codec works\n\nwith ünïcödé")
+                .setSubreddit("todayilearned")
+                .setPermalink("/r/todayilearned/comments/abc/til/")
+                .setFullname("t3_abc")
+                .setImageUrl("https://i.redd.it/abc.jpg")
+                .hasImageUrl(true)
+                .setAuthor("emmaguy")
+                .setUrl("https://example.com")
+                .setId("abc")
+                .setCreatedUtc(1420079792L)
+                .setScore(-12)
+                .setGilded(3)
+                .setIsDirectMessage(false)
+                .build();
+
+        final Post decoded = BinaryCodec.decodePost(BinaryCodec.encodePost(post));
+
+        assertThat(decoded.toString(), equalTo(post.toString()));
+    }
+
+    @Test public void post_keepsNulls() throws IOException {
+        final Post decoded = BinaryCodec.decodePost(BinaryCodec.encodePost(new Post.Builder().setIsDirectMessage(
+                true).build()));
+
+        assertThat(decoded.isDirectMessage(), equalTo(true));
+        assertThat(decoded.getTitle(), nullValue());
+        assertThat(decoded.getImageUrl(), nullValue());
+    }
+
+    @Test public void comments_roundTripTree() throws IOException {
+        final Comment more = new Comment.Builder().setMoreChildIds(Arrays.asList("d1", "d2"))
+                .setLinkFullname("t3_abc")
+                .setReplyLevel(2)
+                .build();
+        final Comment reply = new Comment.Builder().setAuthor("emmaguy")
+                .setPostContents("reply")
+                .setReplyLevel(2)
+                .setScore(-1)
+                .setComments(Collections.singletonList(more))
+                .build();
+        final Comment root = new Comment.Builder().setAuthor("emmaguy")
+                .setPostContents("root")
+                .setReplyLevel(1)
+                .setScore(100)
+                .setGilded(1)
+                .setIsScoreHidden(true)
+                .setComments(Collections.singletonList(reply))
+                .build();
+
+        final List<Comment> decoded = BinaryCodec.decodeComments(BinaryCodec.encodeComments(Collections.singletonList(
+                root)));
+
+        assertThat(decoded.size(), equalTo(1));
+        final Comment decodedRoot = decoded.get(0);
+        assertThat(decodedRoot.getAuthor(), equalTo("emmaguy"));
+        assertThat(decodedRoot.getPostContents(), equalTo("root"));
+        assertThat(decodedRoot.getScore(), equalTo(100));
+        assertThat(decodedRoot.getGilded(), equalTo(1));
+        assertThat(decodedRoot.isScoreHidden(), equalTo(true));
+        assertThat(decodedRoot.isMore(), equalTo(false));
+
+        final Comment decodedReply = decodedRoot.getReplies().get(0);
+        assertThat(decodedReply.getScore(), equalTo(-1));
+        assertThat(decodedReply.getReplyLevel(), equalTo(2));
+
+        final Comment decodedMore = decodedReply.getReplies().get(0);
+        assertThat(decodedMore.isMore(), equalTo(true));
+        assertThat(decodedMore.getMoreChildIds(), equalTo(Arrays.asList("d1", "d2")));
+        assertThat(decodedMore.getLinkFullname(), equalTo("t3_abc"));
+        assertThat(decodedMore.getReplies(), nullValue());
+    }
+
+    @Test public void repeatedStrings_areOnlyWrittenOnce() {
+        final Comment comment = new Comment.Builder().setAuthor("a_fairly_long_username").build();
+
+        final int one = BinaryCodec.encodeComments(Collections.singletonList(comment)).length;
+        final int two = BinaryCodec.encodeComments(Arrays.asList(comment, comment)).length;
+
+        assertThat(two - one < "a_fairly_long_username".length(), equalTo(true));
+    }
+
+    @Test(expected = IOException.class) public void decode_otherVersion_throws() throws IOException {
+        final byte[] bytes = BinaryCodec.encodePost(new Post.Builder().build());
+        bytes[0] = (byte) (BinaryCodec.VERSION + 1);
+
+        BinaryCodec.decodePost(bytes);
+    }
+
+    @Test(expected = IOException.class) public void decode_truncated_throws() throws IOException {
+        final byte[] bytes = BinaryCodec.encodePost(new Post.Builder().setTitle("title").build());
+
+        BinaryCodec.decodePost(Arrays.copyOf(bytes, bytes.length - 2));
+    }
+}
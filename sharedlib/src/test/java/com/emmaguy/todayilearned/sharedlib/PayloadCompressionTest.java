@@ -0,0 +1,46 @@
+package com.emmaguy.todayilearned.sharedlib;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class PayloadCompressionTest {
+    @Test public void belowThreshold_isSentRaw() throws IOException {
+        final byte[] payload = new byte[]{1, 2, 3};
+
+        final byte[] bytes = PayloadCompression.compress(payload, 100);
+
+        assertThat(PayloadCompression.isCompressed(bytes), equalTo(false));
+        assertThat(bytes.length, equalTo(payload.length + 1));
+        assertThat(PayloadCompression.decompress(bytes), equalTo(payload));
+    }
+
+    @Test public void aboveThreshold_isCompressed() throws IOException {
+        final byte[] payload = new byte[2000];
+        Arrays.fill(payload, (byte) 'a');
+
+        final byte[] bytes = PayloadCompression.compress(payload, 100);
+
+        assertThat(PayloadCompression.isCompressed(bytes), equalTo(true));
+        assertThat(bytes.length < payload.length, equalTo(true));
+        assertThat(PayloadCompression.decompress(bytes), equalTo(payload));
+    }
+
+    @Test public void incompressible_isSentRaw() throws IOException {
+        final byte[] payload = new byte[200];
+        new java.util.Random(42).nextBytes(payload);
+
+        final byte[] bytes = PayloadCompression.compress(payload, 100);
+
+        assertThat(PayloadCompression.isCompressed(bytes), equalTo(false));
+        assertThat(PayloadCompression.decompress(bytes), equalTo(payload));
+    }
+
+    @Test(expected = IOException.class) public void unknownFlag_throws() throws IOException {
+        PayloadCompression.decompress(new byte[]{7, 1, 2});
+    }
+}
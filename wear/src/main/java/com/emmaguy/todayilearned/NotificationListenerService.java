@@ -19,7 +19,9 @@ import android.widget.Toast;
 
 import com.emmaguy.todayilearned.comments.ActionReceiver;
 import com.emmaguy.todayilearned.comments.CommentsActivity;
+import com.emmaguy.todayilearned.sharedlib.BinaryCodec;
 import com.emmaguy.todayilearned.sharedlib.Constants;
+import com.emmaguy.todayilearned.sharedlib.PayloadCompression;
 import com.emmaguy.todayilearned.sharedlib.Post;
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.api.GoogleApiClient;
@@ -36,15 +38,15 @@ import com.google.android.gms.wearable.PutDataMapRequest;
 import com.google.android.gms.wearable.PutDataRequest;
 import com.google.android.gms.wearable.Wearable;
 import com.google.android.gms.wearable.WearableListenerService;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 public class NotificationListenerService extends WearableListenerService {
@@ -64,7 +66,7 @@ public class NotificationListenerService extends WearableListenerService {
 
     private static final int NOTIFICATION_ID_INCREMENT = 10;
     private static int sNotificationId = 0;
-    private final Gson mGson = new Gson();
+    private static final Map<String, Integer> sNotificationIds = new HashMap<>();
     private GoogleApiClient mGoogleApiClient;
     private Handler mHandler;
 
@@ -192,44 +194,45 @@ public class NotificationListenerService extends WearableListenerService {
                 Logger.log("onDataChanged, path: " + path);
                 if (path.equals(Constants.PATH_LOGGING)) {
                     return;
-                } else if (path.equals(Constants.PATH_REDDIT_POSTS)) {
+                } else if (path.startsWith(Constants.PATH_REDDIT_POST_PREFIX)) {
                     try {
                         DataMapItem dataMapItem = DataMapItem.fromDataItem(event.getDataItem());
                         DataMap dataMap = dataMapItem.getDataMap();
 
-                        final String latestPosts = dataMap.getString(Constants.KEY_REDDIT_POSTS);
                         final boolean openOnPhoneDismisses = dataMap.getBoolean(Constants.KEY_DISMISS_AFTER_ACTION);
                         final ArrayList<Integer> actionOrder = dataMap.getIntegerArrayList(Constants.KEY_ACTION_ORDER);
 
-                        List<Post> posts = mGson.fromJson(latestPosts, new TypeToken<List<Post>>() {
-                        }.getType());
+                        final byte[] postBytes = decompress(dataMap.getByteArray(Constants.KEY_REDDIT_POST));
+                        Post post = BinaryCodec.decodePost(postBytes);
 
                         Bitmap themeBlueBitmap = Bitmap.createBitmap(new int[]{getResources().getColor(
                                 R.color.primary)}, 1, 1, Bitmap.Config.ARGB_8888);
                         NotificationManager notificationManager = (NotificationManager) getSystemService(
                                 NOTIFICATION_SERVICE);
 
-                        msg += ", posts: " + posts.size();
-                        for (int i = 0; i < posts.size(); i++) {
-                            Post post = posts.get(i);
-                            createNotificationForPost(dataMap,
-                                    openOnPhoneDismisses,
-                                    actionOrder,
-                                    themeBlueBitmap,
-                                    notificationManager,
-                                    post);
-                        }
+                        msg += ", post: " + post.getFullname();
+                        createNotificationForPost(dataMap.getAsset(Constants.KEY_REDDIT_POST_IMAGE),
+                                openOnPhoneDismisses,
+                                actionOrder,
+                                themeBlueBitmap,
+                                notificationManager,
+                                post);
                     } catch (Exception e) {
-                        logErrorToPhone("Failed to get reddit posts from data event", e);
+                        logErrorToPhone("Failed to get reddit post from data event", e);
                     }
                 } else if (path.equals(Constants.PATH_COMMENTS)) {
                     DataMapItem dataMapItem = DataMapItem.fromDataItem(event.getDataItem());
                     DataMap dataMap = dataMapItem.getDataMap();
 
-                    final String comments = dataMap.getString(Constants.KEY_REDDIT_POSTS);
+                    byte[] comments = null;
+                    try {
+                        comments = decompress(dataMap.getByteArray(Constants.KEY_REDDIT_POSTS));
+                    } catch (IOException e) {
+                        logErrorToPhone("Failed to decompress comments", e);
+                    }
 
-                    msg += ", comments: " + (TextUtils.isEmpty(comments) ? "empty" : comments.length());
-                    if (!TextUtils.isEmpty(comments)) {
+                    msg += ", comments: " + (comments == null ? "empty" : comments.length);
+                    if (comments != null) {
                         logToPhone("Comments received, starting activity");
                         Intent intent = new Intent(this, CommentsActivity.class);
                         intent.putExtra(Constants.KEY_REDDIT_POSTS, comments);
@@ -241,18 +244,45 @@ public class NotificationListenerService extends WearableListenerService {
                 String path = event.getDataItem().getUri().getPath();
 
                 msg += ", path: " + path;
+                if (path.startsWith(Constants.PATH_REDDIT_POST_PREFIX)) {
+                    // The phone has expired this post, it won't be updated again
+                    sNotificationIds.remove(path.substring(Constants.PATH_REDDIT_POST_PREFIX.length()));
+                }
             }
         }
         logToPhone(msg);
     }
 
-    private void createNotificationForPost(DataMap dataMap, boolean openOnPhoneDismisses,
+    // Logs the sizes and time taken, so we can see if compressing is worth it on the watch's cpu
+    private byte[] decompress(byte[] bytes) throws IOException {
+        final long start = System.nanoTime();
+        final byte[] payload = PayloadCompression.decompress(bytes);
+        if (PayloadCompression.isCompressed(bytes)) {
+            logToPhone("Decompressed payload, compressed: " + bytes.length + ", raw: " + payload.length +
+                    ", millis: " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        return payload;
+    }
+
+    private void createNotificationForPost(@Nullable Asset image, boolean openOnPhoneDismisses,
                                            ArrayList<Integer> actionOrder, Bitmap themeBlueBitmap,
                                            NotificationManager notificationManager, Post post) {
         try {
             Bitmap backgroundBitmap = null;
-            if (dataMap.containsKey(post.getId()) && dataMap.getAsset(post.getId()) != null) {
-                backgroundBitmap = loadBitmapFromAsset(dataMap.getAsset(post.getId()));
+            if (image != null) {
+                backgroundBitmap = loadBitmapFromAsset(image);
+            }
+
+            // If the phone has sent us a changed version of a post, update its notification rather than
+            // showing it twice
+            final Integer existingNotificationId = sNotificationIds.get(post.getFullname());
+            final int notificationId;
+            if (existingNotificationId != null) {
+                notificationId = existingNotificationId;
+            } else {
+                notificationId = sNotificationId;
+                sNotificationId += NOTIFICATION_ID_INCREMENT;
+                sNotificationIds.put(post.getFullname(), notificationId);
             }
 
             NotificationCompat.Builder builder = new NotificationCompat.Builder(this).setContentTitle(
@@ -265,7 +295,7 @@ public class NotificationListenerService extends WearableListenerService {
                 // If the post has a thumbnail, use it - this will filter out nfsw etc thumbnails
                 // but will still allow the user to see the full image if they like
                 builder.setLargeIcon(backgroundBitmap);
-                hasCachedImage = cacheBackgroundToDisk(sNotificationId, backgroundBitmap);
+                hasCachedImage = cacheBackgroundToDisk(notificationId, backgroundBitmap);
             } else {
                 hasCachedImage = false;
                 setBlueBackground(themeBlueBitmap, builder);
@@ -276,21 +306,20 @@ public class NotificationListenerService extends WearableListenerService {
                     openOnPhoneDismisses,
                     hasCachedImage,
                     post,
-                    sNotificationId,
+                    notificationId,
                     builder);
 
             if (hasCachedImage) {
                 // When the notification is dismissed, we will remove this image from the file cache
-                builder.setDeleteIntent(getDeletePendingIntent(sNotificationId));
+                builder.setDeleteIntent(getDeletePendingIntent(notificationId));
             }
 
-            notificationManager.notify(sNotificationId, builder.build());
+            notificationManager.notify(notificationId, builder.build());
 
             if (backgroundBitmap != null) {
                 backgroundBitmap.recycle();
             }
 
-            sNotificationId += NOTIFICATION_ID_INCREMENT;
             sendBroadcast(new Intent(getString(R.string.force_finish_main_activity)));
         } catch (Exception e) {
             logErrorToPhone("Failed to create notification for post: " + post, e);
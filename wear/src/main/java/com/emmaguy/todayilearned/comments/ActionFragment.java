@@ -8,19 +8,19 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import com.emmaguy.todayilearned.R;
+import com.emmaguy.todayilearned.sharedlib.BinaryCodec;
 import com.emmaguy.todayilearned.sharedlib.Comment;
-import com.google.gson.Gson;
 
 import java.util.List;
 
 public class ActionFragment extends Fragment implements View.OnClickListener {
     private static final String ARGS_KEY_REPLIES = "key_replies";
     private OnActionListener mListener;
-    private String mReplies;
+    private byte[] mReplies;
 
     public static Fragment create(List<Comment> replies) {
         Bundle args = new Bundle();
-        args.putString(ARGS_KEY_REPLIES, new Gson().toJson(replies));
+        args.putByteArray(ARGS_KEY_REPLIES, BinaryCodec.encodeComments(replies));
 
         ActionFragment f = new ActionFragment();
         f.setArguments(args);
@@ -30,7 +30,7 @@ public class ActionFragment extends Fragment implements View.OnClickListener {
     @Override public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
-        mReplies = getArguments().getString(ARGS_KEY_REPLIES);
+        mReplies = getArguments().getByteArray(ARGS_KEY_REPLIES);
     }
 
     @Override public void onAttach(Activity activity) {
@@ -54,7 +54,7 @@ public class ActionFragment extends Fragment implements View.OnClickListener {
     }
 
     public interface OnActionListener {
-        void onActionPerformed(String replies);
+        void onActionPerformed(byte[] replies);
     }
 }
 
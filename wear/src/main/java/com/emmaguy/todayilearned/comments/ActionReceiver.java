@@ -20,13 +20,24 @@ import com.google.android.gms.wearable.Wearable;
 import java.util.concurrent.TimeUnit;
 
 public class ActionReceiver extends BroadcastReceiver {
+    // Shared by every action, rather than connecting a new client each time the user taps one
+    private static GoogleApiClient sGoogleApiClient;
+
     private GoogleApiClient mGoogleApiClient;
 
     public ActionReceiver() {
     }
 
+    private static synchronized GoogleApiClient getGoogleApiClient(Context context) {
+        if (sGoogleApiClient == null) {
+            sGoogleApiClient = new GoogleApiClient.Builder(context.getApplicationContext()).addApi(
+                    Wearable.API).build();
+        }
+        return sGoogleApiClient;
+    }
+
     @Override public void onReceive(final Context context, Intent intent) {
-        mGoogleApiClient = new GoogleApiClient.Builder(context).addApi(Wearable.API).build();
+        mGoogleApiClient = getGoogleApiClient(context);
         Logger.log("onReceive in ActionReceiver");
         new ConnectTask(context, intent.getExtras()).execute();
     }
@@ -49,8 +60,9 @@ public class ActionReceiver extends BroadcastReceiver {
         }
 
         @Override protected Void doInBackground(Void... params) {
-            ConnectionResult connectionResult = mGoogleApiClient.blockingConnect(30,
-                    TimeUnit.SECONDS);
+            // Returns straight away if a previous action already connected
+            ConnectionResult connectionResult = mGoogleApiClient.isConnected() ? new ConnectionResult(
+                    ConnectionResult.SUCCESS) : mGoogleApiClient.blockingConnect(30, TimeUnit.SECONDS);
             if (!connectionResult.isSuccess()) {
                 Logger.log("Action receiver, service failed to connect: " + connectionResult);
                 return null;
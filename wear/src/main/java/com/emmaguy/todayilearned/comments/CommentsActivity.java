@@ -3,23 +3,23 @@ package com.emmaguy.todayilearned.comments;
 import android.app.Activity;
 import android.content.Intent;
 import android.os.Bundle;
+import android.support.annotation.Nullable;
 import android.support.wearable.view.DotsPageIndicator;
 import android.support.wearable.view.GridViewPager;
 import android.view.View;
 import android.view.WindowInsets;
 import android.widget.Toast;
 
+import com.emmaguy.todayilearned.Logger;
 import com.emmaguy.todayilearned.R;
+import com.emmaguy.todayilearned.sharedlib.BinaryCodec;
 import com.emmaguy.todayilearned.sharedlib.Comment;
 import com.emmaguy.todayilearned.sharedlib.Constants;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.List;
 
 public class CommentsActivity extends Activity implements ActionFragment.OnActionListener {
-    private final Gson mGson = new Gson();
     private GridViewPager mGridViewPager;
 
     @Override protected void onCreate(Bundle savedInstanceState) {
@@ -27,10 +27,7 @@ public class CommentsActivity extends Activity implements ActionFragment.OnActio
 
         setContentView(R.layout.activity_comments);
 
-        final String stringComments = getIntent().getStringExtra(Constants.KEY_REDDIT_POSTS);
-        final ArrayList<Comment> comments = mGson.fromJson(stringComments,
-                new TypeToken<List<Comment>>() {
-                }.getType());
+        final List<Comment> comments = getComments(getIntent().getByteArrayExtra(Constants.KEY_REDDIT_POSTS));
         if (comments == null || comments.isEmpty()) {
             Toast.makeText(this, R.string.thread_has_no_comments_yet, Toast.LENGTH_SHORT).show();
             finish();
@@ -58,7 +55,20 @@ public class CommentsActivity extends Activity implements ActionFragment.OnActio
         }
     }
 
-    @Override public void onActionPerformed(String replies) {
+    @Nullable private List<Comment> getComments(@Nullable byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+
+        try {
+            return BinaryCodec.decodeComments(bytes);
+        } catch (IOException e) {
+            Logger.log("Failed to decode comments", e);
+            return null;
+        }
+    }
+
+    @Override public void onActionPerformed(byte[] replies) {
         Intent intent = new Intent(this, CommentsActivity.class);
         intent.putExtra(Constants.KEY_REDDIT_POSTS, replies);
         startActivity(intent);
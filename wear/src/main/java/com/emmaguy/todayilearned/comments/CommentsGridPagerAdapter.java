@@ -45,6 +45,11 @@ public class CommentsGridPagerAdapter extends FragmentGridPagerAdapter {
         };
 
         for (Comment comment : comments) {
+            if (comment.isMore()) {
+                mRows.add(new Row(MoreCommentsFragment.create(comment)));
+                continue;
+            }
+
             Fragment cardFragment = cardFragment(comment);
 
             if (comment.getReplies() != null && !comment.getReplies().isEmpty()) {
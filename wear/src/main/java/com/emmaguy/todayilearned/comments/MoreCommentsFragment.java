@@ -0,0 +1,60 @@
+package com.emmaguy.todayilearned.comments;
+
+import android.app.Fragment;
+import android.content.Intent;
+import android.os.Bundle;
+import android.support.wearable.activity.ConfirmationActivity;
+import android.support.wearable.view.ActionPage;
+import android.text.TextUtils;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.emmaguy.todayilearned.R;
+import com.emmaguy.todayilearned.sharedlib.Comment;
+import com.emmaguy.todayilearned.sharedlib.Constants;
+
+/**
+ * Shown in place of comments the phone hasn't sent yet, asks the phone to load the next few of them
+ */
+public class MoreCommentsFragment extends Fragment implements View.OnClickListener {
+    private static final String ARGS_KEY_LINK_FULLNAME = "key_link_fullname";
+    private static final String ARGS_KEY_CHILD_IDS = "key_child_ids";
+    private static final String ARGS_KEY_REPLY_LEVEL = "key_reply_level";
+    private static final String ARGS_KEY_COUNT = "key_count";
+
+    public static Fragment create(Comment more) {
+        Bundle args = new Bundle();
+        args.putString(ARGS_KEY_LINK_FULLNAME, more.getLinkFullname());
+        args.putString(ARGS_KEY_CHILD_IDS, TextUtils.join(",", more.getMoreChildIds()));
+        args.putInt(ARGS_KEY_REPLY_LEVEL, more.getReplyLevel());
+        args.putInt(ARGS_KEY_COUNT, more.getMoreChildIds().size());
+
+        MoreCommentsFragment f = new MoreCommentsFragment();
+        f.setArguments(args);
+        return f;
+    }
+
+    @Override public View onCreateView(LayoutInflater inflater, ViewGroup container,
+                                       Bundle savedInstanceState) {
+        final int count = getArguments().getInt(ARGS_KEY_COUNT);
+
+        ActionPage v = (ActionPage) inflater.inflate(R.layout.fragment_more_comments, container, false);
+        v.setText(getResources().getQuantityString(R.plurals.load_more_comments, count, count));
+        v.setOnClickListener(this);
+        return v;
+    }
+
+    @Override public void onClick(View v) {
+        Intent intent = new Intent(getActivity(), ActionReceiver.class);
+        intent.putExtra(Constants.KEY_PATH, Constants.PATH_MORE_COMMENTS);
+        intent.putExtra(Constants.KEY_CONFIRMATION_MESSAGE, getString(R.string.getting_comments));
+        intent.putExtra(Constants.KEY_CONFIRMATION_ANIMATION,
+                ConfirmationActivity.SUCCESS_ANIMATION);
+        intent.putExtra(Constants.KEY_LINK_FULLNAME,
+                getArguments().getString(ARGS_KEY_LINK_FULLNAME));
+        intent.putExtra(Constants.KEY_MORE_CHILD_IDS, getArguments().getString(ARGS_KEY_CHILD_IDS));
+        intent.putExtra(Constants.KEY_REPLY_LEVEL, getArguments().getInt(ARGS_KEY_REPLY_LEVEL));
+        getActivity().sendBroadcast(intent);
+    }
+}